@@ -17,6 +17,14 @@ public class FabricType {
         public static final int FABRIC_GET_BLOCK = 2005;
         public static final int FABRIC_GET_TRANSACTION = 2006;
         public static final int FABRIC_SENDTRANSACTION_ORG_ENDORSER = 2007;
+        public static final int FABRIC_GET_BLOCK_STREAM = 2008;
+        public static final int FABRIC_SUBMIT_TRANSACTION_ORDERER = 2009;
+        public static final int FABRIC_WAIT_BLOCK_NUMBER = 2010;
+    }
+
+    public static class TransactionOption {
+        // TransactionRequest options name
+        public static final String SUBMIT_ONLY = "SUBMIT_ONLY"; // true: do not wait for commit
     }
 
     public static class Resource {
@@ -75,4 +83,5 @@ public class FabricType {
     }
 
     public static final String ORG_NAME_DEF = "orgName_w";
+    public static final String ORG_MSP_ID_DEF = "orgMspId_w";
 }
@@ -0,0 +1,98 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Raw block bytes keyed by block number, bounded by total bytes with LRU eviction
+public class BlockCache {
+    private static Logger logger = LoggerFactory.getLogger(BlockCache.class);
+
+    public interface BlockFetcher {
+        byte[] fetch(long blockNumber) throws Exception;
+    }
+
+    private Cache<Long, byte[]> blocks;
+    private int prefetchSize;
+    private Set<Long> prefetching = ConcurrentHashMap.newKeySet();
+
+    public BlockCache(long maxBytes, int prefetchSize) {
+        this.blocks =
+                CacheBuilder.newBuilder()
+                        .maximumWeight(maxBytes)
+                        .weigher((Long blockNumber, byte[] bytes) -> bytes.length)
+                        .recordStats()
+                        .build();
+        this.prefetchSize = prefetchSize;
+    }
+
+    public byte[] get(long blockNumber) {
+        return blocks.getIfPresent(blockNumber);
+    }
+
+    public void put(long blockNumber, byte[] blockBytes) {
+        blocks.put(blockNumber, blockBytes);
+    }
+
+    // Read ahead the next blocks up to latestBlockNumber, used when a caller is catching up
+    public void prefetch(
+            long blockNumber, long latestBlockNumber, BlockFetcher fetcher, Executor executor) {
+        long end = Math.min(blockNumber + prefetchSize, latestBlockNumber);
+        for (long number = blockNumber + 1; number <= end; number++) {
+            final long prefetchNumber = number;
+            // asMap() lookups are not recorded, read-ahead must not skew the hit rate
+            if (blocks.asMap().containsKey(prefetchNumber) || !prefetching.add(prefetchNumber)) {
+                continue;
+            }
+
+            try {
+                executor.execute(
+                        () -> {
+                            try {
+                                if (!blocks.asMap().containsKey(prefetchNumber)) {
+                                    blocks.put(prefetchNumber, fetcher.fetch(prefetchNumber));
+                                }
+                            } catch (Exception e) {
+                                logger.debug("Prefetch block {} exception: ", prefetchNumber, e);
+                            } finally {
+                                prefetching.remove(prefetchNumber);
+                            }
+                        });
+            } catch (Exception e) {
+                // executor is full, give up prefetching
+                prefetching.remove(prefetchNumber);
+                return;
+            }
+        }
+    }
+
+    public CacheStats getStats() {
+        return blocks.stats();
+    }
+
+    public long size() {
+        return blocks.size();
+    }
+
+    @Override
+    public String toString() {
+        CacheStats stats = blocks.stats();
+        return "BlockCache{"
+                + "size="
+                + blocks.size()
+                + ", hit="
+                + stats.hitCount()
+                + ", miss="
+                + stats.missCount()
+                + ", hitRate="
+                + stats.hitRate()
+                + ", eviction="
+                + stats.evictionCount()
+                + '}';
+    }
+}
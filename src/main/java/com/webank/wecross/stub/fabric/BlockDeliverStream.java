@@ -0,0 +1,155 @@
+package com.webank.wecross.stub.fabric;
+
+import io.grpc.ManagedChannel;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.orderer.Ab;
+import org.hyperledger.fabric.protos.peer.DeliverGrpc;
+import org.hyperledger.fabric.protos.peer.PeerEvents;
+import org.hyperledger.fabric.sdk.transaction.ProtoUtils;
+import org.hyperledger.fabric.sdk.transaction.TransactionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Deliver blocks of [start, end] from one peer on a single gRPC stream. Inbound flow control is
+// manual: at most `window` blocks are requested ahead of the blocks the handler has returned from
+public class BlockDeliverStream {
+    private static Logger logger = LoggerFactory.getLogger(BlockDeliverStream.class);
+
+    public interface Handler {
+        // Called on the gRPC thread, one more block is requested once it returns. This is the
+        // only backpressure: a slow consumer must do its work, or block, inside the callback.
+        // Handing blocks to another thread without a bound lets the stream run ahead of it
+        void onBlock(long blockNumber, byte[] blockBytes);
+
+        // Called once, e is null if the end block has been delivered
+        void onFinish(Exception e);
+    }
+
+    private ManagedChannel managedChannel;
+    private Common.Envelope seekEnvelope;
+    private int window;
+    private Handler handler;
+    private volatile ClientCallStreamObserver<Common.Envelope> requestStream;
+    private AtomicBoolean finished = new AtomicBoolean(false);
+
+    public BlockDeliverStream(
+            ManagedChannel managedChannel,
+            Common.Envelope seekEnvelope,
+            int window,
+            Handler handler) {
+        this.managedChannel = managedChannel;
+        this.seekEnvelope = seekEnvelope;
+        this.window = window;
+        this.handler = handler;
+    }
+
+    public static Common.Envelope buildSeekEnvelope(
+            TransactionContext transactionContext,
+            long startBlockNumber,
+            long endBlockNumber,
+            byte[] tlsCertHash)
+            throws Exception {
+        Ab.SeekInfo seekInfo =
+                Ab.SeekInfo.newBuilder()
+                        .setStart(
+                                Ab.SeekPosition.newBuilder()
+                                        .setSpecified(
+                                                Ab.SeekSpecified.newBuilder()
+                                                        .setNumber(startBlockNumber)))
+                        .setStop(
+                                Ab.SeekPosition.newBuilder()
+                                        .setSpecified(
+                                                Ab.SeekSpecified.newBuilder()
+                                                        .setNumber(endBlockNumber)))
+                        .setBehavior(Ab.SeekInfo.SeekBehavior.BLOCK_UNTIL_READY)
+                        .build();
+        return ProtoUtils.createSeekInfoEnvelope(transactionContext, seekInfo, tlsCertHash);
+    }
+
+    public void start() {
+        DeliverGrpc.newStub(managedChannel)
+                .deliver(
+                        new ClientResponseObserver<Common.Envelope, PeerEvents.DeliverResponse>() {
+                            @Override
+                            public void beforeStart(
+                                    ClientCallStreamObserver<Common.Envelope> stream) {
+                                requestStream = stream;
+                                stream.disableAutoInboundFlowControl();
+                            }
+
+                            @Override
+                            public void onNext(PeerEvents.DeliverResponse response) {
+                                onDeliverResponse(response);
+                            }
+
+                            @Override
+                            public void onError(Throwable t) {
+                                finish(new Exception("Deliver stream error: " + t.getMessage()));
+                            }
+
+                            @Override
+                            public void onCompleted() {
+                                finish(null);
+                            }
+                        });
+
+        requestStream.onNext(seekEnvelope);
+        requestStream.request(window);
+    }
+
+    private void onDeliverResponse(PeerEvents.DeliverResponse response) {
+        switch (response.getTypeCase()) {
+            case BLOCK:
+                Common.Block block = response.getBlock();
+                try {
+                    handler.onBlock(block.getHeader().getNumber(), block.toByteArray());
+                } catch (Exception e) {
+                    logger.warn("Handle delivered block exception: ", e);
+                }
+                // the handler has returned from one block, ask for one more
+                requestStream.request(1);
+                break;
+            case STATUS:
+                if (response.getStatus() == Common.Status.SUCCESS) {
+                    finish(null);
+                } else {
+                    finish(new Exception("Deliver stream status: " + response.getStatus()));
+                }
+                break;
+            default:
+                logger.debug("Ignore deliver response: {}", response.getTypeCase());
+                requestStream.request(1);
+        }
+    }
+
+    public void cancel() {
+        if (requestStream != null) {
+            requestStream.cancel("Cancelled by client", null);
+        }
+        finish(new Exception("Deliver stream cancelled"));
+    }
+
+    private void finish(Exception e) {
+        if (finished.getAndSet(true)) {
+            return;
+        }
+
+        try {
+            handler.onFinish(e);
+        } catch (Exception ex) {
+            logger.warn("Deliver stream finish handler exception: ", ex);
+        }
+
+        try {
+            if (requestStream != null) {
+                requestStream.onCompleted();
+            }
+        } catch (Exception ex) {
+            // stream has been closed by the server
+        }
+        managedChannel.shutdown();
+    }
+}
@@ -0,0 +1,88 @@
+package com.webank.wecross.stub.fabric;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Latest block number of the channel, it only moves forward. Waiters of a block number are
+// completed with the latest block number once it has been reached, nobody needs to poll
+public class BlockHeightTracker {
+    private AtomicLong blockNumber = new AtomicLong(0);
+    private ConcurrentSkipListMap<Long, Queue<CompletableFuture<Long>>> waiters =
+            new ConcurrentSkipListMap<>();
+
+    public long getBlockNumber() {
+        return blockNumber.get();
+    }
+
+    // From the block listener, or from the ledger height when started. Older numbers are ignored
+    public void update(long newBlockNumber) {
+        long current = blockNumber.accumulateAndGet(newBlockNumber, Math::max);
+        if (current == newBlockNumber) {
+            notifyWaiters(current);
+        }
+    }
+
+    // Completed with the latest block number once it is >= the given one
+    public CompletableFuture<Long> waitFor(long waitBlockNumber) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        if (blockNumber.get() >= waitBlockNumber) {
+            future.complete(blockNumber.get());
+            return future;
+        }
+
+        Queue<CompletableFuture<Long>> queue;
+        do {
+            queue = waiters.computeIfAbsent(waitBlockNumber, key -> new ConcurrentLinkedQueue<>());
+            queue.add(future);
+            // retry if the queue was dropped empty by cancel before the future was added
+        } while (waiters.get(waitBlockNumber) != queue && queue.remove(future));
+        if (blockNumber.get() >= waitBlockNumber) {
+            // reached while registering, the queue may have been notified already
+            future.complete(blockNumber.get());
+            notifyWaiters(blockNumber.get());
+        }
+        return future;
+    }
+
+    // Stop waiting, e.g. on timeout of the caller. Empty queues are dropped, so waits for far
+    // future numbers do not pile up
+    public void cancel(long waitBlockNumber, CompletableFuture<Long> future) {
+        waiters.computeIfPresent(
+                waitBlockNumber,
+                (key, queue) -> {
+                    queue.remove(future);
+                    return queue.isEmpty() ? null : queue;
+                });
+    }
+
+    private void notifyWaiters(long current) {
+        Map.Entry<Long, Queue<CompletableFuture<Long>>> entry;
+        while ((entry = waiters.firstEntry()) != null && entry.getKey() <= current) {
+            if (!waiters.remove(entry.getKey(), entry.getValue())) {
+                continue; // taken by another thread
+            }
+
+            CompletableFuture<Long> future;
+            while ((future = entry.getValue().poll()) != null) {
+                future.complete(blockNumber.get());
+            }
+        }
+    }
+
+    public int getWaiterCount() {
+        int count = 0;
+        for (Queue<CompletableFuture<Long>> queue : waiters.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    // Block numbers with waiters
+    int getWaitingHeightCount() {
+        return waiters.size();
+    }
+}
@@ -0,0 +1,286 @@
+package com.webank.wecross.stub.fabric;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only block file with a block number to offset index, so that blocks fetched before a
+ * restart are read locally.
+ *
+ * <p>blocks.dat record: [blockNumber:8][length:4][crc32:4][block bytes], blocks.idx entry:
+ * [blockNumber:8][offset:8]. A torn tail left by a crash is dropped when the store is opened.
+ */
+public class BlockStore {
+    private static Logger logger = LoggerFactory.getLogger(BlockStore.class);
+
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024; // bytes mapped at once
+    private static final int VERIFY_TAIL_ENTRIES = 16; // only the tail can be torn
+
+    private final long chunkSize;
+    private volatile FileChannel dataChannel;
+    private FileChannel indexChannel;
+    private Map<Long, Long> offsets = new ConcurrentHashMap<>();
+    private volatile long dataEnd = 0;
+    private long indexEnd = 0;
+    // read only views of the full chunks, chunk i is [i * chunkSize, (i + 1) * chunkSize).
+    // Each one is mapped once, the tail chunk still being appended is read from the file
+    private List<MappedByteBuffer> chunks = new CopyOnWriteArrayList<>();
+
+    public BlockStore(String directory) throws IOException {
+        this(directory, DEFAULT_CHUNK_SIZE);
+    }
+
+    BlockStore(String directory, long chunkSize) throws IOException {
+        this.chunkSize = chunkSize;
+        File dir = new File(directory);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create block store directory: " + directory);
+        }
+
+        Path dataPath = Paths.get(directory, "blocks.dat");
+        Path indexPath = Paths.get(directory, "blocks.idx");
+        dataChannel =
+                FileChannel.open(
+                        dataPath,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+        indexChannel =
+                FileChannel.open(
+                        indexPath,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+
+        recover();
+        mapFullChunks();
+        logger.info("Block store {} opened, blocks: {}, size: {}", directory, size(), dataEnd);
+    }
+
+    private void recover() throws IOException {
+        long dataSize = dataChannel.size();
+
+        // load index entries, the records they point to are appended in order
+        long entries = indexChannel.size() / INDEX_ENTRY_SIZE;
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        for (long i = 0; i < entries; i++) {
+            entry.clear();
+            readFully(indexChannel, entry, i * INDEX_ENTRY_SIZE);
+            entry.flip();
+            long blockNumber = entry.getLong();
+            long offset = entry.getLong();
+
+            long recordEnd =
+                    checkRecord(offset, blockNumber, dataSize, i >= entries - VERIFY_TAIL_ENTRIES);
+            if (recordEnd < 0) {
+                logger.warn("Drop torn block store index from block {}", blockNumber);
+                break;
+            }
+            offsets.put(blockNumber, offset);
+            dataEnd = Math.max(dataEnd, recordEnd);
+            indexEnd = (i + 1) * INDEX_ENTRY_SIZE;
+        }
+
+        // records written without index entries, the process stopped between the two writes
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (dataEnd + RECORD_HEADER_SIZE <= dataSize) {
+            header.clear();
+            readFully(dataChannel, header, dataEnd);
+            header.flip();
+            long blockNumber = header.getLong();
+            long recordEnd = checkRecord(dataEnd, blockNumber, dataSize, true);
+            if (recordEnd < 0) {
+                break;
+            }
+            writeIndex(blockNumber, dataEnd);
+            offsets.put(blockNumber, dataEnd);
+            dataEnd = recordEnd;
+        }
+
+        if (dataSize > dataEnd) {
+            logger.warn("Truncate torn block store tail from {} to {}", dataSize, dataEnd);
+            dataChannel.truncate(dataEnd);
+        }
+        if (indexChannel.size() > indexEnd) {
+            indexChannel.truncate(indexEnd);
+        }
+    }
+
+    // Returns the end offset of a valid record, or -1 if the record is torn or corrupted
+    private long checkRecord(long offset, long blockNumber, long dataSize, boolean verifyCrc)
+            throws IOException {
+        if (offset < 0 || offset + RECORD_HEADER_SIZE > dataSize) {
+            return -1;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(dataChannel, header, offset);
+        header.flip();
+        long recordNumber = header.getLong();
+        int length = header.getInt();
+        int crc = header.getInt();
+        long recordEnd = offset + RECORD_HEADER_SIZE + length;
+        if (recordNumber != blockNumber || length < 0 || recordEnd > dataSize) {
+            return -1;
+        }
+
+        if (verifyCrc) {
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(dataChannel, payload, offset + RECORD_HEADER_SIZE);
+            if (crc32(payload.array()) != crc) {
+                return -1;
+            }
+        }
+        return recordEnd;
+    }
+
+    public byte[] get(long blockNumber) {
+        Long offset = offsets.get(blockNumber);
+        FileChannel channel = dataChannel;
+        if (offset == null || channel == null) {
+            return null;
+        }
+
+        try {
+            int chunkIndex = (int) (offset / chunkSize);
+            long chunkOffset = offset - chunkIndex * chunkSize;
+            if (chunkIndex < chunks.size() && chunkOffset + RECORD_HEADER_SIZE <= chunkSize) {
+                ByteBuffer view = chunks.get(chunkIndex).duplicate();
+                view.position((int) chunkOffset + 8);
+                int length = view.getInt();
+                view.getInt(); // crc has been checked when written or recovered
+                if (length <= view.remaining()) {
+                    byte[] blockBytes = new byte[length];
+                    view.get(blockBytes);
+                    return blockBytes;
+                }
+            }
+
+            // in the tail chunk, or across two chunks
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            readFully(channel, header, offset);
+            header.flip();
+            header.getLong();
+            int length = header.getInt();
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, offset + RECORD_HEADER_SIZE);
+            return payload.array();
+        } catch (Exception e) {
+            logger.warn("Read block {} from block store exception: ", blockNumber, e);
+            return null;
+        }
+    }
+
+    public synchronized void put(long blockNumber, byte[] blockBytes) {
+        if (dataChannel == null || offsets.containsKey(blockNumber)) {
+            return;
+        }
+
+        try {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + blockBytes.length);
+            record.putLong(blockNumber);
+            record.putInt(blockBytes.length);
+            record.putInt(crc32(blockBytes));
+            record.put(blockBytes);
+            record.flip();
+            writeFully(dataChannel, record, dataEnd);
+
+            // index is written after the record, recovery rebuilds it if we stop in between
+            writeIndex(blockNumber, dataEnd);
+            offsets.put(blockNumber, dataEnd);
+            dataEnd += RECORD_HEADER_SIZE + blockBytes.length;
+            mapFullChunks();
+        } catch (Exception e) {
+            logger.warn("Write block {} to block store exception: ", blockNumber, e);
+        }
+    }
+
+    private void writeIndex(long blockNumber, long offset) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        entry.putLong(blockNumber);
+        entry.putLong(offset);
+        entry.flip();
+        writeFully(indexChannel, entry, indexEnd);
+        indexEnd += INDEX_ENTRY_SIZE;
+    }
+
+    // Called when appended, maps a chunk only once it is full
+    private synchronized void mapFullChunks() throws IOException {
+        while ((chunks.size() + 1) * chunkSize <= dataEnd) {
+            chunks.add(
+                    dataChannel.map(
+                            FileChannel.MapMode.READ_ONLY, chunks.size() * chunkSize, chunkSize));
+        }
+    }
+
+    public Set<Long> getBlockNumbers() {
+        return offsets.keySet();
+    }
+
+    public boolean contains(long blockNumber) {
+        return offsets.containsKey(blockNumber);
+    }
+
+    public long size() {
+        return offsets.size();
+    }
+
+    int getMappedChunks() {
+        return chunks.size();
+    }
+
+    public synchronized void close() {
+        try {
+            if (dataChannel != null) {
+                dataChannel.force(true);
+                indexChannel.force(true);
+                dataChannel.close();
+                indexChannel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Close block store exception: ", e);
+        }
+        dataChannel = null;
+        indexChannel = null;
+        chunks.clear();
+    }
+
+    private static int crc32(byte[] bytes) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        return (int) crc32.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of block store at " + position);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
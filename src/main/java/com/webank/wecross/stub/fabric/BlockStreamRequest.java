@@ -0,0 +1,53 @@
+package com.webank.wecross.stub.fabric;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class BlockStreamRequest {
+    private static ObjectMapper objectMapper = new ObjectMapper();
+
+    private long startBlockNumber;
+    private long endBlockNumber;
+
+    public BlockStreamRequest() {}
+
+    public BlockStreamRequest(long startBlockNumber, long endBlockNumber) {
+        this.startBlockNumber = startBlockNumber;
+        this.endBlockNumber = endBlockNumber;
+    }
+
+    @JsonIgnore
+    public byte[] toBytes() throws Exception {
+        return objectMapper.writeValueAsBytes(this);
+    }
+
+    public static BlockStreamRequest parseFrom(byte[] bytes) throws Exception {
+        return objectMapper.readValue(bytes, BlockStreamRequest.class);
+    }
+
+    public long getStartBlockNumber() {
+        return startBlockNumber;
+    }
+
+    public void setStartBlockNumber(long startBlockNumber) {
+        this.startBlockNumber = startBlockNumber;
+    }
+
+    public long getEndBlockNumber() {
+        return endBlockNumber;
+    }
+
+    public void setEndBlockNumber(long endBlockNumber) {
+        this.endBlockNumber = endBlockNumber;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockStreamRequest{"
+                + "startBlockNumber="
+                + startBlockNumber
+                + ", endBlockNumber="
+                + endBlockNumber
+                + '}';
+    }
+}
@@ -0,0 +1,97 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.protobuf.ByteString;
+import java.util.List;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.peer.FabricTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// The envelopes of a block decoded once, on first use, and shared by every consumer of the block
+// event: the transaction index, the commit event dispatcher and the chaincode resource manager.
+// Payloads are slices of the block bytes rather than copies
+public class BlockTransactions {
+    private static Logger logger = LoggerFactory.getLogger(BlockTransactions.class);
+
+    private Common.Block block;
+    private ByteString txFilter;
+    private Common.Payload[] payloads; // null if not decoded yet
+    private Common.ChannelHeader[] channelHeaders; // null elements for unparsable envelopes
+
+    public BlockTransactions(Common.Block block) {
+        this.block = block;
+        this.txFilter =
+                block.getMetadata()
+                        .getMetadata(Common.BlockMetadataIndex.TRANSACTIONS_FILTER_VALUE);
+    }
+
+    public static BlockTransactions parse(byte[] blockBytes) throws Exception {
+        return new BlockTransactions(ProtoBytes.parse(Common.Block.parser(), blockBytes));
+    }
+
+    public Common.Block getBlock() {
+        return block;
+    }
+
+    public long getBlockNumber() {
+        return block.getHeader().getNumber();
+    }
+
+    // Envelopes in the block, indexes are the same as in TRANSACTIONS_FILTER
+    public int size() {
+        return block.getData().getDataCount();
+    }
+
+    // null if the envelope cannot be parsed, empty for config transactions
+    public String getTxID(int index) {
+        Common.ChannelHeader channelHeader = getChannelHeader(index);
+        return channelHeader == null ? null : channelHeader.getTxId();
+    }
+
+    public Common.ChannelHeader getChannelHeader(int index) {
+        decode();
+        return channelHeaders[index];
+    }
+
+    public Common.Payload getPayload(int index) {
+        decode();
+        return payloads[index];
+    }
+
+    // TxValidationCode of the transaction, NOT_VALIDATED if the filter does not cover it
+    public int getValidationCode(int index) {
+        return index < txFilter.size()
+                ? txFilter.byteAt(index) & 0xff
+                : FabricTransaction.TxValidationCode.NOT_VALIDATED_VALUE;
+    }
+
+    public boolean isValid(int index) {
+        return getValidationCode(index) == FabricTransaction.TxValidationCode.VALID_VALUE;
+    }
+
+    private synchronized void decode() {
+        if (payloads != null) {
+            return;
+        }
+
+        List<ByteString> envelopes = block.getData().getDataList();
+        Common.Payload[] decodedPayloads = new Common.Payload[envelopes.size()];
+        Common.ChannelHeader[] decodedHeaders = new Common.ChannelHeader[envelopes.size()];
+        for (int i = 0; i < envelopes.size(); i++) {
+            try {
+                Common.Envelope envelope =
+                        ProtoBytes.parse(Common.Envelope.parser(), envelopes.get(i));
+                decodedPayloads[i] =
+                        ProtoBytes.parse(Common.Payload.parser(), envelope.getPayload());
+                decodedHeaders[i] =
+                        ProtoBytes.parse(
+                                Common.ChannelHeader.parser(),
+                                decodedPayloads[i].getHeader().getChannelHeader());
+            } catch (Exception e) {
+                logger.debug("Parse envelope {} of block {} exception: ", i, getBlockNumber(), e);
+            }
+        }
+        channelHeaders = decodedHeaders;
+        payloads = decodedPayloads;
+    }
+}
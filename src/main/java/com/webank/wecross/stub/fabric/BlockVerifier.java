@@ -0,0 +1,380 @@
+package com.webank.wecross.stub.fabric;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.ByteString;
+import com.webank.wecross.exception.WeCrossException;
+import com.webank.wecross.stub.ObjectMapperFactory;
+import com.webank.wecross.utils.FabricUtils;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import org.apache.commons.codec.binary.Hex;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.msp.Identities;
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
+import org.hyperledger.fabric.protos.peer.FabricTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Verifier of the FABRIC_VERIFIER property, built once and shared by all blocks of a connection.
+// CA certificates are parsed when built, certificates already checked against them are cached
+public class BlockVerifier {
+    private static final Logger logger = LoggerFactory.getLogger(BlockVerifier.class);
+
+    private static final Pattern CERT_PATTERN =
+            Pattern.compile(FabricUtils.CERT_PATTERN, Pattern.MULTILINE);
+    private static final int VALIDATED_CERT_CACHE_SIZE = 4096;
+    private static final int PARALLEL_THRESHOLD = 16; // signatures, fewer are checked in place
+
+    // shared by all verifiers, bounded by the number of cores
+    private static final ForkJoinPool verifyPool =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final Map<String, X509Certificate> ordererCAs; // MSP -> CA certificate
+    private final Map<String, X509Certificate> endorserCAs;
+    private final boolean parallel;
+
+    // serialized identity -> its certificate, which has been verified by the MSP CA
+    private final Cache<ByteString, X509Certificate> validatedOrderers =
+            CacheBuilder.newBuilder().maximumSize(VALIDATED_CERT_CACHE_SIZE).build();
+    private final Cache<ByteString, X509Certificate> validatedEndorsers =
+            CacheBuilder.newBuilder().maximumSize(VALIDATED_CERT_CACHE_SIZE).build();
+
+    private BlockVerifier(
+            Map<String, X509Certificate> ordererCAs,
+            Map<String, X509Certificate> endorserCAs,
+            boolean parallel) {
+        this.ordererCAs = ordererCAs;
+        this.endorserCAs = endorserCAs;
+        this.parallel = parallel;
+    }
+
+    public static BlockVerifier build(String blockVerifierString) throws WeCrossException {
+        return build(blockVerifierString, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static BlockVerifier build(String blockVerifierString, boolean parallel)
+            throws WeCrossException {
+        if (blockVerifierString == null) {
+            throw new WeCrossException(
+                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG, "Fabric Block Verifier is null");
+        }
+
+        Map<String, Object> fabricVerifier;
+        try {
+            ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+            fabricVerifier =
+                    objectMapper.readValue(
+                            blockVerifierString, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            throw new WeCrossException(
+                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
+                    "Parse Json to Fabric Block Verifier Error, " + e.getMessage(),
+                    e.getCause());
+        }
+
+        Object chainType = fabricVerifier.get("chainType");
+        if (!"Fabric1.4".equals(chainType)) {
+            throw new WeCrossException(
+                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
+                    "Fabric Block Verifier chainType error, chainType in verifier is " + chainType);
+        }
+
+        Map<String, String> ordererCAMap;
+        Map<String, String> endorserCAMap;
+        try {
+            ordererCAMap = (Map<String, String>) fabricVerifier.get("ordererCA");
+            endorserCAMap = (Map<String, String>) fabricVerifier.get("endorserCA");
+        } catch (ClassCastException e) {
+            throw new WeCrossException(
+                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
+                    "Illegal Fabric Block Verifier CA config, " + e.getMessage());
+        }
+        if (ordererCAMap == null
+                || endorserCAMap == null
+                || ordererCAMap.isEmpty()
+                || endorserCAMap.isEmpty()) {
+            throw new WeCrossException(
+                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
+                    "Did not full config Fabric Block Verifier, ordererCA and endorserCA are required");
+        }
+
+        // CAMap: <MSP, cert path> => <MSP, cert content> => <MSP, certificate>
+        return new BlockVerifier(
+                parseCAs(FabricUtils.readFileInMap(ordererCAMap)),
+                parseCAs(FabricUtils.readFileInMap(endorserCAMap)),
+                parallel);
+    }
+
+    private static Map<String, X509Certificate> parseCAs(Map<String, String> caMap)
+            throws WeCrossException {
+        Map<String, X509Certificate> cas = new HashMap<>();
+        try {
+            CertificateFactory cf = CertificateFactory.getInstance("X.509");
+            for (Map.Entry<String, String> entry : caMap.entrySet()) {
+                if (!CERT_PATTERN.matcher(entry.getValue()).matches()) {
+                    throw new WeCrossException(
+                            WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
+                            "Fabric cert pattern matches error, please check. MSP: "
+                                    + entry.getKey());
+                }
+                cas.put(
+                        entry.getKey(),
+                        (X509Certificate)
+                                cf.generateCertificate(
+                                        new ByteArrayInputStream(entry.getValue().getBytes())));
+            }
+        } catch (GeneralSecurityException e) {
+            throw new WeCrossException(
+                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
+                    "Parse Fabric CA cert error, " + e.getMessage());
+        }
+        return Collections.unmodifiableMap(cas);
+    }
+
+    public boolean verify(FabricBlock fabricBlock) {
+        Common.Block block = fabricBlock.getBlock();
+        List<SignatureCheck> checks = new ArrayList<>();
+        try {
+            addBlockCreatorChecks(block, checks);
+            addTransactionChecks(block, checks);
+        } catch (Exception e) {
+            logger.warn("Parse block {} to verify exception: ", block.getHeader().getNumber(), e);
+            return false;
+        }
+
+        if (!runChecks(checks)) {
+            logger.warn("Verify block {} failed.", block.getHeader().getNumber());
+            return false;
+        }
+        return true;
+    }
+
+    // Checks are independent, large blocks are checked on the pool and stop at the first failure
+    private boolean runChecks(List<SignatureCheck> checks) {
+        if (!parallel || checks.size() < PARALLEL_THRESHOLD) {
+            for (SignatureCheck check : checks) {
+                if (!check.check()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        try {
+            return verifyPool
+                    .submit(() -> checks.parallelStream().allMatch(SignatureCheck::check))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            logger.warn("Verify signatures exception: ", e.getCause());
+            return false;
+        }
+    }
+
+    private void addBlockCreatorChecks(Common.Block block, List<SignatureCheck> checks)
+            throws Exception {
+        Common.Metadata metadata =
+                Common.Metadata.parseFrom(
+                        block.getMetadata()
+                                .getMetadata(Common.BlockMetadataIndex.SIGNATURES_VALUE));
+        ByteString blockHeaderBytes = ByteString.copyFrom(FabricBlock.calculateBlockHeader(block));
+
+        for (Common.MetadataSignature metadataSignature : metadata.getSignaturesList()) {
+            Common.SignatureHeader header =
+                    Common.SignatureHeader.parseFrom(metadataSignature.getSignatureHeader());
+            ByteString plainText =
+                    metadata.getValue()
+                            .concat(metadataSignature.getSignatureHeader())
+                            .concat(blockHeaderBytes);
+            checks.add(
+                    new SignatureCheck(
+                            "creator of block " + block.getHeader().getNumber(),
+                            header.getCreator(),
+                            ordererCAs,
+                            validatedOrderers,
+                            metadataSignature.getSignature(),
+                            plainText));
+        }
+    }
+
+    // Endorsements of every valid transaction
+    private void addTransactionChecks(Common.Block block, List<SignatureCheck> checks)
+            throws Exception {
+        byte[] txFilter =
+                block.getMetadata()
+                        .getMetadata(Common.BlockMetadataIndex.TRANSACTIONS_FILTER_VALUE)
+                        .toByteArray();
+
+        if (block.getData().getDataCount() != txFilter.length) {
+            throw new Exception(
+                    "Illegal block format. block data(tx) number: "
+                            + block.getData().getDataCount()
+                            + " tx filter size: "
+                            + txFilter.length);
+        }
+
+        for (int i = 0; i < block.getData().getDataCount(); i++) {
+            if (txFilter[i] != FabricTransaction.TxValidationCode.VALID_VALUE) {
+                // jump illegal tx
+                continue;
+            }
+
+            Common.Envelope envelope = Common.Envelope.parseFrom(block.getData().getData(i));
+            Common.Payload payload = Common.Payload.parseFrom(envelope.getPayload());
+            Common.ChannelHeader channelHeader =
+                    Common.ChannelHeader.parseFrom(payload.getHeader().getChannelHeader());
+            String txID = channelHeader.getTxId();
+            if (txID == null || txID.length() == 0) {
+                // ignore system tx
+                continue;
+            }
+
+            FabricTransaction.Transaction transaction =
+                    FabricTransaction.Transaction.parseFrom(payload.getData());
+            for (FabricTransaction.TransactionAction action : transaction.getActionsList()) {
+                FabricTransaction.ChaincodeEndorsedAction chaincodeEndorsedAction =
+                        FabricTransaction.ChaincodeActionPayload.parseFrom(action.getPayload())
+                                .getAction();
+
+                for (FabricProposalResponse.Endorsement endorsement :
+                        chaincodeEndorsedAction.getEndorsementsList()) {
+                    checks.add(
+                            new SignatureCheck(
+                                    "endorser of tx " + txID,
+                                    endorsement.getEndorser(),
+                                    endorserCAs,
+                                    validatedEndorsers,
+                                    endorsement.getSignature(),
+                                    chaincodeEndorsedAction
+                                            .getProposalResponsePayload()
+                                            .concat(endorsement.getEndorser())));
+                }
+            }
+        }
+    }
+
+    // A signature and the identity which made it
+    private class SignatureCheck {
+        private String signer;
+        private ByteString identityBytes;
+        private Map<String, X509Certificate> cas;
+        private Cache<ByteString, X509Certificate> validated;
+        private ByteString signature;
+        private ByteString plainText;
+
+        SignatureCheck(
+                String signer,
+                ByteString identityBytes,
+                Map<String, X509Certificate> cas,
+                Cache<ByteString, X509Certificate> validated,
+                ByteString signature,
+                ByteString plainText) {
+            this.signer = signer;
+            this.identityBytes = identityBytes;
+            this.cas = cas;
+            this.validated = validated;
+            this.signature = signature;
+            this.plainText = plainText;
+        }
+
+        boolean check() {
+            try {
+                X509Certificate certificate = getValidatedCert(identityBytes, cas, validated);
+                if (certificate == null) {
+                    logger.error("Cert of {} is not trusted", signer);
+                    return false;
+                }
+                if (!verifySignature(certificate, signature.toByteArray(), plainText)) {
+                    logger.error("Signature of {} is wrong", signer);
+                    return false;
+                }
+                return true;
+            } catch (Exception e) {
+                logger.warn("Check signature of {} exception: ", signer, e);
+                return false;
+            }
+        }
+    }
+
+    // Returns the certificate of identity if it is issued by the CA of its MSP, otherwise null
+    private X509Certificate getValidatedCert(
+            ByteString identityBytes,
+            Map<String, X509Certificate> cas,
+            Cache<ByteString, X509Certificate> validated)
+            throws Exception {
+        X509Certificate certificate = validated.getIfPresent(identityBytes);
+        if (certificate != null) {
+            return certificate;
+        }
+
+        Identities.SerializedIdentity identity =
+                Identities.SerializedIdentity.parseFrom(identityBytes);
+        X509Certificate caCertificate = cas.get(identity.getMspid());
+        if (caCertificate == null) {
+            logger.error("No CA of {} in verifier, CAs: {}", identity.getMspid(), cas.keySet());
+            return null;
+        }
+
+        try {
+            CertificateFactory cf = CertificateFactory.getInstance("X.509");
+            certificate =
+                    (X509Certificate)
+                            cf.generateCertificate(
+                                    new ByteArrayInputStream(identity.getIdBytes().toByteArray()));
+            certificate.verify(caCertificate.getPublicKey());
+        } catch (GeneralSecurityException e) {
+            logger.error(
+                    "Check Cert fail, mspId: {}, cert: {}",
+                    identity.getMspid(),
+                    identity.getIdBytes().toStringUtf8());
+            return null;
+        }
+
+        validated.put(identityBytes, certificate);
+        return certificate;
+    }
+
+    private static boolean verifySignature(
+            X509Certificate certificate, byte[] signBytes, ByteString data) {
+        try {
+            Signature signer = Signature.getInstance(certificate.getSigAlgName());
+            signer.initVerify(certificate);
+            // plain text is a concatenation, feed its pieces instead of flattening it
+            for (ByteBuffer piece : ProtoBytes.readOnlyViews(data)) {
+                signer.update(piece);
+            }
+            boolean ok = signer.verify(signBytes);
+
+            if (logger.isTraceEnabled()) {
+                logger.trace(
+                        "verifySignature: {}, subject: {}, signBytes:{}, data: {} ",
+                        ok,
+                        certificate.getSubjectX500Principal(),
+                        Hex.encodeHexString(signBytes),
+                        Hex.encodeHexString(data.toByteArray()));
+            }
+            return ok;
+        } catch (Exception e) {
+            logger.error("verifySignature in block exception: ", e);
+            return false;
+        }
+    }
+}
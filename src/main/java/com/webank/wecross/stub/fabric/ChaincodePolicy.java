@@ -0,0 +1,106 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
+import java.util.ArrayList;
+import java.util.List;
+import org.hyperledger.fabric.protos.common.MspPrincipal;
+import org.hyperledger.fabric.protos.common.Policies;
+
+// Signature endorsement policy of a chaincode, evaluated against the MSP IDs of endorsers
+public class ChaincodePolicy {
+    // ChaincodeData (ccprovider.proto) returned by LSCC getccdata, field 5 is the policy
+    private static final int CHAINCODE_DATA_POLICY_FIELD = 5;
+
+    private Policies.SignaturePolicyEnvelope envelope;
+    private List<MspPrincipal.MSPRole> principals = new ArrayList<>();
+    private boolean supported = true;
+
+    public ChaincodePolicy(Policies.SignaturePolicyEnvelope envelope) throws Exception {
+        this.envelope = envelope;
+        for (MspPrincipal.MSPPrincipal principal : envelope.getIdentitiesList()) {
+            MspPrincipal.MSPRole role = null;
+            if (principal.getPrincipalClassification()
+                    == MspPrincipal.MSPPrincipal.Classification.ROLE) {
+                role = MspPrincipal.MSPRole.parseFrom(principal.getPrincipal());
+            }
+
+            // Only member/peer roles can be decided by the MSP ID of a peer
+            if (role == null
+                    || (role.getRole() != MspPrincipal.MSPRole.MSPRoleType.MEMBER
+                            && role.getRole() != MspPrincipal.MSPRole.MSPRoleType.PEER)) {
+                supported = false;
+            }
+            principals.add(role);
+        }
+    }
+
+    public static ChaincodePolicy parseFrom(byte[] signaturePolicyEnvelopeBytes) throws Exception {
+        return new ChaincodePolicy(
+                Policies.SignaturePolicyEnvelope.parseFrom(signaturePolicyEnvelopeBytes));
+    }
+
+    public static ChaincodePolicy parseFromChaincodeData(byte[] chaincodeDataBytes)
+            throws Exception {
+        UnknownFieldSet.Field policyField =
+                UnknownFieldSet.parseFrom(chaincodeDataBytes).getField(CHAINCODE_DATA_POLICY_FIELD);
+        List<ByteString> policyBytes = policyField.getLengthDelimitedList();
+        if (policyBytes.isEmpty()) {
+            throw new Exception("Policy not found in chaincode data");
+        }
+        return parseFrom(policyBytes.get(0).toByteArray());
+    }
+
+    // Whether every principal of the policy can be evaluated with MSP IDs only
+    public boolean isSupported() {
+        return supported;
+    }
+
+    // Each MSP ID stands for one endorser and can be used by only one principal, as in Fabric
+    public boolean isSatisfiedBy(List<String> mspIds) {
+        if (!supported) {
+            return false;
+        }
+        return evaluate(envelope.getRule(), mspIds, new boolean[mspIds.size()]);
+    }
+
+    private boolean evaluate(Policies.SignaturePolicy rule, List<String> mspIds, boolean[] used) {
+        switch (rule.getTypeCase()) {
+            case SIGNED_BY:
+                {
+                    int index = rule.getSignedBy();
+                    if (index < 0 || index >= principals.size()) {
+                        return false;
+                    }
+                    String mspId = principals.get(index).getMspIdentifier();
+                    for (int i = 0; i < mspIds.size(); i++) {
+                        if (!used[i] && mspId.equals(mspIds.get(i))) {
+                            used[i] = true;
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            case N_OUT_OF:
+                {
+                    int verified = 0;
+                    boolean[] subUsed = new boolean[used.length];
+                    for (Policies.SignaturePolicy subRule : rule.getNOutOf().getRulesList()) {
+                        System.arraycopy(used, 0, subUsed, 0, used.length);
+                        if (evaluate(subRule, mspIds, subUsed)) {
+                            verified++;
+                            System.arraycopy(subUsed, 0, used, 0, used.length);
+                        }
+                    }
+                    return verified >= rule.getNOutOf().getN();
+                }
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChaincodePolicy{" + "rule=" + envelope.getRule() + ", supported=" + supported + '}';
+    }
+}
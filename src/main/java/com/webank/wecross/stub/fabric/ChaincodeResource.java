@@ -7,6 +7,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.function.Predicate;
 import org.hyperledger.fabric.sdk.Peer;
 
 public class ChaincodeResource {
@@ -17,6 +18,8 @@ public class ChaincodeResource {
     private long proposalWaitTime;
     private Collection<Peer> endorsers;
     private String channelName;
+    private ChaincodePolicy policy;
+    private EndorserSelector endorserSelector;
 
     public ChaincodeResource(
             String name, String chainCodeName, String version, String channelName) {
@@ -55,6 +58,23 @@ public class ChaincodeResource {
         endorsers.add(endorser);
     }
 
+    // Set after all endorsers have been added, the selector is built on the current endorsers
+    public void setPolicy(ChaincodePolicy policy) {
+        this.policy = policy;
+        this.endorserSelector = policy == null ? null : new EndorserSelector(policy, endorsers);
+    }
+
+    public ChaincodePolicy getPolicy() {
+        return policy;
+    }
+
+    // A minimal set of available peers satisfying the policy, or all endorsers if there is none
+    public Collection<Peer> selectEndorsers(Predicate<Peer> available) {
+        Collection<Peer> selected =
+                endorserSelector == null ? null : endorserSelector.select(available);
+        return selected == null ? endorsers : selected;
+    }
+
     public String getName() {
         return name;
     }
@@ -100,6 +120,8 @@ public class ChaincodeResource {
                 + ", channelName='"
                 + channelName
                 + '\''
+                + ", policy="
+                + policy
                 + '}';
     }
 }
@@ -1,8 +1,11 @@
 package com.webank.wecross.stub.fabric;
 
+import com.google.protobuf.ByteString;
 import com.webank.wecross.common.FabricType;
 import com.webank.wecross.stub.ResourceInfo;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -10,6 +13,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.peer.Chaincode;
+import org.hyperledger.fabric.protos.peer.FabricProposal;
+import org.hyperledger.fabric.protos.peer.FabricTransaction;
 import org.hyperledger.fabric.protos.peer.Query;
 import org.hyperledger.fabric.sdk.ChaincodeID;
 import org.hyperledger.fabric.sdk.ChaincodeResponse;
@@ -17,6 +32,7 @@ import org.hyperledger.fabric.sdk.Channel;
 import org.hyperledger.fabric.sdk.HFClient;
 import org.hyperledger.fabric.sdk.Peer;
 import org.hyperledger.fabric.sdk.ProposalResponse;
+import org.hyperledger.fabric.sdk.QueryByChaincodeRequest;
 import org.hyperledger.fabric.sdk.TransactionProposalRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,29 +40,81 @@ import org.slf4j.LoggerFactory;
 public class ChaincodeResourceManager {
     private static Logger logger = LoggerFactory.getLogger(ChaincodeResourceManager.class);
 
-    private static final long updateChaincodeMapExpires = 10000; // ms
+    private static final long updateChaincodeMapExpires = 10000; // ms, without events
+    private static final long defaultProbeTimeout = 5000; // ms
+    private static final int PROBE_THREADS = 16;
+    private static final long PROBE_RETRY_DELAY = 1000; // ms, doubled up to updateInterval
+    private static final String LSCC = "lscc";
 
     public interface EventHandler {
         void onChange(List<ResourceInfo> resourceInfos);
     }
 
+    private enum ProbeResult {
+        ACTIVE,
+        INACTIVE,
+        UNANSWERED // timed out or no answer from the peer, the probe is retried
+    }
+
     private HFClient hfClient;
     private Channel channel;
     private Map<String, Peer> peersMap;
     private String proxyChaincodeName;
-    private Map<String, ChaincodeResource> chaincodeMap = new LinkedHashMap<>();
-    private Timer mainloopTimer;
+    // immutable snapshot, replaced as a whole by the updater
+    private AtomicReference<Map<String, ChaincodeResource>> chaincodeMap =
+            new AtomicReference<>(Collections.emptyMap());
+    private Map<String, ChaincodePolicy> policyCache = new HashMap<>(); // name:version -> policy
+    private volatile Timer mainloopTimer;
     private EventHandler eventHandler;
+    private boolean eventDriven;
+    private long updateInterval; // ms
+    private long probeTimeout; // ms, for each peer
+    private ExecutorService probeExecutor;
+    private Map<String, String> deployedChaincodes = new LinkedHashMap<>(); // name -> version
+    // chaincodes with unanswered probes, e.g. a container still starting, retried with backoff
+    // instead of waiting for the next poll. Guarded by this
+    private Map<String, String> unansweredChaincodes = new LinkedHashMap<>(); // name -> version
+    private long probeRetryDelay = PROBE_RETRY_DELAY;
+    private boolean probeRetryScheduled = false;
 
     public ChaincodeResourceManager(
             HFClient hfClient,
             Channel channel,
             Map<String, Peer> peersMap,
             String proxyChaincodeName) {
+        this(
+                hfClient,
+                channel,
+                peersMap,
+                proxyChaincodeName,
+                false,
+                updateChaincodeMapExpires,
+                defaultProbeTimeout);
+    }
+
+    public ChaincodeResourceManager(
+            HFClient hfClient,
+            Channel channel,
+            Map<String, Peer> peersMap,
+            String proxyChaincodeName,
+            boolean eventDriven,
+            long updateInterval,
+            long probeTimeout) {
         this.hfClient = hfClient;
         this.channel = channel;
         this.peersMap = peersMap;
         this.proxyChaincodeName = proxyChaincodeName;
+        this.eventDriven = eventDriven;
+        this.updateInterval = updateInterval;
+        this.probeTimeout = probeTimeout;
+        this.probeExecutor =
+                Executors.newFixedThreadPool(
+                        PROBE_THREADS,
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "ChaincodeProbe");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
     }
 
     public void start() {
@@ -54,6 +122,7 @@ public class ChaincodeResourceManager {
 
         updateChaincodeMap(); // update once at start
 
+        // with events, the poll is only a safety net for missed blocks
         mainloopTimer.schedule(
                 new TimerTask() {
                     @Override
@@ -61,8 +130,119 @@ public class ChaincodeResourceManager {
                         updateChaincodeMap();
                     }
                 },
-                updateChaincodeMapExpires,
-                updateChaincodeMapExpires);
+                updateInterval,
+                updateInterval);
+    }
+
+    // Stop updating, probes still running are interrupted
+    public void stop() {
+        Timer timer = mainloopTimer;
+        mainloopTimer = null;
+        if (timer != null) {
+            timer.cancel();
+        }
+        probeExecutor.shutdownNow();
+    }
+
+    // Called with every new block, refreshes the chaincodes deployed or upgraded in it
+    public void onBlock(BlockTransactions transactions) {
+        Timer timer = mainloopTimer;
+        if (!eventDriven || timer == null) {
+            return;
+        }
+
+        Map<String, String> deployed = getDeployedChaincodes(transactions);
+        if (deployed.isEmpty()) {
+            return;
+        }
+
+        logger.info("Chaincodes deployed in block {}: {}", transactions.getBlockNumber(), deployed);
+        synchronized (deployedChaincodes) {
+            deployedChaincodes.putAll(deployed);
+        }
+
+        // query peers on the timer thread, not on the block listener
+        timer.schedule(
+                new TimerTask() {
+                    @Override
+                    public void run() {
+                        Map<String, String> chaincodes;
+                        synchronized (deployedChaincodes) {
+                            chaincodes = new LinkedHashMap<>(deployedChaincodes);
+                            deployedChaincodes.clear();
+                        }
+                        if (!chaincodes.isEmpty()) {
+                            updateChaincodes(chaincodes);
+                        }
+                    }
+                },
+                0);
+    }
+
+    // name -> version of the valid lscc deploy / upgrade transactions in block
+    static Map<String, String> getDeployedChaincodes(Common.Block block) {
+        return getDeployedChaincodes(new BlockTransactions(block));
+    }
+
+    static Map<String, String> getDeployedChaincodes(BlockTransactions transactions) {
+        Map<String, String> deployed = new LinkedHashMap<>();
+        for (int index = 0; index < transactions.size(); index++) {
+            Common.ChannelHeader channelHeader = transactions.getChannelHeader(index);
+            if (!transactions.isValid(index)
+                    || channelHeader == null
+                    || channelHeader.getType() != Common.HeaderType.ENDORSER_TRANSACTION_VALUE) {
+                continue;
+            }
+
+            try {
+                FabricTransaction.Transaction transaction =
+                        ProtoBytes.parse(
+                                FabricTransaction.Transaction.parser(),
+                                transactions.getPayload(index).getData());
+                for (FabricTransaction.TransactionAction action : transaction.getActionsList()) {
+                    Chaincode.ChaincodeDeploymentSpec deploymentSpec = getDeploymentSpec(action);
+                    if (deploymentSpec != null) {
+                        Chaincode.ChaincodeID chaincodeID =
+                                deploymentSpec.getChaincodeSpec().getChaincodeId();
+                        deployed.put(chaincodeID.getName(), chaincodeID.getVersion());
+                    }
+                }
+            } catch (Exception e) {
+                logger.debug("Parse transaction {} of block exception: ", index, e);
+            }
+        }
+        return deployed;
+    }
+
+    // lscc args: deploy|upgrade, channel, ChaincodeDeploymentSpec, policy, escc, vscc, ...
+    private static Chaincode.ChaincodeDeploymentSpec getDeploymentSpec(
+            FabricTransaction.TransactionAction action) throws Exception {
+        FabricTransaction.ChaincodeActionPayload actionPayload =
+                ProtoBytes.parse(
+                        FabricTransaction.ChaincodeActionPayload.parser(), action.getPayload());
+        FabricProposal.ChaincodeProposalPayload proposalPayload =
+                ProtoBytes.parse(
+                        FabricProposal.ChaincodeProposalPayload.parser(),
+                        actionPayload.getChaincodeProposalPayload());
+        Chaincode.ChaincodeSpec chaincodeSpec =
+                ProtoBytes.parse(
+                                Chaincode.ChaincodeInvocationSpec.parser(),
+                                proposalPayload.getInput())
+                        .getChaincodeSpec();
+
+        if (!LSCC.equals(chaincodeSpec.getChaincodeId().getName())) {
+            return null;
+        }
+
+        List<ByteString> args = chaincodeSpec.getInput().getArgsList();
+        if (args.size() < 3) {
+            return null;
+        }
+        String function = args.get(0).toStringUtf8();
+        if (!function.equals("deploy") && !function.equals("upgrade")) {
+            return null;
+        }
+        return ProtoBytes.parse(Chaincode.ChaincodeDeploymentSpec.parser(), args.get(2));
     }
 
     public void setEventHandler(EventHandler eventHandler) {
@@ -70,12 +250,12 @@ public class ChaincodeResourceManager {
     }
 
     public ChaincodeResource getChaincodeResource(String name) {
-        return chaincodeMap.get(name);
+        return chaincodeMap.get().get(name);
     }
 
     public List<ResourceInfo> getResourceInfoList(boolean ignoreProxyChaincode) {
         List<ResourceInfo> resourceInfoList = new LinkedList<>();
-        for (ChaincodeResource chaincodeResource : chaincodeMap.values()) {
+        for (ChaincodeResource chaincodeResource : chaincodeMap.get().values()) {
             ResourceInfo resourceInfo = chaincodeResource.getResourceInfo();
 
             if (ignoreProxyChaincode && resourceInfo.getName().equals(proxyChaincodeName)) {
@@ -90,38 +270,145 @@ public class ChaincodeResourceManager {
         return resourceInfoList;
     }
 
+    // Read only snapshot
     public Map<String, ChaincodeResource> getChaincodeMap() {
-        return chaincodeMap;
+        return chaincodeMap.get();
     }
 
-    private Map<String, ChaincodeResource> queryChaincodeMap() {
-        Map<String, String> chaincode2Version = queryActiveChaincode();
-        Map<String, ChaincodeResource> currentChaincodeMap = new LinkedHashMap<>();
+    // Probes every chaincode on every peer in parallel, chaincodes active in no peer are left out.
+    // Chaincodes which some peer has not answered for are put into unanswered
+    private Map<String, ChaincodeResource> queryChaincodeResources(
+            Map<String, String> chaincode2Version,
+            Map<String, ChaincodeResource> previous,
+            Map<String, String> unanswered) {
+        Map<String, Map<Peer, Future<ProbeResult>>> probes = new LinkedHashMap<>();
         for (String chaincodeName : chaincode2Version.keySet()) {
+            Map<Peer, Future<ProbeResult>> peerProbes = new LinkedHashMap<>();
             for (Peer peer : peersMap.values()) {
-                if (isChaincodeActiveInPeer(peer, chaincodeName)) {
-                    if (currentChaincodeMap.get(chaincodeName) == null) {
-                        currentChaincodeMap.put(
-                                chaincodeName,
-                                new ChaincodeResource(
-                                        chaincodeName,
-                                        chaincodeName,
-                                        chaincode2Version.get(chaincodeName),
-                                        channel.getName()));
+                peerProbes.put(
+                        peer,
+                        probeExecutor.submit(() -> isChaincodeActiveInPeer(peer, chaincodeName)));
+            }
+            probes.put(chaincodeName, peerProbes);
+        }
+
+        // every probe has its own timeout, the deadline only guards against a stuck probe
+        long rounds = (chaincode2Version.size() * peersMap.size()) / PROBE_THREADS + 1;
+        long deadline = System.currentTimeMillis() + (rounds + 1) * probeTimeout;
+
+        Map<String, ChaincodeResource> resources = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Peer, Future<ProbeResult>>> entry : probes.entrySet()) {
+            String chaincodeName = entry.getKey();
+            ChaincodeResource chaincodeResource =
+                    new ChaincodeResource(
+                            chaincodeName,
+                            chaincodeName,
+                            chaincode2Version.get(chaincodeName),
+                            channel.getName());
+
+            for (Map.Entry<Peer, Future<ProbeResult>> probe : entry.getValue().entrySet()) {
+                Peer peer = probe.getKey();
+                ProbeResult result = waitProbe(probe.getValue(), deadline, ProbeResult.UNANSWERED);
+                boolean active = result == ProbeResult.ACTIVE;
+                if (result == ProbeResult.UNANSWERED) {
+                    // no answer, keep what the peer had until the retry
+                    unanswered.put(chaincodeName, chaincode2Version.get(chaincodeName));
+                    ChaincodeResource old = previous.get(chaincodeName);
+                    active = old != null && old.getEndorsers().contains(peer);
+                    logger.warn(
+                            "Probe chaincode:{} on peer:{} unanswered, keep active: {}",
+                            chaincodeName,
+                            peer,
+                            active);
+                }
+                if (active) {
+                    chaincodeResource.addEndorser(peer);
+                }
+            }
+
+            if (!chaincodeResource.getEndorsers().isEmpty()) {
+                chaincodeResource.setPolicy(getChaincodePolicy(chaincodeResource));
+                resources.put(chaincodeName, chaincodeResource);
+            }
+        }
+        return resources;
+    }
+
+    // unanswered if the probe has not finished before deadline
+    private static <T> T waitProbe(Future<T> future, long deadline, T unanswered) {
+        try {
+            long timeout = Math.max(deadline - System.currentTimeMillis(), 0);
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            future.cancel(true);
+            return unanswered;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return unanswered;
+        } catch (ExecutionException e) {
+            logger.debug("Probe exception: ", e);
+            return unanswered;
+        }
+    }
+
+    // Policy only changes with the chaincode version, so it is queried once per version
+    private ChaincodePolicy getChaincodePolicy(ChaincodeResource chaincodeResource) {
+        String key = chaincodeResource.getChainCodeName() + ":" + chaincodeResource.getVersion();
+        ChaincodePolicy policy = policyCache.get(key);
+        if (policy == null) {
+            policy =
+                    queryChaincodePolicy(
+                            chaincodeResource.getChainCodeName(), chaincodeResource.getEndorsers());
+            if (policy != null) {
+                policyCache.put(key, policy);
+            }
+        }
+        return policy;
+    }
+
+    private ChaincodePolicy queryChaincodePolicy(String chaincodeName, Collection<Peer> peers) {
+        QueryByChaincodeRequest request = hfClient.newQueryProposalRequest();
+        request.setChaincodeID(ChaincodeID.newBuilder().setName("lscc").build());
+        request.setFcn("getccdata");
+        request.setArgs(channel.getName(), chaincodeName);
+        request.setProposalWaitTime(probeTimeout);
+
+        for (Peer peer : peers) {
+            try {
+                Collection<ProposalResponse> responses =
+                        channel.queryByChaincode(request, Collections.singleton(peer));
+                for (ProposalResponse response : responses) {
+                    if (response.getStatus().equals(ChaincodeResponse.Status.SUCCESS)) {
+                        ChaincodePolicy policy =
+                                ChaincodePolicy.parseFromChaincodeData(
+                                        response.getProposalResponse()
+                                                .getResponse()
+                                                .getPayload()
+                                                .toByteArray());
+                        logger.debug("Chaincode {} policy: {}", chaincodeName, policy);
+                        return policy;
                     }
-                    currentChaincodeMap.get(chaincodeName).addEndorser(peer);
                 }
+            } catch (Exception e) {
+                logger.debug(
+                        "Query policy of chaincode:{} from peer:{} exception:{}",
+                        chaincodeName,
+                        peer,
+                        e);
             }
         }
-        return currentChaincodeMap;
+
+        logger.warn("Could not get endorsement policy of chaincode:{}", chaincodeName);
+        return null;
     }
 
-    private boolean isChaincodeActiveInPeer(Peer peer, String chaincodeName) {
+    private ProbeResult isChaincodeActiveInPeer(Peer peer, String chaincodeName) {
         TransactionProposalRequest transactionProposalRequest =
                 hfClient.newTransactionProposalRequest();
         transactionProposalRequest.setFcn("wecross_test_chaincode_active_probe");
         transactionProposalRequest.setChaincodeID(
                 ChaincodeID.newBuilder().setName(chaincodeName).build());
+        transactionProposalRequest.setProposalWaitTime(probeTimeout);
 
         Collection<Peer> peers = new HashSet<>();
         peers.add(peer);
@@ -133,22 +420,40 @@ public class ChaincodeResourceManager {
             return isChaincodeActive(responses);
 
         } catch (Exception e) {
+            if (isTimeout(e)) {
+                return ProbeResult.UNANSWERED;
+            }
             logger.debug(
                     "isChaincodeActiveInPeer peer:{}, doesn't have chaincode:{} expcetion:{}",
                     peer,
                     chaincodeName,
                     e);
-            return false;
+            return ProbeResult.INACTIVE;
+        }
+    }
+
+    // The SDK wraps the TimeoutException of the proposal, whatever its message says
+    static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private boolean isChaincodeActive(Collection<ProposalResponse> responses) {
+    private ProbeResult isChaincodeActive(Collection<ProposalResponse> responses) {
         // cannot retrieve package for chaincode
         boolean isActive = true;
         for (ProposalResponse response : responses) {
 
             if (!response.getStatus().equals(ChaincodeResponse.Status.SUCCESS)) {
 
+                if (response.getProposalResponse() == null) {
+                    // failed without an answer from the peer, e.g. the proposal wait time expired
+                    return ProbeResult.UNANSWERED;
+                }
+
                 if (response.getMessage().contains("cannot retrieve package for chaincode")) {
                     // chaincode not exist (just for Fabric 1.4)
                     isActive &= false;
@@ -160,22 +465,34 @@ public class ChaincodeResourceManager {
                 }
             }
         }
-        return isActive;
+        return isActive ? ProbeResult.ACTIVE : ProbeResult.INACTIVE;
     }
 
+    // null if no peer has answered
     private Map<String, String> queryActiveChaincode() {
-        Map<String, String> name2Version = new LinkedHashMap<>();
+        Map<Peer, Future<List<Query.ChaincodeInfo>>> queries = new LinkedHashMap<>();
         for (Peer peer : peersMap.values()) {
-            try {
-                List<Query.ChaincodeInfo> chaincodeInfos =
-                        channel.queryInstantiatedChaincodes(peer);
-                chaincodeInfos.forEach(
-                        chaincodeInfo ->
-                                name2Version.put(
-                                        chaincodeInfo.getName(), chaincodeInfo.getVersion()));
-            } catch (Exception e) {
-                logger.warn("Could not get instantiated Chaincodes from:{} ", peer.toString());
+            queries.put(
+                    peer, probeExecutor.submit(() -> channel.queryInstantiatedChaincodes(peer)));
+        }
+
+        long deadline = System.currentTimeMillis() + probeTimeout;
+        Map<String, String> name2Version = new LinkedHashMap<>();
+        boolean answered = false;
+        for (Map.Entry<Peer, Future<List<Query.ChaincodeInfo>>> query : queries.entrySet()) {
+            List<Query.ChaincodeInfo> chaincodeInfos = waitProbe(query.getValue(), deadline, null);
+            if (chaincodeInfos == null) {
+                logger.warn("Could not get instantiated Chaincodes from:{} ", query.getKey());
+                continue;
             }
+
+            answered = true;
+            chaincodeInfos.forEach(
+                    chaincodeInfo ->
+                            name2Version.put(chaincodeInfo.getName(), chaincodeInfo.getVersion()));
+        }
+        if (!answered && !peersMap.isEmpty()) {
+            return null;
         }
         /*
                 for (Peer peer : peersMap.values()) {
@@ -194,24 +511,103 @@ public class ChaincodeResourceManager {
 
     public void dumpChaincodeMap() {
         String output = "Chaincode Resources: ";
-        for (Map.Entry<String, ChaincodeResource> entry : chaincodeMap.entrySet()) {
+        for (Map.Entry<String, ChaincodeResource> entry : chaincodeMap.get().entrySet()) {
             output += "Name:" + entry.getKey() + " Resource:" + entry.getValue().toString() + "\n";
         }
         logger.debug(output);
     }
 
+    // Updaters are serialized, readers only take the current snapshot and never wait
     public void updateChaincodeMap() {
         synchronized (this) {
-            Map<String, ChaincodeResource> oldMap = this.chaincodeMap;
-            this.chaincodeMap = queryChaincodeMap();
+            Map<String, String> chaincode2Version = queryActiveChaincode();
+            if (chaincode2Version == null) {
+                logger.warn("No peer answered, keep chaincode resources unchanged");
+                return;
+            }
+            Map<String, String> unanswered = new LinkedHashMap<>();
+            setChaincodeMap(
+                    queryChaincodeResources(chaincode2Version, chaincodeMap.get(), unanswered));
+
+            unansweredChaincodes.clear();
+            unansweredChaincodes.putAll(unanswered);
+            scheduleProbeRetry();
+        }
+    }
+
+    // Query only the given chaincodes, the others are kept
+    public void updateChaincodes(Map<String, String> chaincode2Version) {
+        synchronized (this) {
+            Map<String, ChaincodeResource> previous = chaincodeMap.get();
+            Map<String, String> unanswered = new LinkedHashMap<>();
+            Map<String, ChaincodeResource> updated =
+                    queryChaincodeResources(chaincode2Version, previous, unanswered);
 
-            if (eventHandler != null && !isSameChaincodeMap(oldMap, this.chaincodeMap)) {
-                logger.info("Chaincode resource has changed to: {}", this.chaincodeMap.keySet());
-                eventHandler.onChange(getResourceInfoList(false));
+            Map<String, ChaincodeResource> currentChaincodeMap = new LinkedHashMap<>(previous);
+            for (String chaincodeName : chaincode2Version.keySet()) {
+                ChaincodeResource chaincodeResource = updated.get(chaincodeName);
+                if (chaincodeResource != null) {
+                    currentChaincodeMap.put(chaincodeName, chaincodeResource);
+                } else {
+                    currentChaincodeMap.remove(chaincodeName);
+                }
+
+                if (unanswered.containsKey(chaincodeName)) {
+                    unansweredChaincodes.put(chaincodeName, unanswered.get(chaincodeName));
+                } else {
+                    unansweredChaincodes.remove(chaincodeName);
+                }
             }
+            setChaincodeMap(currentChaincodeMap);
+            scheduleProbeRetry();
+        }
+    }
 
-            dumpChaincodeMap();
+    // Called holding this after an update. Backs off while some peer does not answer, resets
+    // once every probe has been answered
+    private void scheduleProbeRetry() {
+        if (unansweredChaincodes.isEmpty()) {
+            probeRetryDelay = PROBE_RETRY_DELAY;
+            return;
+        }
+        Timer timer = mainloopTimer;
+        if (probeRetryScheduled || timer == null) {
+            return;
         }
+
+        logger.info(
+                "Retry probing chaincodes {} in {} ms",
+                unansweredChaincodes.keySet(),
+                probeRetryDelay);
+        probeRetryScheduled = true;
+        timer.schedule(
+                new TimerTask() {
+                    @Override
+                    public void run() {
+                        Map<String, String> chaincodes;
+                        synchronized (ChaincodeResourceManager.this) {
+                            probeRetryScheduled = false;
+                            chaincodes = new LinkedHashMap<>(unansweredChaincodes);
+                        }
+                        if (!chaincodes.isEmpty()) {
+                            updateChaincodes(chaincodes);
+                        }
+                    }
+                },
+                probeRetryDelay);
+        probeRetryDelay = Math.min(probeRetryDelay * 2, updateInterval);
+    }
+
+    private void setChaincodeMap(Map<String, ChaincodeResource> currentChaincodeMap) {
+        Map<String, ChaincodeResource> oldMap =
+                chaincodeMap.getAndSet(Collections.unmodifiableMap(currentChaincodeMap));
+
+        if (eventHandler != null && !isSameChaincodeMap(oldMap, currentChaincodeMap)) {
+            logger.info("Chaincode resource has changed to: {}", currentChaincodeMap.keySet());
+            eventHandler.onChange(getResourceInfoList(false));
+        }
+
+        dumpChaincodeMap();
     }
 
     private boolean isSameChaincodeMap(
@@ -0,0 +1,150 @@
+package com.webank.wecross.stub.fabric;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import org.hyperledger.fabric.protos.common.Common;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// The only consumer of commit events of the channel: each block is decoded once and the
+// futures of the pending transactions it contains are completed from a txID map, with proofs
+// of where they have been committed.
+// A block delivered by several event peers completes a transaction on its first arrival
+public class CommitEventDispatcher {
+    private static Logger logger = LoggerFactory.getLogger(CommitEventDispatcher.class);
+
+    private static final int MAX_EXPIRED = 10000; // timed out transactions watched for late commit
+
+    private static class PendingTransaction {
+        private CompletableFuture<CommitProof> future = new CompletableFuture<>();
+        private long registerTime = System.currentTimeMillis();
+    }
+
+    private Map<String, PendingTransaction> pendingTransactions = new ConcurrentHashMap<>();
+    private Map<String, Long> expiredTransactions = new LinkedHashMap<>(); // txID -> register time
+    private Executor executor;
+    private CommitTimeoutPolicy commitTimeoutPolicy;
+
+    // Futures are completed on executor so that callbacks do not hold the block events back
+    public CommitEventDispatcher(Executor executor, CommitTimeoutPolicy commitTimeoutPolicy) {
+        this.executor = executor;
+        this.commitTimeoutPolicy = commitTimeoutPolicy;
+    }
+
+    // Register before broadcasting, the commit may arrive before the broadcast returns
+    public CompletableFuture<CommitProof> register(String txID) {
+        PendingTransaction pendingTransaction = new PendingTransaction();
+        PendingTransaction previous = pendingTransactions.putIfAbsent(txID, pendingTransaction);
+        // the same transaction sent again
+        return previous != null ? previous.future : pendingTransaction.future;
+    }
+
+    // Called once the transaction is no longer waited for, on failure
+    public void unregister(String txID) {
+        pendingTransactions.remove(txID);
+    }
+
+    // Release the transaction at once, but keep watching for a late commit to adapt the timeout
+    public void expire(String txID) {
+        PendingTransaction pendingTransaction = pendingTransactions.remove(txID);
+        if (pendingTransaction == null) {
+            return; // committed or failed meanwhile
+        }
+
+        commitTimeoutPolicy.onTimeout();
+        synchronized (expiredTransactions) {
+            expiredTransactions.put(txID, pendingTransaction.registerTime);
+            if (expiredTransactions.size() > MAX_EXPIRED) {
+                Iterator<String> eldest = expiredTransactions.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        pendingTransaction.future.completeExceptionally(
+                new TimeoutException("Wait for commit of " + txID + " timeout"));
+    }
+
+    // The index of a transaction is the position of its envelope in the block data, the same as
+    // in TRANSACTIONS_FILTER. BlockEvent.getTransactionEvents() skips config envelopes
+    public void onBlock(Common.Block block) {
+        onBlock(new BlockTransactions(block));
+    }
+
+    public void onBlock(BlockTransactions transactions) {
+        boolean watchExpired;
+        synchronized (expiredTransactions) {
+            watchExpired = !expiredTransactions.isEmpty();
+        }
+        if (pendingTransactions.isEmpty() && !watchExpired) {
+            return; // nothing waits, no need to decode
+        }
+
+        long now = System.currentTimeMillis();
+        List<CommitProof> committed = new ArrayList<>();
+        List<CompletableFuture<CommitProof>> futures = new ArrayList<>();
+        String blockHash = null; // once for the block, only if a transaction waits
+        Common.Block block = transactions.getBlock();
+        for (int txIndex = 0; txIndex < transactions.size(); txIndex++) {
+            String txID = transactions.getTxID(txIndex);
+            if (txID == null || txID.isEmpty()) {
+                continue; // config transactions have no txID
+            }
+
+            PendingTransaction pendingTransaction = pendingTransactions.remove(txID);
+            if (pendingTransaction != null) {
+                commitTimeoutPolicy.onCommit(now - pendingTransaction.registerTime);
+                if (blockHash == null) {
+                    blockHash = FabricBlock.calculateBlockHashString(block);
+                }
+                committed.add(
+                        new CommitProof(
+                                txID,
+                                block.getHeader().getNumber(),
+                                txIndex,
+                                transactions.getValidationCode(txIndex),
+                                blockHash));
+                futures.add(pendingTransaction.future);
+            } else if (watchExpired) {
+                Long registerTime;
+                synchronized (expiredTransactions) {
+                    registerTime = expiredTransactions.remove(txID);
+                }
+                if (registerTime != null) {
+                    commitTimeoutPolicy.onLateCommit(now - registerTime);
+                }
+            }
+        }
+
+        if (futures.isEmpty()) {
+            return;
+        }
+
+        Runnable complete =
+                () -> {
+                    for (int i = 0; i < futures.size(); i++) {
+                        futures.get(i).complete(committed.get(i));
+                    }
+                };
+        try {
+            executor.execute(complete);
+        } catch (Exception e) {
+            // the executor is full, complete here rather than lose the commits of the block
+            logger.warn(
+                    "Complete commits of block {} on the block listener, executor: {}",
+                    block.getHeader().getNumber(),
+                    e.getMessage());
+            complete.run();
+        }
+    }
+
+    public int getPendingCount() {
+        return pendingTransactions.size();
+    }
+}
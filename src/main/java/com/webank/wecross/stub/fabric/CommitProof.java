@@ -0,0 +1,128 @@
+package com.webank.wecross.stub.fabric;
+
+import com.webank.wecross.utils.BinaryFrame;
+import java.util.List;
+import org.hyperledger.fabric.protos.peer.FabricTransaction;
+
+// Where a transaction has been committed, taken by the connection from the block of the commit
+// event, so that the driver need not fetch and parse the block again
+public class CommitProof {
+    private static final int FRAME_VERSION = 1;
+
+    private String txID;
+    private long blockNumber;
+    private int txIndex; // position of the transaction in the block
+    private int validationCode; // TxValidationCode of Transaction.proto
+    private String blockHash; // hex, the same as the hash of the WeCross block header
+
+    public CommitProof() {}
+
+    public CommitProof(
+            String txID, long blockNumber, int txIndex, int validationCode, String blockHash) {
+        this.txID = txID;
+        this.blockNumber = blockNumber;
+        this.txIndex = txIndex;
+        this.validationCode = validationCode;
+        this.blockHash = blockHash;
+    }
+
+    public boolean isValid() {
+        return validationCode == FabricTransaction.TxValidationCode.VALID_VALUE;
+    }
+
+    // The proof is of the transaction, and the transaction is valid. Nothing is checked against
+    // the block, whoever accepts a matching proof trusts the commit event of the connection
+    public boolean matches(String expectedTxID) {
+        return expectedTxID != null
+                && expectedTxID.equals(txID)
+                && isValid()
+                && blockNumber >= 0
+                && txIndex >= 0
+                && blockHash != null
+                && !blockHash.isEmpty();
+    }
+
+    // Checked against the block it names: the header hash, the envelope at txIndex and its code
+    // in the transactions filter
+    public boolean verify(FabricBlock block) {
+        if (block == null
+                || block.getHeader().getNumber() != blockNumber
+                || blockHash == null
+                || !blockHash.equals(block.getHash())) {
+            return false;
+        }
+
+        List<String> txIDList = block.getBlockData().getTxIDList();
+        byte[] txFilter = block.getMetaData().getTransactionFilter();
+        return txIDList != null
+                && txIndex >= 0
+                && txIndex < txIDList.size()
+                && txIndex < txFilter.length
+                && txIDList.get(txIndex).equals(txID)
+                && (txFilter[txIndex] & 0xff) == validationCode;
+    }
+
+    public byte[] toBytes() throws Exception {
+        return new BinaryFrame.Writer(FRAME_VERSION, 128)
+                .writeString(txID)
+                .writeLong(blockNumber)
+                .writeLong(txIndex)
+                .writeLong(validationCode)
+                .writeString(blockHash)
+                .toBytes();
+    }
+
+    // Responses of older connections carry the block number only, they are not framed
+    public static boolean isCommitProof(byte[] bytes) {
+        return BinaryFrame.isFramed(bytes);
+    }
+
+    public static CommitProof parseFrom(byte[] bytes) throws Exception {
+        BinaryFrame.Reader reader = new BinaryFrame.Reader(bytes, FRAME_VERSION);
+        CommitProof commitProof = new CommitProof();
+        commitProof.txID = reader.readString();
+        commitProof.blockNumber = reader.readLong();
+        commitProof.txIndex = (int) reader.readLong();
+        commitProof.validationCode = (int) reader.readLong();
+        commitProof.blockHash = reader.readString();
+        return commitProof;
+    }
+
+    public String getTxID() {
+        return txID;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public int getTxIndex() {
+        return txIndex;
+    }
+
+    public int getValidationCode() {
+        return validationCode;
+    }
+
+    public String getBlockHash() {
+        return blockHash;
+    }
+
+    @Override
+    public String toString() {
+        return "CommitProof{"
+                + "txID='"
+                + txID
+                + '\''
+                + ", blockNumber="
+                + blockNumber
+                + ", txIndex="
+                + txIndex
+                + ", validationCode="
+                + validationCode
+                + ", blockHash='"
+                + blockHash
+                + '\''
+                + '}';
+    }
+}
@@ -0,0 +1,102 @@
+package com.webank.wecross.stub.fabric;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// How long to wait for a transaction to commit. Adaptive timeout follows the measured commit
+// latency of the channel, which is bounded by the block cadence, the way TCP computes its
+// retransmission timeout: smoothed latency + 4 * latency variation, within [min, max]
+public class CommitTimeoutPolicy {
+    private boolean adaptive;
+    private long timeout; // ms, used until the first commit, or always if not adaptive
+    private long minTimeout; // ms
+    private long maxTimeout; // ms
+
+    private double smoothedLatency = 0; // ms
+    private double latencyVariation = 0; // ms
+    private boolean measured = false;
+
+    private AtomicLong commits = new AtomicLong(0);
+    private AtomicLong timeouts = new AtomicLong(0);
+    private AtomicLong lateCommits = new AtomicLong(0);
+
+    public CommitTimeoutPolicy(boolean adaptive, long timeout, long minTimeout, long maxTimeout) {
+        this.adaptive = adaptive;
+        this.timeout = timeout;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+    }
+
+    public synchronized long getTimeout() {
+        if (!adaptive || !measured) {
+            return timeout;
+        }
+
+        long adaptiveTimeout = (long) (smoothedLatency + 4 * latencyVariation);
+        return Math.max(minTimeout, Math.min(maxTimeout, adaptiveTimeout));
+    }
+
+    public void onCommit(long latency) {
+        commits.incrementAndGet();
+        addSample(latency);
+    }
+
+    // A transaction committed after its timeout, the timeout has been too short
+    public void onLateCommit(long latency) {
+        lateCommits.incrementAndGet();
+        addSample(latency);
+    }
+
+    // Back off until late commits or commits tell the real latency
+    public synchronized void onTimeout() {
+        timeouts.incrementAndGet();
+        if (measured) {
+            latencyVariation = Math.min(latencyVariation * 2 + 1, maxTimeout);
+        }
+    }
+
+    private synchronized void addSample(long latency) {
+        if (!measured) {
+            smoothedLatency = latency;
+            latencyVariation = latency / 2.0;
+            measured = true;
+            return;
+        }
+
+        latencyVariation = 0.75 * latencyVariation + 0.25 * Math.abs(smoothedLatency - latency);
+        smoothedLatency = 0.875 * smoothedLatency + 0.125 * latency;
+    }
+
+    public synchronized double getSmoothedLatency() {
+        return smoothedLatency;
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getLateCommits() {
+        return lateCommits.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CommitTimeoutPolicy{"
+                + "adaptive="
+                + adaptive
+                + ", timeout="
+                + getTimeout()
+                + ", smoothedLatency="
+                + getSmoothedLatency()
+                + ", commits="
+                + getCommits()
+                + ", timeouts="
+                + getTimeouts()
+                + ", lateCommits="
+                + getLateCommits()
+                + '}';
+    }
+}
@@ -0,0 +1,110 @@
+package com.webank.wecross.stub.fabric;
+
+import io.netty.util.Timeout;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Collect proposal responses of one proposal sent to several peers asynchronously
+public class EndorsementCollector {
+    private Logger logger = LoggerFactory.getLogger(EndorsementCollector.class);
+
+    public interface Callback {
+        void onResponse(Collection<ProposalResponse> proposalResponses);
+    }
+
+    private final int total;
+    private final Callback callback;
+    private final EndorsementCompletionPolicy completionPolicy;
+    private final Queue<ProposalResponse> responses = new ConcurrentLinkedQueue<>();
+    private final Queue<Future<?>> pendingFutures = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger received = new AtomicInteger(0);
+    private final AtomicBoolean hasResponsed = new AtomicBoolean(false);
+    private volatile Timeout timeout;
+
+    public EndorsementCollector(int total, Callback callback) {
+        this(total, callback, EndorsementCompletionPolicy.all());
+    }
+
+    public EndorsementCollector(
+            int total, Callback callback, EndorsementCompletionPolicy completionPolicy) {
+        this.total = total;
+        this.callback = callback;
+        this.completionPolicy = completionPolicy;
+    }
+
+    public void addPendingFuture(Future<?> future) {
+        pendingFutures.add(future);
+        if (hasResponsed.get()) {
+            future.cancel(true); // already completed early
+        }
+    }
+
+    public void onPeerResponse(ProposalResponse response) {
+        if (response != null) {
+            responses.add(response);
+        }
+
+        if (received.incrementAndGet() >= total) {
+            finish();
+        } else if (!hasResponsed.get()
+                && completionPolicy.isSatisfied(new ArrayList<>(responses))) {
+            // policy has been satisfied, stragglers are no longer needed
+            logger.debug(
+                    "Endorsement completed early by policy {}, received: {}, total: {}",
+                    completionPolicy.info(),
+                    received.get(),
+                    total);
+            finish();
+            cancelPendingFutures();
+        }
+    }
+
+    // Cancel the peers which have not responded, their futures will report failed responses
+    public void onTimeout() {
+        if (hasResponsed.get()) {
+            return;
+        }
+
+        logger.warn("Endorsement timeout, received: {}, total: {}", received.get(), total);
+        cancelPendingFutures();
+        finish();
+    }
+
+    private void cancelPendingFutures() {
+        for (Future<?> future : pendingFutures) {
+            future.cancel(true);
+        }
+    }
+
+    private void finish() {
+        if (hasResponsed.getAndSet(true)) {
+            return;
+        }
+
+        if (timeout != null) {
+            timeout.cancel();
+        }
+
+        try {
+            callback.onResponse(new ArrayList<>(responses));
+        } catch (Exception e) {
+            logger.error("Endorsement callback exception: ", e);
+        }
+    }
+
+    public boolean isDone() {
+        return hasResponsed.get();
+    }
+
+    public void setTimeout(Timeout timeout) {
+        this.timeout = timeout;
+    }
+}
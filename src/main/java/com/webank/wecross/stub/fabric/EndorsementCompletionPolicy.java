@@ -0,0 +1,103 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.hyperledger.fabric.protos.msp.Identities;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+
+// Decide whether the proposal responses received so far are enough to stop waiting for others
+public abstract class EndorsementCompletionPolicy {
+
+    public abstract boolean isSatisfied(Collection<ProposalResponse> proposalResponses);
+
+    public abstract String info();
+
+    // Wait for every endorser
+    public static EndorsementCompletionPolicy all() {
+        return new EndorsementCompletionPolicy() {
+            @Override
+            public boolean isSatisfied(Collection<ProposalResponse> proposalResponses) {
+                return false;
+            }
+
+            @Override
+            public String info() {
+                return "all";
+            }
+        };
+    }
+
+    public static EndorsementCompletionPolicy anyOne() {
+        return outOf(1);
+    }
+
+    // At least n success responses with the same proposal response payload (result and rwset)
+    public static EndorsementCompletionPolicy outOf(int n) {
+        return new EndorsementCompletionPolicy() {
+            @Override
+            public boolean isSatisfied(Collection<ProposalResponse> proposalResponses) {
+                return maxSamePayloadSuccess(proposalResponses) >= n;
+            }
+
+            @Override
+            public String info() {
+                return "outOf(" + n + ")";
+            }
+        };
+    }
+
+    // Success responses from endorsers whose MSP IDs satisfy the chaincode policy
+    public static EndorsementCompletionPolicy satisfying(ChaincodePolicy chaincodePolicy) {
+        return new EndorsementCompletionPolicy() {
+            @Override
+            public boolean isSatisfied(Collection<ProposalResponse> proposalResponses) {
+                return chaincodePolicy.isSatisfiedBy(successEndorserMspIds(proposalResponses));
+            }
+
+            @Override
+            public String info() {
+                return "satisfying(" + chaincodePolicy + ")";
+            }
+        };
+    }
+
+    public static List<String> successEndorserMspIds(
+            Collection<ProposalResponse> proposalResponses) {
+        List<String> mspIds = new ArrayList<>();
+        for (ProposalResponse response : proposalResponses) {
+            if (response.getStatus() != ProposalResponse.Status.SUCCESS) {
+                continue;
+            }
+
+            try {
+                Identities.SerializedIdentity endorser =
+                        Identities.SerializedIdentity.parseFrom(
+                                response.getProposalResponse().getEndorsement().getEndorser());
+                mspIds.add(endorser.getMspid());
+            } catch (Exception e) {
+                // ignore the response which has no valid endorser identity
+            }
+        }
+        return mspIds;
+    }
+
+    protected static int maxSamePayloadSuccess(Collection<ProposalResponse> proposalResponses) {
+        Map<ByteString, Integer> payloadCount = new HashMap<>();
+        int max = 0;
+        for (ProposalResponse response : proposalResponses) {
+            if (response.getStatus() != ProposalResponse.Status.SUCCESS) {
+                continue;
+            }
+
+            // the chaincode result alone may match while the rwsets differ
+            ByteString payload = response.getProposalResponse().getPayload();
+            int count = payloadCount.merge(payload, 1, Integer::sum);
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+}
@@ -11,7 +11,6 @@ import com.webank.wecross.stub.fabric.FabricCustomCommand.InstallChaincodeReques
 import com.webank.wecross.stub.fabric.FabricCustomCommand.InstantiateChaincodeRequest;
 import com.webank.wecross.stub.fabric.FabricCustomCommand.UpgradeChaincodeRequest;
 import java.io.ByteArrayInputStream;
-import java.nio.charset.Charset;
 import java.util.LinkedList;
 import java.util.List;
 import org.hyperledger.fabric.protos.common.Common;
@@ -19,10 +18,7 @@ import org.hyperledger.fabric.protos.msp.Identities;
 import org.hyperledger.fabric.protos.peer.Chaincode;
 import org.hyperledger.fabric.protos.peer.FabricProposal;
 import org.hyperledger.fabric.sdk.ChaincodeID;
-import org.hyperledger.fabric.sdk.Channel;
-import org.hyperledger.fabric.sdk.HFClient;
 import org.hyperledger.fabric.sdk.TransactionProposalRequest;
-import org.hyperledger.fabric.sdk.security.CryptoSuite;
 import org.hyperledger.fabric.sdk.transaction.InstallProposalBuilder;
 import org.hyperledger.fabric.sdk.transaction.InstantiateProposalBuilder;
 import org.hyperledger.fabric.sdk.transaction.ProposalBuilder;
@@ -137,7 +133,7 @@ public class EndorserRequestFactory {
         FabricProposal.SignedProposal signedProposal =
                 FabricProposal.SignedProposal.newBuilder()
                         .setProposalBytes(proposal.toByteString())
-                        .setSignature(ByteString.copyFrom(sign))
+                        .setSignature(ProtoBytes.wrap(sign))
                         .build();
 
         return signedProposal.toByteArray();
@@ -155,11 +151,8 @@ public class EndorserRequestFactory {
         ChaincodeID chaincodeID =
                 ChaincodeID.newBuilder().setName(properties.getChaincodeName()).build();
 
-        HFClient hfClient = HFClient.createNewInstance();
-        hfClient.setCryptoSuite(CryptoSuite.Factory.getCryptoSuite());
-        hfClient.setUserContext(account.getUser());
-
-        Channel channel = hfClient.newChannel(properties.getChannelName());
+        ProposalContextCache.ProposalContext proposalContext =
+                ProposalContextCache.get(account, properties.getChannelName());
 
         transactionProposalRequest.setChaincodeID(chaincodeID);
         // transactionProposalRequest.setChaincodeLanguage(properties.getChainCodeType()); // no
@@ -172,10 +165,7 @@ public class EndorserRequestFactory {
         org.hyperledger.fabric.sdk.TransactionRequest proposalRequest = transactionProposalRequest;
 
         org.hyperledger.fabric.sdk.transaction.TransactionContext transactionContext =
-                new org.hyperledger.fabric.sdk.transaction.TransactionContext(
-                        channel, account.getUser(), CryptoSuite.Factory.getCryptoSuite());
-
-        transactionContext.verify(proposalRequest.doVerify());
+                proposalContext.newTransactionContext(proposalRequest.doVerify());
         // transactionContext.setProposalWaitTime(proposalRequest.getProposalWaitTime());
 
         ProposalBuilder proposalBuilder = ProposalBuilder.newBuilder();
@@ -191,15 +181,12 @@ public class EndorserRequestFactory {
             throws Exception {
         installChaincodeRequest.check(); // check has all params
 
-        HFClient hfClient = HFClient.createNewInstance();
-        hfClient.setCryptoSuite(CryptoSuite.Factory.getCryptoSuite());
-        hfClient.setUserContext(account.getUser());
-        Channel channel =
-                hfClient.newChannel(installChaincodeRequest.getChannelName()); // ChannelName
+        ProposalContextCache.ProposalContext proposalContext =
+                ProposalContextCache.get(
+                        account, installChaincodeRequest.getChannelName()); // ChannelName
 
         org.hyperledger.fabric.sdk.transaction.TransactionContext transactionContext =
-                new org.hyperledger.fabric.sdk.transaction.TransactionContext(
-                        channel, account.getUser(), CryptoSuite.Factory.getCryptoSuite());
+                proposalContext.newTransactionContext(false);
 
         ChaincodeID chaincodeID =
                 ChaincodeID.newBuilder()
@@ -208,8 +195,8 @@ public class EndorserRequestFactory {
                         .setPath("chaincode")
                         .build(); // path default with generateTarGzInputStreamBytes function
 
-        transactionContext.verify(
-                false); // Install will have no signing cause it's not really targeted to a channel.
+        // Install will have no signing cause it's not really targeted to a channel, see
+        // newTransactionContext(false) above
         // transactionContext.setProposalWaitTime(
         // FabricStubConfigParser.DEFAULT_DEPLOY_WAIT_TIME); // wait time
         InstallProposalBuilder installProposalbuilder = InstallProposalBuilder.newBuilder();
@@ -240,15 +227,12 @@ public class EndorserRequestFactory {
 
         instantiateChaincodeRequest.check(); // check has all params
 
-        HFClient hfClient = HFClient.createNewInstance();
-        hfClient.setCryptoSuite(CryptoSuite.Factory.getCryptoSuite());
-        hfClient.setUserContext(account.getUser());
-        Channel channel =
-                hfClient.newChannel(instantiateChaincodeRequest.getChannelName()); // ChannelName
+        ProposalContextCache.ProposalContext proposalContext =
+                ProposalContextCache.get(
+                        account, instantiateChaincodeRequest.getChannelName()); // ChannelName
 
         org.hyperledger.fabric.sdk.transaction.TransactionContext transactionContext =
-                new org.hyperledger.fabric.sdk.transaction.TransactionContext(
-                        channel, account.getUser(), CryptoSuite.Factory.getCryptoSuite());
+                proposalContext.newTransactionContext(true);
 
         ChaincodeID chaincodeID =
                 ChaincodeID.newBuilder()
@@ -287,15 +271,12 @@ public class EndorserRequestFactory {
 
         upgradeChaincodeRequest.check(); // check has all params
 
-        HFClient hfClient = HFClient.createNewInstance();
-        hfClient.setCryptoSuite(CryptoSuite.Factory.getCryptoSuite());
-        hfClient.setUserContext(account.getUser());
-        Channel channel =
-                hfClient.newChannel(upgradeChaincodeRequest.getChannelName()); // ChannelName
+        ProposalContextCache.ProposalContext proposalContext =
+                ProposalContextCache.get(
+                        account, upgradeChaincodeRequest.getChannelName()); // ChannelName
 
         org.hyperledger.fabric.sdk.transaction.TransactionContext transactionContext =
-                new org.hyperledger.fabric.sdk.transaction.TransactionContext(
-                        channel, account.getUser(), CryptoSuite.Factory.getCryptoSuite());
+                proposalContext.newTransactionContext(true);
 
         ChaincodeID chaincodeID =
                 ChaincodeID.newBuilder()
@@ -403,7 +384,7 @@ public class EndorserRequestFactory {
                 method = byteString.toStringUtf8();
                 isMethod = false;
             } else {
-                args.add(new String(byteString.toByteArray(), Charset.forName("UTF-8")));
+                args.add(byteString.toStringUtf8());
             }
         }
 
@@ -417,9 +398,9 @@ public class EndorserRequestFactory {
 
     public static String getTxIDFromEnvelopeBytes(byte[] envelopeBytes) throws Exception {
 
-        Common.Envelope envelope = Common.Envelope.parseFrom(envelopeBytes);
+        Common.Envelope envelope = ProtoBytes.parse(Common.Envelope.parser(), envelopeBytes);
 
-        Common.Payload payload = Common.Payload.parseFrom(envelope.getPayload().toByteArray());
+        Common.Payload payload = ProtoBytes.parse(Common.Payload.parser(), envelope.getPayload());
 
         Common.ChannelHeader channelHeader =
                 Common.ChannelHeader.parseFrom(payload.getHeader().getChannelHeader());
@@ -0,0 +1,98 @@
+package com.webank.wecross.stub.fabric;
+
+import com.webank.wecross.common.FabricType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import org.hyperledger.fabric.sdk.Peer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Pick the smallest peer sets satisfying a chaincode policy and rotate requests across them
+public class EndorserSelector {
+    private static Logger logger = LoggerFactory.getLogger(EndorserSelector.class);
+
+    private static final int MAX_ENUMERATE_PEERS = 16;
+    private static final int MAX_CANDIDATE_SETS = 64;
+
+    private List<List<Peer>> candidateSets = new ArrayList<>();
+    private AtomicInteger next = new AtomicInteger(0);
+
+    public EndorserSelector(ChaincodePolicy policy, Collection<Peer> endorsers) {
+        List<Peer> peers = new ArrayList<>();
+        List<String> mspIds = new ArrayList<>();
+        for (Peer peer : endorsers) {
+            String mspId = getMspId(peer);
+            if (mspId != null) {
+                peers.add(peer);
+                mspIds.add(mspId);
+            }
+        }
+
+        if (!policy.isSupported() || peers.isEmpty() || peers.size() > MAX_ENUMERATE_PEERS) {
+            logger.debug("Endorser selection not available, policy: {}, peers: {}", policy, peers);
+            return;
+        }
+
+        // Enumerate by set size, the first size with any satisfying set gives the minimal sets
+        int n = peers.size();
+        for (int size = 1; size <= n && candidateSets.isEmpty(); size++) {
+            for (int mask = 1; mask < (1 << n); mask++) {
+                if (Integer.bitCount(mask) != size) {
+                    continue;
+                }
+
+                List<Peer> setPeers = new ArrayList<>();
+                List<String> setMspIds = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    if ((mask & (1 << i)) != 0) {
+                        setPeers.add(peers.get(i));
+                        setMspIds.add(mspIds.get(i));
+                    }
+                }
+
+                if (policy.isSatisfiedBy(setMspIds)) {
+                    candidateSets.add(setPeers);
+                    if (candidateSets.size() >= MAX_CANDIDATE_SETS) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        logger.debug("Endorser candidate sets: {}, policy: {}", candidateSets, policy);
+    }
+
+    public static String getMspId(Peer peer) {
+        return peer.getProperties().getProperty(FabricType.ORG_MSP_ID_DEF);
+    }
+
+    public boolean isAvailable() {
+        return !candidateSets.isEmpty();
+    }
+
+    // Round robin over the equivalent minimal sets, null if no set satisfies the policy
+    public Collection<Peer> select() {
+        return select(peer -> true);
+    }
+
+    // Round robin over the minimal sets whose peers are all available, a set with an unavailable
+    // peer would not satisfy the policy once that peer is left out. Null if there is none
+    public Collection<Peer> select(Predicate<Peer> available) {
+        int size = candidateSets.size();
+        int start = next.getAndIncrement();
+        for (int i = 0; i < size; i++) {
+            List<Peer> candidateSet = candidateSets.get(Math.floorMod(start + i, size));
+            if (candidateSet.stream().allMatch(available)) {
+                return candidateSet;
+            }
+        }
+        return null;
+    }
+
+    public List<List<Peer>> getCandidateSets() {
+        return candidateSets;
+    }
+}
@@ -1,38 +1,18 @@
 package com.webank.wecross.stub.fabric;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.ByteString;
 import com.webank.wecross.exception.WeCrossException;
 import com.webank.wecross.stub.BlockHeader;
-import com.webank.wecross.stub.ObjectMapperFactory;
-import com.webank.wecross.utils.FabricUtils;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
-import java.security.PublicKey;
-import java.security.Signature;
-import java.security.SignatureException;
-import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Pattern;
 import org.apache.commons.codec.binary.Hex;
 import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.DEROctetString;
 import org.bouncycastle.asn1.DERSequenceGenerator;
 import org.hyperledger.fabric.protos.common.Common;
-import org.hyperledger.fabric.protos.msp.Identities;
-import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
 import org.hyperledger.fabric.protos.peer.FabricTransaction;
 import org.hyperledger.fabric.sdk.exception.InvalidArgumentException;
 import org.hyperledger.fabric.sdk.security.CryptoSuite;
@@ -52,7 +32,8 @@ public class FabricBlock {
     private Set<String> validTxs;
 
     public FabricBlock(byte[] blockBytes) throws Exception {
-        this.block = Common.Block.parseFrom(blockBytes);
+        // envelopes are slices of blockBytes rather than copies
+        this.block = ProtoBytes.parse(Common.Block.parser(), blockBytes);
         this.header = new Header(block.getHeader());
         this.blockData = new BlockData(block.getData());
         this.metaData = new MetaData(block.getMetadata());
@@ -67,20 +48,27 @@ public class FabricBlock {
     }
 
     public BlockHeader dumpWeCrossHeader() {
-        BlockHeader blockHeader = new BlockHeader();
-        blockHeader.setNumber(header.getNumber());
-        blockHeader.setHash(this.getHash());
-        blockHeader.setPrevHash(header.getPrevHash());
-        blockHeader.setTransactionRoot(header.getDataHash());
+        long timestamp;
         try {
             Common.Envelope envelope = Common.Envelope.parseFrom(blockData.blockData.getData(0));
             Common.Payload payload = Common.Payload.parseFrom(envelope.getPayload());
             Common.ChannelHeader channelHeader =
                     Common.ChannelHeader.parseFrom(payload.getHeader().getChannelHeader());
-            blockHeader.setTimestamp(channelHeader.getTimestamp().getSeconds());
+            timestamp = channelHeader.getTimestamp().getSeconds();
         } catch (Exception ignored) {
-            blockHeader.setTimestamp(0);
+            timestamp = 0;
         }
+        return dumpWeCrossHeader(timestamp);
+    }
+
+    // timestamp is the one of the first transaction
+    public BlockHeader dumpWeCrossHeader(long timestamp) {
+        BlockHeader blockHeader = new BlockHeader();
+        blockHeader.setNumber(header.getNumber());
+        blockHeader.setHash(this.getHash());
+        blockHeader.setPrevHash(header.getPrevHash());
+        blockHeader.setTransactionRoot(header.getDataHash());
+        blockHeader.setTimestamp(timestamp);
         return blockHeader;
     }
 
@@ -134,6 +122,14 @@ public class FabricBlock {
         return header;
     }
 
+    public BlockData getBlockData() {
+        return blockData;
+    }
+
+    public MetaData getMetaData() {
+        return metaData;
+    }
+
     public static class Header {
         private Common.BlockHeader header;
 
@@ -233,43 +229,7 @@ public class FabricBlock {
 
     public boolean verify(String blockVerifierString) {
         try {
-            String chainType = getStringInVerifierString(blockVerifierString, "chainType");
-            if (!"Fabric1.4".equals(chainType)) {
-                logger.error(
-                        "Verify error: Fabric Block Verifier chainType error, chainType in verifier is {}.",
-                        chainType);
-                return false;
-            }
-            Map<String, String> ordererCAMap =
-                    getMapperInVerifierString(blockVerifierString, "ordererCA");
-            Map<String, String> endorserCAMap =
-                    getMapperInVerifierString(blockVerifierString, "endorserCA");
-            if (ordererCAMap == null
-                    || endorserCAMap == null
-                    || endorserCAMap.size() == 0
-                    || ordererCAMap.size() == 0) {
-                logger.error(
-                        "Did not full config Fabric Block Verifier, will skip block verification on what field didn't config.");
-                return false;
-            }
-            // CAMap: <MSP, cert path> => <MSP, cert content>
-            ordererCAMap = FabricUtils.readFileInMap(ordererCAMap);
-            endorserCAMap = FabricUtils.readFileInMap(endorserCAMap);
-            if (logger.isDebugEnabled()) {
-                ObjectMapper objectMapper = new ObjectMapper();
-                logger.debug(
-                        "ordererCA:{}, endorserCA:{}",
-                        objectMapper.writeValueAsString(ordererCAMap),
-                        objectMapper.writeValueAsString(endorserCAMap));
-            }
-            if (!verifyBlockCreator(ordererCAMap)) {
-                logger.warn("Verify creator in block {} failed.", header.getNumber());
-                return false;
-            }
-            if (!verifyTransactions(endorserCAMap)) {
-                logger.warn("Verify transaction in block {} failed.", header.getNumber());
-                return false;
-            }
+            return verifyWith(BlockVerifier.build(blockVerifierString));
         } catch (WeCrossException e) {
             logger.error(
                     "Verify block error, errorCode:{}, error: {}, caused by: {}",
@@ -277,63 +237,23 @@ public class FabricBlock {
                     e.getMessage(),
                     e.getCause());
             return false;
-        } catch (Exception e) {
-            logger.error("Verify block error, error: ", e);
-            return false;
         }
-        return true;
     }
 
-    public boolean verifyBlockCreator(Map<String, String> ordererCAs) {
+    public boolean verifyWith(BlockVerifier blockVerifier) {
         try {
-            Common.Metadata metadata = metaData.getBlockSignatures();
-            if (logger.isTraceEnabled()) {
-                logger.trace(
-                        "Verifying Fabric block, ordererCAs is {}, SignatureList is {}.",
-                        ordererCAs,
-                        metadata.getSignaturesList());
-            }
-
-            for (Common.MetadataSignature metadataSignature : metadata.getSignaturesList()) {
-                ByteString signature = metadataSignature.getSignature();
-                byte[] signBytes = signature.toByteArray();
-                Common.SignatureHeader header =
-                        Common.SignatureHeader.parseFrom(metadataSignature.getSignatureHeader());
-                Identities.SerializedIdentity serializedIdentity =
-                        Identities.SerializedIdentity.parseFrom(header.getCreator());
-
-                ByteString blockHeaderBytes = ByteString.copyFrom(calculateBlockHeader(block));
-                ByteString plainText =
-                        metadata.getValue()
-                                .concat(metadataSignature.getSignatureHeader())
-                                .concat(blockHeaderBytes);
-
-                String mspId = serializedIdentity.getMspid();
-                if (ordererCAs.containsKey(mspId)
-                        && checkCert(
-                                ordererCAs.get(mspId),
-                                serializedIdentity.getIdBytes().toByteArray())) {
-                    if (!verifySignature(
-                            serializedIdentity.getIdBytes(), signBytes, plainText.toByteArray())) {
-                        return false;
-                    }
-                } else {
-                    logger.error(
-                            "VerifyBlockCreator error, ordererCAMap didn't have a key of {} or checkCert error, ordererCAMap: {}",
-                            serializedIdentity.getMspid(),
-                            ordererCAs);
-                    return false;
-                }
-            }
-            return true;
-
+            return blockVerifier.verify(this);
         } catch (Exception e) {
-            logger.warn("Verify block creator exception: ", e);
+            logger.error("Verify block error, error: ", e);
             return false;
         }
     }
 
-    private static byte[] calculateBlockHeader(Common.Block block) throws IOException {
+    Common.Block getBlock() {
+        return block;
+    }
+
+    static byte[] calculateBlockHeader(Common.Block block) throws IOException {
         ByteArrayOutputStream s = new ByteArrayOutputStream();
         DERSequenceGenerator seq = new DERSequenceGenerator(s);
         try {
@@ -347,202 +267,4 @@ public class FabricBlock {
         }
         return s.toByteArray();
     }
-
-    // Verify every transaction's endorsement
-    public boolean verifyTransactions(Map<String, String> endorserCAs) {
-        if (logger.isTraceEnabled()) {
-            logger.trace("Verifying Fabric transactions, endorserCAs: {}", endorserCAs);
-        }
-        try {
-            byte[] txFilter = metaData.getTransactionFilter();
-
-            if (block.getData().getDataList().size() != txFilter.length) {
-                throw new Exception(
-                        "Illegal block format. block data(tx) number: "
-                                + block.getData().getDataList().size()
-                                + " tx filter size: "
-                                + txFilter.length);
-            }
-
-            for (int i = 0; i < block.getData().getDataCount(); i++) {
-                // a tx
-                ByteString envelopeBytes = block.getData().getData(i);
-
-                if (txFilter[i] != FabricTransaction.TxValidationCode.VALID_VALUE) {
-                    // jump illegal tx
-                    continue;
-                }
-
-                Common.Envelope envelope = Common.Envelope.parseFrom(envelopeBytes);
-                Common.Payload payload = Common.Payload.parseFrom(envelope.getPayload());
-
-                Common.ChannelHeader channelHeader =
-                        Common.ChannelHeader.parseFrom(payload.getHeader().getChannelHeader());
-                String txID = channelHeader.getTxId();
-                if (txID == null || txID.length() == 0) {
-                    // ignore system tx
-                    continue;
-                }
-
-                FabricTransaction.Transaction transaction =
-                        FabricTransaction.Transaction.parseFrom(payload.getData());
-                for (FabricTransaction.TransactionAction action : transaction.getActionsList()) {
-                    // an action of tx
-                    FabricTransaction.ChaincodeActionPayload chaincodeActionPayload =
-                            FabricTransaction.ChaincodeActionPayload.parseFrom(action.getPayload());
-                    FabricTransaction.ChaincodeEndorsedAction chaincodeEndorsedAction =
-                            chaincodeActionPayload.getAction();
-
-                    for (FabricProposalResponse.Endorsement endorsement :
-                            chaincodeEndorsedAction.getEndorsementsList()) {
-                        // a endorsement of tx
-                        Identities.SerializedIdentity endorser =
-                                Identities.SerializedIdentity.parseFrom(endorsement.getEndorser());
-                        ByteString plainText =
-                                chaincodeEndorsedAction
-                                        .getProposalResponsePayload()
-                                        .concat(endorsement.getEndorser());
-
-                        ByteString endorserCertificate = endorser.getIdBytes();
-                        byte[] signBytes = endorsement.getSignature().toByteArray();
-                        String mspId = endorser.getMspid();
-
-                        // verify endorser certificate
-                        if (endorserCAs.containsKey(mspId)
-                                && checkCert(
-                                        endorserCAs.get(mspId),
-                                        endorserCertificate.toByteArray())) {
-                            if (!verifySignature(
-                                    endorserCertificate, signBytes, plainText.toByteArray())) {
-                                return false;
-                            }
-                        } else {
-                            logger.error(
-                                    "Error occurs in verifyTransactions: endorserCAMap may not contains {} or cert is wrong. cert: {}",
-                                    endorser.getMspid(),
-                                    endorserCertificate.toByteArray());
-                            return false;
-                        }
-                    }
-                }
-            }
-            return true;
-        } catch (Exception e) {
-            logger.warn("verify block txs failed: ", e);
-            return false;
-        }
-    }
-
-    private boolean verifySignature(ByteString identity, byte[] signBytes, byte[] data) {
-        try {
-            ByteArrayInputStream bis = new ByteArrayInputStream(identity.toByteArray());
-            CertificateFactory cf = CertificateFactory.getInstance("X.509");
-            X509Certificate certificate = (X509Certificate) cf.generateCertificate(bis);
-
-            Signature signer = Signature.getInstance(certificate.getSigAlgName());
-            signer.initVerify(certificate);
-            signer.update(data);
-            boolean ok = signer.verify(signBytes);
-
-            if (logger.isTraceEnabled()) {
-                logger.trace(
-                        "verifySignature: {}, identity: {}, signBytes:{}, data: {} ",
-                        ok,
-                        identity.toStringUtf8(),
-                        Hex.encodeHexString(signBytes),
-                        Hex.encodeHexString(data));
-            }
-
-            return ok;
-        } catch (Exception e) {
-            logger.error("verifySignature in block exception: ", e);
-            return false;
-        }
-    }
-
-    private boolean checkCert(String caCert, byte[] cert) throws WeCrossException {
-        if (!Pattern.compile(FabricUtils.CERT_PATTERN, Pattern.MULTILINE)
-                .matcher(caCert)
-                .matches()) {
-            throw new WeCrossException(
-                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
-                    "Fabric cert pattern matches error, please check.");
-        }
-        ByteArrayInputStream caByteStream = new ByteArrayInputStream(caCert.getBytes());
-        ByteArrayInputStream certByteStrean = new ByteArrayInputStream(cert);
-        CertificateFactory cf = null;
-        try {
-            cf = CertificateFactory.getInstance("X.509");
-            X509Certificate caCertificate = (X509Certificate) cf.generateCertificate(caByteStream);
-            X509Certificate certificate = (X509Certificate) cf.generateCertificate(certByteStrean);
-            PublicKey caKey = caCertificate.getPublicKey();
-            certificate.verify(caKey);
-        } catch (CertificateException
-                | NoSuchAlgorithmException
-                | InvalidKeyException
-                | NoSuchProviderException
-                | SignatureException e) {
-            logger.error("Check Cert fail, caCert: {}, cert: {}", caCert, cert);
-            return false;
-        }
-        return true;
-    }
-
-    private Map<String, String> getMapperInVerifierString(String blockVerifierString, String key)
-            throws WeCrossException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
-        if (blockVerifierString == null || key == null) return null;
-        try {
-            Objects.requireNonNull(
-                    blockVerifierString,
-                    "'blockVerifierString' in getPubKeyInBCOSVerifier is null.");
-            Map<String, Object> fabricVerifier =
-                    objectMapper.readValue(
-                            blockVerifierString, new TypeReference<Map<String, Object>>() {});
-            if (!Objects.isNull(fabricVerifier.get(key))) {
-                return (Map<String, String>) fabricVerifier.get(key);
-            } else {
-                return null;
-            }
-        } catch (JsonProcessingException e) {
-            throw new WeCrossException(
-                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
-                    "Parse Json to BCOSVerifier Error, " + e.getMessage(),
-                    e.getCause());
-        } catch (Exception e) {
-            throw new WeCrossException(
-                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
-                    "Read BCOSVerifier Json Error, " + e.getMessage(),
-                    e.getCause());
-        }
-    }
-
-    private String getStringInVerifierString(String blockVerifierString, String key)
-            throws WeCrossException {
-        ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
-        if (blockVerifierString == null || key == null) return null;
-        try {
-            Objects.requireNonNull(
-                    blockVerifierString,
-                    "'blockVerifierString' in getPubKeyInBCOSVerifier is null.");
-            Map<String, Object> fabricVerifier =
-                    objectMapper.readValue(
-                            blockVerifierString, new TypeReference<Map<String, Object>>() {});
-            if (!Objects.isNull(fabricVerifier.get(key))) {
-                return (String) fabricVerifier.get(key);
-            } else {
-                return null;
-            }
-        } catch (JsonProcessingException e) {
-            throw new WeCrossException(
-                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
-                    "Parse Json to BCOSVerifier Error, " + e.getMessage(),
-                    e.getCause());
-        } catch (Exception e) {
-            throw new WeCrossException(
-                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
-                    "Read BCOSVerifier Json Error, " + e.getMessage(),
-                    e.getCause());
-        }
-    }
 }
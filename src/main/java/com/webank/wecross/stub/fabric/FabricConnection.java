@@ -4,6 +4,10 @@ import static com.webank.wecross.utils.FabricUtils.bytesToLong;
 import static com.webank.wecross.utils.FabricUtils.longToBytes;
 import static java.lang.String.format;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
 import com.webank.wecross.common.FabricType;
 import com.webank.wecross.stub.*;
@@ -13,28 +17,31 @@ import io.netty.util.Timeout;
 import io.netty.util.Timer;
 import io.netty.util.TimerTask;
 import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.hyperledger.fabric.protos.common.Common;
 import org.hyperledger.fabric.protos.msp.Identities;
 import org.hyperledger.fabric.protos.orderer.Ab;
 import org.hyperledger.fabric.protos.peer.FabricProposal;
-import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
 import org.hyperledger.fabric.sdk.BlockInfo;
 import org.hyperledger.fabric.sdk.ChaincodeEndorsementPolicy;
 import org.hyperledger.fabric.sdk.ChaincodeID;
 import org.hyperledger.fabric.sdk.Channel;
-import org.hyperledger.fabric.sdk.EventHub;
 import org.hyperledger.fabric.sdk.HFClient;
 import org.hyperledger.fabric.sdk.InstantiateProposalRequest;
 import org.hyperledger.fabric.sdk.Orderer;
@@ -53,6 +60,8 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 public class FabricConnection implements Connection {
     private Logger logger = LoggerFactory.getLogger(FabricConnection.class);
+    private static final int BLOCK_STREAM_WINDOW = 64; // blocks requested ahead on a stream
+    private static final long WAIT_BLOCK_NUMBER_TIMEOUT = 30000; // ms, for a remote waiter
     private HFClient hfClient;
     private Channel channel;
     private String proxyChaincodeName;
@@ -60,21 +69,46 @@ public class FabricConnection implements Connection {
     private ChaincodeResourceManager chaincodeResourceManager;
     private FabricInnerFunction fabricInnerFunction;
     private Timer timeoutHandler;
-    private long latestBlockNumber = 0;
+    private BlockHeightTracker blockHeightTracker = new BlockHeightTracker();
     private ThreadPoolTaskExecutor threadPool;
     private String blockListenerHandler;
     private Map<String, String> properties = new HashMap<>();
+    private EndorsementCompletionPolicy callCompletionPolicy;
+    private EndorsementCompletionPolicy transactionCompletionPolicy;
+    private boolean policyCompletion;
+    private boolean policyAwareSelection;
+    private FabricStubConfigParser.Advanced.Query queryConfig;
+    private PeerLoadBalancer peerLoadBalancer;
+    private PeerHealth peerHealth;
+    private OrdererSelector ordererSelector = new OrdererSelector();
+    private Map<Orderer, OrdererBroadcastStream> broadcastStreams = new ConcurrentHashMap<>();
+    private CommitTimeoutPolicy commitTimeoutPolicy;
+    private CommitEventDispatcher commitEventDispatcher;
+    private FabricStubConfigParser.Advanced.Orderer ordererConfig;
+    private BlockCache blockCache; // null if disabled
+    private BlockStore blockStore; // null if disabled
+    private TransactionIndex transactionIndex; // null if disabled
 
     public FabricConnection(
             HFClient hfClient,
             Channel channel,
             Map<String, Peer> peersMap,
             String proxyChaincodeName,
-            ThreadPoolTaskExecutor threadPool) {
+            ThreadPoolTaskExecutor threadPool,
+            FabricStubConfigParser.Advanced advanced) {
         this.hfClient = hfClient;
         this.channel = channel;
+        FabricStubConfigParser.Advanced.ChaincodeDiscovery chaincodeDiscovery =
+                advanced.getChaincodeDiscovery();
         this.chaincodeResourceManager =
-                new ChaincodeResourceManager(hfClient, channel, peersMap, proxyChaincodeName);
+                new ChaincodeResourceManager(
+                        hfClient,
+                        channel,
+                        peersMap,
+                        proxyChaincodeName,
+                        chaincodeDiscovery.isEventDriven(),
+                        chaincodeDiscovery.getPollInterval() * 1000L,
+                        chaincodeDiscovery.getProbeTimeout());
         this.peersMap = peersMap;
         this.proxyChaincodeName = proxyChaincodeName;
 
@@ -83,8 +117,74 @@ public class FabricConnection implements Connection {
         this.timeoutHandler = new HashedWheelTimer();
 
         this.threadPool = threadPool;
+        FabricStubConfigParser.Advanced.Commit commit = advanced.getCommit();
+        this.commitTimeoutPolicy =
+                new CommitTimeoutPolicy(
+                        commit.isAdaptive(),
+                        commit.getTimeout(),
+                        commit.getMinTimeout(),
+                        commit.getMaxTimeout());
+        this.commitEventDispatcher = new CommitEventDispatcher(threadPool, commitTimeoutPolicy);
 
         this.properties = Properties.builder().channelName(this.channel.getName()).toMap();
+
+        FabricStubConfigParser.Advanced.Endorsement endorsement = advanced.getEndorsement();
+        if (endorsement.isEarlyCompletion()) {
+            // a query needs only one answer, a transaction needs the configured number
+            this.callCompletionPolicy = EndorsementCompletionPolicy.anyOne();
+            this.transactionCompletionPolicy =
+                    endorsement.getRequiredEndorsements() > 0
+                            ? EndorsementCompletionPolicy.outOf(
+                                    endorsement.getRequiredEndorsements())
+                            : EndorsementCompletionPolicy.all();
+        } else {
+            this.callCompletionPolicy = EndorsementCompletionPolicy.all();
+            this.transactionCompletionPolicy = EndorsementCompletionPolicy.all();
+        }
+        // without a configured number, complete once the chaincode policy is satisfied
+        this.policyCompletion =
+                endorsement.isEarlyCompletion() && endorsement.getRequiredEndorsements() <= 0;
+        this.policyAwareSelection = endorsement.isPolicyAwareSelection();
+
+        this.queryConfig = advanced.getQuery();
+        this.ordererConfig = advanced.getOrderer();
+        this.peerLoadBalancer = new PeerLoadBalancer(peersMap, queryConfig.getMinHedgeDelay());
+
+        FabricStubConfigParser.Advanced.PeerHealth peerHealthConfig = advanced.getPeerHealth();
+        this.peerHealth =
+                new PeerHealth(
+                        peersMap,
+                        peerHealthConfig.isEnable(),
+                        peerHealthConfig.getFailureThreshold(),
+                        peerHealthConfig.getProbeInterval());
+
+        FabricStubConfigParser.Advanced.BlockCache blockCacheConfig = advanced.getBlockCache();
+        if (blockCacheConfig.isEnable()) {
+            this.blockCache =
+                    new BlockCache(
+                            blockCacheConfig.getMaxSize() * 1024L * 1024L,
+                            blockCacheConfig.getPrefetch());
+        }
+
+        FabricStubConfigParser.Advanced.BlockStore blockStoreConfig = advanced.getBlockStore();
+        if (blockStoreConfig.isEnable()) {
+            try {
+                this.blockStore = new BlockStore(blockStoreConfig.getPath());
+            } catch (Exception e) {
+                logger.error("Open block store {} exception: ", blockStoreConfig.getPath(), e);
+            }
+        }
+
+        FabricStubConfigParser.Advanced.TxIndex txIndexConfig = advanced.getTxIndex();
+        if (txIndexConfig.isEnable()) {
+            this.transactionIndex = new TransactionIndex(txIndexConfig.getMaxSize());
+        }
+        logger.info(
+                "Endorsement completion policy, call: {}, transaction: {}, policyCompletion: {}, policyAwareSelection: {}",
+                callCompletionPolicy.info(),
+                transactionCompletionPolicy.info(),
+                policyCompletion,
+                policyAwareSelection);
     }
 
     public void start() throws Exception {
@@ -92,16 +192,78 @@ public class FabricConnection implements Connection {
                 channel.registerBlockListener(
                         blockEvent -> {
                             long currentBlockNumber = blockEvent.getBlockNumber();
-                            if (this.latestBlockNumber < currentBlockNumber) {
-                                this.latestBlockNumber = currentBlockNumber;
+                            if (blockCache != null || blockStore != null) {
+                                byte[] blockBytes = blockEvent.getBlock().toByteArray();
+                                if (blockCache != null) {
+                                    blockCache.put(currentBlockNumber, blockBytes);
+                                }
+                                if (blockStore != null) {
+                                    blockStore.put(currentBlockNumber, blockBytes);
+                                }
+                            }
+                            // envelopes are decoded once for every consumer of the block
+                            BlockTransactions transactions =
+                                    new BlockTransactions(blockEvent.getBlock());
+                            if (transactionIndex != null) {
+                                transactionIndex.indexBlock(transactions);
                             }
+                            chaincodeResourceManager.onBlock(transactions);
+                            commitEventDispatcher.onBlock(transactions);
+                            blockHeightTracker.update(currentBlockNumber);
                         });
 
         channel.initialize();
 
+        try {
+            // not 0 until the first block event
+            blockHeightTracker.update(channel.queryBlockchainInfo().getHeight() - 1);
+        } catch (Exception e) {
+            logger.warn("Query blockchain info of {} exception: ", channel.getName(), e);
+        }
+
         threadPool.initialize();
 
+        // a tripped peer is readmitted once it answers a ledger query again
+        peerHealth.start(peer -> channel.queryBlockchainInfo(peer) != null, threadPool);
+
+        if (transactionIndex != null && blockStore != null) {
+            // the index lives in memory, rebuild it from the blocks stored before restart
+            threadPool.execute(
+                    () -> {
+                        for (Long blockNumber : blockStore.getBlockNumbers()) {
+                            byte[] blockBytes = blockStore.get(blockNumber);
+                            if (blockBytes != null) {
+                                transactionIndex.indexBlock(blockBytes);
+                            }
+                        }
+                        logger.info("Transaction index rebuilt, size: {}", transactionIndex.size());
+                    });
+        }
+
         chaincodeResourceManager.start();
+
+        if (blockStore != null) {
+            // the router has no stop hook for connections, flush the store when it exits
+            Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
+        }
+    }
+
+    // Stop receiving blocks and updating chaincodes, close the block store
+    public synchronized void stop() {
+        try {
+            if (blockListenerHandler != null) {
+                channel.unregisterBlockListener(blockListenerHandler);
+                blockListenerHandler = null;
+            }
+        } catch (Exception e) {
+            logger.warn("Unregister block listener of {} exception: ", channel.getName(), e);
+        }
+
+        chaincodeResourceManager.stop();
+
+        if (blockStore != null) {
+            blockStore.close();
+        }
     }
 
     private Response send(Request request) {
@@ -152,6 +314,18 @@ public class FabricConnection implements Connection {
             case FabricType.ConnectionMessage.FABRIC_SENDTRANSACTION_ORG_ENDORSER:
                 handleAsyncInstallChaincodeProposal(request, callback);
                 break;
+
+            case FabricType.ConnectionMessage.FABRIC_SUBMIT_TRANSACTION_ORDERER:
+                handleAsyncSubmitTransactionOrderer(request, callback);
+                break;
+
+            case FabricType.ConnectionMessage.FABRIC_WAIT_BLOCK_NUMBER:
+                handleAsyncWaitBlockNumber(request, callback);
+                break;
+
+            case FabricType.ConnectionMessage.FABRIC_GET_BLOCK_STREAM:
+                handleAsyncGetBlockStream(request, callback);
+                break;
             default:
                 callback.onResponse(send(request));
         }
@@ -234,8 +408,22 @@ public class FabricConnection implements Connection {
     }
 
     private void handleAsyncCall(Request request, Connection.Callback callback) {
-        // chaincode call is sync, use thread pool to simulate async for better performance
-        threadPool.execute(() -> callback.onResponse(handleCall(request)));
+        ChaincodeResource chaincodeResource =
+                chaincodeResourceManager.getChaincodeResource(request.getResourceInfo().getName());
+        if (chaincodeResource != null) {
+            if (queryConfig.isLoadBalance()) {
+                asyncBalancedCall(request, chaincodeResource.getEndorsers(), callback);
+            } else {
+                asyncCall(request, chaincodeResource.getEndorsers(), callback);
+            }
+        } else {
+            callback.onResponse(
+                    FabricConnectionResponse.build()
+                            .errorCode(FabricType.TransactionResponseStatus.RESOURCE_NOT_FOUND)
+                            .errorMessage(
+                                    "Resource not found, getResourceInfo: "
+                                            + request.getResourceInfo().toString()));
+        }
     }
 
     private Response handleSendTransactionEndorser(Request request) {
@@ -252,8 +440,18 @@ public class FabricConnection implements Connection {
     }
 
     private void handleAsyncSendTransactionEndorser(Request request, Connection.Callback callback) {
-        // chaincode call is sync, use thread pool to simulate async for better performance
-        threadPool.execute(() -> callback.onResponse(handleSendTransactionEndorser(request)));
+        ChaincodeResource chaincodeResource =
+                chaincodeResourceManager.getChaincodeResource(request.getResourceInfo().getName());
+        if (chaincodeResource != null) {
+            asyncSendTransactionEndorser(request, chaincodeResource, callback);
+        } else {
+            callback.onResponse(
+                    FabricConnectionResponse.build()
+                            .errorCode(FabricType.TransactionResponseStatus.RESOURCE_NOT_FOUND)
+                            .errorMessage(
+                                    "Resource not found, name: "
+                                            + request.getResourceInfo().getName()));
+        }
     }
 
     private Response handleSendTransactionOrderer(Request request) {
@@ -262,7 +460,9 @@ public class FabricConnection implements Connection {
         handleAsyncSendTransactionOrderer(request, response -> responseFuture.complete(response));
 
         try {
-            return responseFuture.get(10000, TimeUnit.MILLISECONDS);
+            // a little longer than the commit timeout, which responds first
+            return responseFuture.get(
+                    commitTimeoutPolicy.getTimeout() + 1000, TimeUnit.MILLISECONDS);
         } catch (Exception e) {
             return FabricConnectionResponse.build()
                     .errorCode(FabricType.TransactionResponseStatus.INTERNAL_ERROR)
@@ -282,8 +482,69 @@ public class FabricConnection implements Connection {
                 });
     }
 
+    // Respond with the txID once an orderer has accepted the transaction, commit is not waited
+    private void handleAsyncSubmitTransactionOrderer(
+            Request request, Connection.Callback callback) {
+        SendTransactionOrdererCallback ordererCallback =
+                new SendTransactionOrdererCallback() {
+                    @Override
+                    public void onResponse(Response response) {
+                        callback.onResponse(response);
+                    }
+                };
+
+        try {
+            Common.Envelope envelope =
+                    ProtoBytes.parse(Common.Envelope.parser(), request.getData());
+            String proposalTransactionID = getTxIDFromProposalBytes(envelope.getPayload());
+
+            new OrdererBroadcast(envelope, proposalTransactionID)
+                    .start()
+                    .whenComplete(
+                            (resp, e) -> {
+                                if (e != null) {
+                                    ordererCallback.onResponseInternal(
+                                            FabricConnectionResponse.build()
+                                                    .errorCode(
+                                                            FabricType.TransactionResponseStatus
+                                                                    .FABRIC_COMMIT_CHAINCODE_FAILED)
+                                                    .errorMessage(
+                                                            "Invoke orderer exception: " + e));
+                                } else {
+                                    ordererCallback.onResponseInternal(
+                                            FabricConnectionResponse.build()
+                                                    .errorCode(
+                                                            FabricType.TransactionResponseStatus
+                                                                    .SUCCESS)
+                                                    .errorMessage("Success")
+                                                    .data(
+                                                            proposalTransactionID.getBytes(
+                                                                    StandardCharsets.UTF_8)));
+                                }
+                            });
+
+            ordererCallback.setTimeout(
+                    timeoutHandler.newTimeout(
+                            new TimerTask() {
+                                @Override
+                                public void run(Timeout timeout) throws Exception {
+                                    ordererCallback.onTimeout();
+                                }
+                            },
+                            commitTimeoutPolicy.getTimeout(),
+                            TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+            ordererCallback.onResponseInternal(
+                    FabricConnectionResponse.build()
+                            .errorCode(
+                                    FabricType.TransactionResponseStatus
+                                            .FABRIC_COMMIT_CHAINCODE_FAILED)
+                            .errorMessage("Invoke orderer exception: " + e));
+        }
+    }
+
     private Response handleGetBlockNumber(Request request) {
-        byte[] numberBytes = longToBytes(latestBlockNumber);
+        byte[] numberBytes = longToBytes(blockHeightTracker.getBlockNumber());
 
         return FabricConnectionResponse.build()
                 .errorCode(FabricType.TransactionResponseStatus.SUCCESS)
@@ -291,15 +552,61 @@ public class FabricConnection implements Connection {
                 .data(numberBytes);
     }
 
+    // Long poll: respond with the latest block number once it reaches the requested one, or
+    // after WAIT_BLOCK_NUMBER_TIMEOUT with whatever it is
+    private void handleAsyncWaitBlockNumber(Request request, Connection.Callback callback) {
+        try {
+            long blockNumber = bytesToLong(request.getData());
+            waitForBlockNumber(blockNumber, WAIT_BLOCK_NUMBER_TIMEOUT)
+                    .thenAccept(
+                            latestBlockNumber ->
+                                    callback.onResponse(
+                                            FabricConnectionResponse.build()
+                                                    .errorCode(
+                                                            FabricType.TransactionResponseStatus
+                                                                    .SUCCESS)
+                                                    .errorMessage("Success")
+                                                    .data(longToBytes(latestBlockNumber))));
+        } catch (Exception e) {
+            callback.onResponse(
+                    FabricConnectionResponse.build()
+                            .errorCode(FabricType.TransactionResponseStatus.INTERNAL_ERROR)
+                            .errorMessage("Wait block number exception: " + e));
+        }
+    }
+
+    // Completed with the latest block number once it is >= blockNumber, or after timeout (ms)
+    // with a smaller one
+    public CompletableFuture<Long> waitForBlockNumber(long blockNumber, long timeout) {
+        CompletableFuture<Long> future = blockHeightTracker.waitFor(blockNumber);
+        if (!future.isDone()) {
+            Timeout waitTimeout =
+                    timeoutHandler.newTimeout(
+                            new TimerTask() {
+                                @Override
+                                public void run(Timeout timeout) throws Exception {
+                                    blockHeightTracker.cancel(blockNumber, future);
+                                    future.complete(blockHeightTracker.getBlockNumber());
+                                }
+                            },
+                            timeout,
+                            TimeUnit.MILLISECONDS);
+            future.thenRun(() -> waitTimeout.cancel());
+        }
+        return future;
+    }
+
+    public long getBlockNumber() {
+        return blockHeightTracker.getBlockNumber();
+    }
+
     private Response handleGetBlock(Request request) {
 
         Response response;
         try {
             long blockNumber = bytesToLong(request.getData());
 
-            // Fabric Just return block
-            BlockInfo blockInfo = channel.queryBlockByNumber(blockNumber);
-            byte[] blockBytes = blockInfo.getBlock().toByteArray();
+            byte[] blockBytes = getBlockBytes(blockNumber);
 
             response =
                     FabricConnectionResponse.build()
@@ -316,16 +623,152 @@ public class FabricConnection implements Connection {
         return response;
     }
 
+    private byte[] getBlockBytes(long blockNumber) throws Exception {
+        if (blockCache == null) {
+            return queryBlockBytes(blockNumber);
+        }
+
+        byte[] blockBytes = blockCache.get(blockNumber);
+        if (blockBytes == null) {
+            blockBytes = queryBlockBytes(blockNumber);
+            blockCache.put(blockNumber, blockBytes);
+
+            // a miss behind the latest block means the caller is catching up
+            blockCache.prefetch(
+                    blockNumber,
+                    blockHeightTracker.getBlockNumber(),
+                    this::queryBlockBytes,
+                    threadPool);
+        }
+        return blockBytes;
+    }
+
+    // Read from the local block store first, blocks queried from peer are stored too
+    private byte[] queryBlockBytes(long blockNumber) throws Exception {
+        if (blockStore != null) {
+            byte[] blockBytes = blockStore.get(blockNumber);
+            if (blockBytes != null) {
+                return blockBytes;
+            }
+        }
+
+        // Fabric Just return block
+        BlockInfo blockInfo = channel.queryBlockByNumber(blockNumber);
+        byte[] blockBytes = blockInfo.getBlock().toByteArray();
+        if (blockStore != null) {
+            blockStore.put(blockNumber, blockBytes);
+        }
+        if (transactionIndex != null) {
+            transactionIndex.indexBlock(blockInfo.getBlock());
+        }
+        return blockBytes;
+    }
+
+    // Callback is called for every block in order, then once with empty data at the end. It is
+    // called on the stream thread and the next block is requested when it returns, see
+    // BlockDeliverStream.Handler
+    private void handleAsyncGetBlockStream(Request request, Connection.Callback callback) {
+        try {
+            BlockStreamRequest blockStreamRequest = BlockStreamRequest.parseFrom(request.getData());
+            if (blockStreamRequest.getStartBlockNumber() < 0
+                    || blockStreamRequest.getStartBlockNumber()
+                            > blockStreamRequest.getEndBlockNumber()) {
+                throw new Exception("Illegal block range: " + blockStreamRequest);
+            }
+
+            // a long stream is not started on a tripped peer
+            List<Peer> peers = new ArrayList<>(peerHealth.filterAvailable(peersMap.values()));
+            if (peers.isEmpty()) {
+                throw new Exception("No peer to stream blocks from");
+            }
+            Collections.shuffle(peers);
+            Peer peer = peers.get(0);
+
+            FabricInnerFunction.PeerEndpoint endpoint = fabricInnerFunction.openPeerEndpoint(peer);
+            TransactionContext transactionContext =
+                    new TransactionContext(
+                            channel, hfClient.getUserContext(), hfClient.getCryptoSuite());
+            Common.Envelope seekEnvelope =
+                    BlockDeliverStream.buildSeekEnvelope(
+                            transactionContext,
+                            blockStreamRequest.getStartBlockNumber(),
+                            blockStreamRequest.getEndBlockNumber(),
+                            endpoint.getTlsCertHash());
+
+            logger.debug("Stream blocks {} from {}", blockStreamRequest, peer);
+            new BlockDeliverStream(
+                            endpoint.getManagedChannel(),
+                            seekEnvelope,
+                            BLOCK_STREAM_WINDOW,
+                            new BlockDeliverStream.Handler() {
+                                @Override
+                                public void onBlock(long blockNumber, byte[] blockBytes) {
+                                    if (blockCache != null) {
+                                        blockCache.put(blockNumber, blockBytes);
+                                    }
+                                    if (blockStore != null) {
+                                        blockStore.put(blockNumber, blockBytes);
+                                    }
+                                    if (transactionIndex != null) {
+                                        transactionIndex.indexBlock(blockBytes);
+                                    }
+                                    callback.onResponse(
+                                            FabricConnectionResponse.build()
+                                                    .errorCode(
+                                                            FabricType.TransactionResponseStatus
+                                                                    .SUCCESS)
+                                                    .errorMessage("Success")
+                                                    .data(blockBytes));
+                                }
+
+                                @Override
+                                public void onFinish(Exception e) {
+                                    if (e == null) {
+                                        callback.onResponse(
+                                                FabricConnectionResponse.build()
+                                                        .errorCode(
+                                                                FabricType.TransactionResponseStatus
+                                                                        .SUCCESS)
+                                                        .errorMessage("Stream end"));
+                                    } else {
+                                        callback.onResponse(
+                                                FabricConnectionResponse.build()
+                                                        .errorCode(
+                                                                FabricType.TransactionResponseStatus
+                                                                        .INTERNAL_ERROR)
+                                                        .errorMessage(
+                                                                "Get block stream exception: "
+                                                                        + e.getMessage()));
+                                    }
+                                }
+                            })
+                    .start();
+        } catch (Exception e) {
+            callback.onResponse(
+                    FabricConnectionResponse.build()
+                            .errorCode(FabricType.TransactionResponseStatus.INTERNAL_ERROR)
+                            .errorMessage("Get block stream exception: " + e));
+        }
+    }
+
+    public BlockCache getBlockCache() {
+        return blockCache;
+    }
+
     public Response handleGetTransaction(Request request) {
         Response response;
         try {
             String txID = new String(request.getData());
-            TransactionInfo transactionInfo = channel.queryTransactionByID(txID);
+            byte[] envelopeBytes = getLocalEnvelopeBytes(txID);
+            if (envelopeBytes == null) {
+                TransactionInfo transactionInfo = channel.queryTransactionByID(txID);
+                envelopeBytes = transactionInfo.getEnvelope().toByteArray();
+            }
             response =
                     FabricConnectionResponse.build()
                             .errorCode(FabricType.TransactionResponseStatus.SUCCESS)
                             .errorMessage("Success")
-                            .data(transactionInfo.getEnvelope().toByteArray());
+                            .data(envelopeBytes);
 
         } catch (Exception e) {
             response =
@@ -336,6 +779,30 @@ public class FabricConnection implements Connection {
         return response;
     }
 
+    // Read the transaction from its indexed block, null if it has to be queried from peer
+    private byte[] getLocalEnvelopeBytes(String txID) {
+        if (transactionIndex == null) {
+            return null;
+        }
+
+        TransactionIndex.Location location = transactionIndex.get(txID);
+        if (location == null) {
+            return null;
+        }
+
+        try {
+            byte[] blockBytes = getBlockBytes(location.getBlockNumber());
+            return TransactionIndex.getEnvelopeBytes(blockBytes, location, txID);
+        } catch (Exception e) {
+            logger.debug("Get transaction {} at {} exception: ", txID, location, e);
+            return null;
+        }
+    }
+
+    public TransactionIndex getTransactionIndex() {
+        return transactionIndex;
+    }
+
     private void checkNonExistOrgSet(Collection<String> orgSet, Collection<String> peerOrgSet)
             throws Exception {
         String[] orgArray = orgSet.toArray(new String[] {});
@@ -346,34 +813,67 @@ public class FabricConnection implements Connection {
         }
     }
 
+    private Collection<Peer> getOrgPeers(Request request, String[] orgNames) throws Exception {
+        Collection<String> orgSet = new HashSet<>(Arrays.asList(orgNames));
+        Collection<String> peerOrgSet = new HashSet<>();
+
+        Collection<Peer> orgPeers = new HashSet<>();
+        for (Map.Entry<String, Peer> peerEntry : peersMap.entrySet()) {
+            Peer peer = peerEntry.getValue();
+            String peerOrg = (String) peer.getProperties().getProperty(FabricType.ORG_NAME_DEF);
+            peerOrgSet.add(peerOrg);
+            if (orgSet.contains(peerOrg)) {
+                logger.debug(
+                        "Peer:{} of will install chaincode {}",
+                        peerEntry.getKey(),
+                        request.getResourceInfo().getName());
+                orgPeers.add(peer);
+            }
+        }
+
+        checkNonExistOrgSet(orgSet, peerOrgSet);
+        return orgPeers;
+    }
+
     private Response handleSendTransactionToOrgsEndorsor(Request request) {
-        FabricConnectionResponse response;
+        Response response;
         try {
             TransactionParams transactionParams = TransactionParams.parseFrom(request.getData());
             request.setData(transactionParams.getData());
 
-            String[] orgNames = transactionParams.getOrgNames();
-
-            Collection<String> orgSet = new HashSet<>(Arrays.asList(orgNames));
-            Collection<String> peerOrgSet = new HashSet<>();
-
-            Collection<Peer> orgPeers = new HashSet<>();
-            for (Map.Entry<String, Peer> peerEntry : peersMap.entrySet()) {
-                Peer peer = peerEntry.getValue();
-                String peerOrg = (String) peer.getProperties().getProperty(FabricType.ORG_NAME_DEF);
-                peerOrgSet.add(peerOrg);
-                if (orgSet.contains(peerOrg)) {
-                    logger.debug(
-                            "Peer:{} of will install chaincode {}",
-                            peerEntry.getKey(),
-                            request.getResourceInfo().getName());
-                    orgPeers.add(peer);
-                }
-            }
-
-            checkNonExistOrgSet(orgSet, peerOrgSet);
+            Collection<Peer> orgPeers = getOrgPeers(request, transactionParams.getOrgNames());
 
             Collection<ProposalResponse> proposalResponses = queryEndorser(request, orgPeers);
+            response = buildOrgsEndorserResponse(orgPeers, proposalResponses);
+        } catch (Exception e) {
+            response = buildOrgsEndorserExceptionResponse(e);
+        }
+        return response;
+    }
+
+    private void handleAsyncInstallChaincodeProposal(
+            Request request, Connection.Callback callback) {
+        try {
+            TransactionParams transactionParams = TransactionParams.parseFrom(request.getData());
+            request.setData(transactionParams.getData());
+
+            Collection<Peer> orgPeers = getOrgPeers(request, transactionParams.getOrgNames());
+
+            asyncQueryEndorser(
+                    request.getData(),
+                    orgPeers,
+                    proposalResponses ->
+                            callback.onResponse(
+                                    buildOrgsEndorserResponse(orgPeers, proposalResponses)));
+        } catch (Exception e) {
+            callback.onResponse(buildOrgsEndorserExceptionResponse(e));
+        }
+    }
+
+    private Response buildOrgsEndorserResponse(
+            Collection<Peer> orgPeers, Collection<ProposalResponse> proposalResponses) {
+        FabricConnectionResponse response;
+        try {
             EndorsementPolicyAnalyzer analyzer = new EndorsementPolicyAnalyzer(proposalResponses);
 
             if (analyzer.allSuccess()) { // All success endorsement policy, TODO: pull policy
@@ -396,22 +896,16 @@ public class FabricConnection implements Connection {
                                                 + " endorser failed: "
                                                 + analyzer.info());
             }
-
         } catch (Exception e) {
-            response =
-                    FabricConnectionResponse.build()
-                            .errorCode(
-                                    FabricType.TransactionResponseStatus
-                                            .FABRIC_INVOKE_CHAINCODE_FAILED)
-                            .errorMessage("Install chaincode query to endorser exception: " + e);
+            response = buildOrgsEndorserExceptionResponse(e);
         }
         return response;
     }
 
-    private void handleAsyncInstallChaincodeProposal(
-            Request request, Connection.Callback callback) {
-        // send proposal is sync, use thread pool to simulate async for better performance
-        threadPool.execute(() -> callback.onResponse(handleSendTransactionToOrgsEndorsor(request)));
+    private FabricConnectionResponse buildOrgsEndorserExceptionResponse(Exception e) {
+        return FabricConnectionResponse.build()
+                .errorCode(FabricType.TransactionResponseStatus.FABRIC_INVOKE_CHAINCODE_FAILED)
+                .errorMessage("Install chaincode query to endorser exception: " + e);
     }
 
     private Response call(Request request, Collection<Peer> endorsers) {
@@ -421,12 +915,187 @@ public class FabricConnection implements Connection {
                     .errorMessage("Illegal request type: " + request.getType());
         }
 
-        FabricConnectionResponse response;
         try {
             TransactionParams transactionParams = TransactionParams.parseFrom(request.getData());
 
             Collection<ProposalResponse> proposalResponses =
                     queryEndorser(transactionParams.getData(), endorsers);
+            return buildCallResponse(proposalResponses);
+        } catch (Exception e) {
+            return buildQueryEndorserExceptionResponse(e);
+        }
+    }
+
+    private void asyncCall(
+            Request request, Collection<Peer> endorsers, Connection.Callback callback) {
+        if (request.getType() != FabricType.ConnectionMessage.FABRIC_CALL) {
+            callback.onResponse(
+                    FabricConnectionResponse.build()
+                            .errorCode(FabricType.TransactionResponseStatus.ILLEGAL_REQUEST_TYPE)
+                            .errorMessage("Illegal request type: " + request.getType()));
+            return;
+        }
+
+        try {
+            TransactionParams transactionParams = TransactionParams.parseFrom(request.getData());
+
+            asyncQueryEndorser(
+                    transactionParams.getData(),
+                    endorsers,
+                    callCompletionPolicy,
+                    proposalResponses -> callback.onResponse(buildCallResponse(proposalResponses)));
+        } catch (Exception e) {
+            callback.onResponse(buildQueryEndorserExceptionResponse(e));
+        }
+    }
+
+    // Send a call to one peer chosen by the balancer instead of all endorsers
+    private void asyncBalancedCall(
+            Request request, Collection<Peer> endorsers, Connection.Callback callback) {
+        if (request.getType() != FabricType.ConnectionMessage.FABRIC_CALL) {
+            callback.onResponse(
+                    FabricConnectionResponse.build()
+                            .errorCode(FabricType.TransactionResponseStatus.ILLEGAL_REQUEST_TYPE)
+                            .errorMessage("Illegal request type: " + request.getType()));
+            return;
+        }
+
+        try {
+            TransactionParams transactionParams = TransactionParams.parseFrom(request.getData());
+
+            endorsers = peerHealth.filterAvailable(endorsers);
+            Peer peer = peerLoadBalancer.choose(endorsers, null);
+            if (peer == null) {
+                callback.onResponse(
+                        FabricConnectionResponse.build()
+                                .errorCode(
+                                        FabricType.TransactionResponseStatus
+                                                .FABRIC_INVOKE_CHAINCODE_FAILED)
+                                .errorMessage("Query endorser failed: no endorser available"));
+                return;
+            }
+
+            BalancedCall balancedCall =
+                    new BalancedCall(transactionParams.getData(), endorsers, peer, callback);
+            balancedCall.send(peer);
+
+            if (queryConfig.isHedge() && endorsers.size() > 1) {
+                timeoutHandler.newTimeout(
+                        new TimerTask() {
+                            @Override
+                            public void run(Timeout timeout) throws Exception {
+                                balancedCall.hedge();
+                            }
+                        },
+                        peerLoadBalancer.getHedgeDelay(
+                                peer,
+                                queryConfig.getHedgeDelayPercentile(),
+                                queryConfig.getMinHedgeDelay()),
+                        TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            callback.onResponse(buildQueryEndorserExceptionResponse(e));
+        }
+    }
+
+    // A call sent to a first peer, and to a second one if the first is slow or has failed
+    private class BalancedCall {
+        private byte[] data;
+        private Collection<Peer> endorsers;
+        private Peer firstPeer;
+        private Connection.Callback callback;
+        private AtomicBoolean hasResponsed = new AtomicBoolean(false);
+        private AtomicBoolean hedged = new AtomicBoolean(false);
+        private AtomicInteger pending = new AtomicInteger(0);
+
+        BalancedCall(
+                byte[] data,
+                Collection<Peer> endorsers,
+                Peer firstPeer,
+                Connection.Callback callback) {
+            this.data = data;
+            this.endorsers = endorsers;
+            this.firstPeer = firstPeer;
+            this.callback = callback;
+        }
+
+        void send(Peer peer) {
+            pending.incrementAndGet();
+            peerLoadBalancer.onSend(peer);
+            long startTime = System.currentTimeMillis();
+            try {
+                asyncQueryEndorser(
+                        data,
+                        Collections.singleton(peer),
+                        proposalResponses -> {
+                            // a chaincode error is deterministic, another peer would return it
+                            // too, only a peer which has not answered is a failure
+                            boolean answered = hasPeerAnswer(proposalResponses);
+                            peerLoadBalancer.onResponse(
+                                    peer, System.currentTimeMillis() - startTime, answered);
+                            onResponse(buildCallResponse(proposalResponses), answered);
+                        });
+            } catch (Exception e) {
+                peerLoadBalancer.onResponse(peer, System.currentTimeMillis() - startTime, false);
+                onResponse(buildQueryEndorserExceptionResponse(e), false);
+            }
+        }
+
+        // Send to a second peer, only once
+        boolean hedge() {
+            if (hasResponsed.get() || !hedged.compareAndSet(false, true)) {
+                return false;
+            }
+
+            Peer peer = peerLoadBalancer.choose(endorsers, firstPeer);
+            if (peer == null) {
+                return false;
+            }
+
+            logger.debug("Hedge call from {} to {}", firstPeer, peer);
+            send(peer);
+            return true;
+        }
+
+        private void onResponse(Response response, boolean answered) {
+            if (hasResponsed.get()) {
+                return;
+            }
+
+            if (!answered && hedge()) {
+                pending.decrementAndGet(); // retry on another peer
+                return;
+            }
+
+            if ((answered || pending.decrementAndGet() == 0)
+                    && hasResponsed.compareAndSet(false, true)) {
+                callback.onResponse(response);
+            }
+        }
+    }
+
+    // The peer has returned a proposal response, whatever its status. Failed responses built
+    // on timeout or transport errors have none
+    private static boolean hasPeerAnswer(Collection<ProposalResponse> proposalResponses) {
+        for (ProposalResponse proposalResponse : proposalResponses) {
+            if (proposalResponse.getProposalResponse() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Map<String, PeerLoadBalancer.PeerStats> getPeerStats() {
+        return peerLoadBalancer.getPeerStats();
+    }
+
+    public Map<String, PeerHealth.PeerState> getPeerHealth() {
+        return peerHealth.getPeerStates();
+    }
+
+    private Response buildCallResponse(Collection<ProposalResponse> proposalResponses) {
+        FabricConnectionResponse response;
+        try {
             EndorsementPolicyAnalyzer analyzer = new EndorsementPolicyAnalyzer(proposalResponses);
 
             if (analyzer.hasSuccess()) {
@@ -444,12 +1113,7 @@ public class FabricConnection implements Connection {
                                 .errorMessage("Query endorser failed: " + analyzer.info());
             }
         } catch (Exception e) {
-            response =
-                    FabricConnectionResponse.build()
-                            .errorCode(
-                                    FabricType.TransactionResponseStatus
-                                            .FABRIC_INVOKE_CHAINCODE_FAILED)
-                            .errorMessage("Query endorser exception: " + e);
+            response = buildQueryEndorserExceptionResponse(e);
         }
         return response;
     }
@@ -461,12 +1125,117 @@ public class FabricConnection implements Connection {
                     .errorMessage("Illegal request type: " + request.getType());
         }
 
-        FabricConnectionResponse response;
         try {
             TransactionParams transactionParams = TransactionParams.parseFrom(request.getData());
 
             Collection<ProposalResponse> proposalResponses =
                     queryEndorser(transactionParams.getData(), endorsers);
+            return buildSendTransactionEndorserResponse(proposalResponses);
+        } catch (Exception e) {
+            return buildQueryEndorserExceptionResponse(e);
+        }
+    }
+
+    private void asyncSendTransactionEndorser(
+            Request request, ChaincodeResource chaincodeResource, Connection.Callback callback) {
+        if (request.getType() != FabricType.ConnectionMessage.FABRIC_SENDTRANSACTION_ENDORSER) {
+            callback.onResponse(
+                    FabricConnectionResponse.build()
+                            .errorCode(FabricType.TransactionResponseStatus.ILLEGAL_REQUEST_TYPE)
+                            .errorMessage("Illegal request type: " + request.getType()));
+            return;
+        }
+
+        try {
+            TransactionParams transactionParams = TransactionParams.parseFrom(request.getData());
+
+            ChaincodePolicy policy = chaincodeResource.getPolicy();
+            if (policy == null || !policy.isSupported()) {
+                // policy unknown, send to all endorsers as before
+                asyncQueryEndorser(
+                        transactionParams.getData(),
+                        chaincodeResource.getEndorsers(),
+                        transactionCompletionPolicy,
+                        proposalResponses ->
+                                callback.onResponse(
+                                        buildSendTransactionEndorserResponse(proposalResponses)));
+                return;
+            }
+
+            Collection<Peer> endorsers =
+                    policyAwareSelection
+                            ? chaincodeResource.selectEndorsers(peerHealth::isAvailable)
+                            : chaincodeResource.getEndorsers();
+            EndorsementCompletionPolicy completionPolicy =
+                    policyCompletion
+                            ? EndorsementCompletionPolicy.satisfying(policy)
+                            : transactionCompletionPolicy;
+
+            asyncQueryEndorser(
+                    transactionParams.getData(),
+                    endorsers,
+                    completionPolicy,
+                    proposalResponses -> {
+                        if (!policyAwareSelection
+                                || policy.isSatisfiedBy(
+                                        EndorsementCompletionPolicy.successEndorserMspIds(
+                                                proposalResponses))) {
+                            callback.onResponse(
+                                    buildSendTransactionEndorserResponse(proposalResponses));
+                        } else if (endorsers != chaincodeResource.getEndorsers()) {
+                            logger.debug(
+                                    "Selected endorsers {} do not satisfy policy, try all endorsers",
+                                    endorsers);
+                            asyncSendTransactionAllEndorsers(
+                                    transactionParams.getData(),
+                                    chaincodeResource,
+                                    policy,
+                                    callback);
+                        } else {
+                            callback.onResponse(buildPolicyNotSatisfiedResponse(policy));
+                        }
+                    });
+        } catch (Exception e) {
+            callback.onResponse(buildQueryEndorserExceptionResponse(e));
+        }
+    }
+
+    // Fallback of policy aware selection when some of the selected endorsers failed
+    private void asyncSendTransactionAllEndorsers(
+            byte[] data,
+            ChaincodeResource chaincodeResource,
+            ChaincodePolicy policy,
+            Connection.Callback callback) {
+        try {
+            asyncQueryEndorser(
+                    data,
+                    chaincodeResource.getEndorsers(),
+                    EndorsementCompletionPolicy.satisfying(policy),
+                    proposalResponses -> {
+                        if (policy.isSatisfiedBy(
+                                EndorsementCompletionPolicy.successEndorserMspIds(
+                                        proposalResponses))) {
+                            callback.onResponse(
+                                    buildSendTransactionEndorserResponse(proposalResponses));
+                        } else {
+                            callback.onResponse(buildPolicyNotSatisfiedResponse(policy));
+                        }
+                    });
+        } catch (Exception e) {
+            callback.onResponse(buildQueryEndorserExceptionResponse(e));
+        }
+    }
+
+    private FabricConnectionResponse buildPolicyNotSatisfiedResponse(ChaincodePolicy policy) {
+        return FabricConnectionResponse.build()
+                .errorCode(FabricType.TransactionResponseStatus.FABRIC_INVOKE_CHAINCODE_FAILED)
+                .errorMessage("Query endorser failed: endorsement policy not satisfied " + policy);
+    }
+
+    private Response buildSendTransactionEndorserResponse(
+            Collection<ProposalResponse> proposalResponses) {
+        FabricConnectionResponse response;
+        try {
             EndorsementPolicyAnalyzer analyzer = new EndorsementPolicyAnalyzer(proposalResponses);
 
             // if (analyzer.allSuccess()) { // All success endorsement policy, TODO: pull policy
@@ -490,16 +1259,17 @@ public class FabricConnection implements Connection {
                                 .errorMessage("Query endorser failed: " + analyzer.info());
             }
         } catch (Exception e) {
-            response =
-                    FabricConnectionResponse.build()
-                            .errorCode(
-                                    FabricType.TransactionResponseStatus
-                                            .FABRIC_INVOKE_CHAINCODE_FAILED)
-                            .errorMessage("Query endorser exception: " + e);
+            response = buildQueryEndorserExceptionResponse(e);
         }
         return response;
     }
 
+    private FabricConnectionResponse buildQueryEndorserExceptionResponse(Exception e) {
+        return FabricConnectionResponse.build()
+                .errorCode(FabricType.TransactionResponseStatus.FABRIC_INVOKE_CHAINCODE_FAILED)
+                .errorMessage("Query endorser exception: " + e);
+    }
+
     private void asyncSendTransactionOrderer(
             Request request, SendTransactionOrdererCallback callback) {
         if (request.getType() != FabricType.ConnectionMessage.FABRIC_SENDTRANSACTION_ORDERER) {
@@ -510,35 +1280,32 @@ public class FabricConnection implements Connection {
         }
 
         try {
-            Common.Envelope envelope = Common.Envelope.parseFrom(request.getData());
-            byte[] payload = envelope.getPayload().toByteArray();
-            final String proposalTransactionID = getTxIDFromProposalBytes(payload);
+            Common.Envelope envelope =
+                    ProtoBytes.parse(Common.Envelope.parser(), request.getData());
+            final String proposalTransactionID = getTxIDFromProposalBytes(envelope.getPayload());
 
             sendOrdererPayload(envelope, proposalTransactionID)
                     .thenApply(
-                            transactionEvent -> {
+                            commitProof -> {
                                 FabricConnectionResponse response;
-                                if (transactionEvent.isValid()) {
-                                    long blockNumber =
-                                            transactionEvent.getBlockEvent().getBlockNumber();
-                                    byte[] blockNumberBytes = longToBytes(blockNumber);
+                                if (commitProof.isValid()) {
+                                    byte[] commitProofBytes;
+                                    try {
+                                        commitProofBytes = commitProof.toBytes();
+                                    } catch (Exception e) {
+                                        // the driver verifies with the block instead
+                                        commitProofBytes =
+                                                longToBytes(commitProof.getBlockNumber());
+                                    }
                                     response =
                                             FabricConnectionResponse.build()
                                                     .errorCode(
                                                             FabricType.TransactionResponseStatus
                                                                     .SUCCESS)
-                                                    .data(blockNumberBytes);
-                                    // success is blockNumber
-
-                                    logger.info(
-                                            "Wait event success: "
-                                                    + transactionEvent.getChannelId()
-                                                    + " "
-                                                    + transactionEvent.getTransactionID()
-                                                    + " "
-                                                    + transactionEvent.getType()
-                                                    + " "
-                                                    + transactionEvent.getValidationCode());
+                                                    .data(commitProofBytes);
+                                    // success is CommitProof
+
+                                    logger.info("Wait event success: {}", commitProof);
                                 } else {
                                     response =
                                             FabricConnectionResponse.build()
@@ -547,24 +1314,29 @@ public class FabricConnection implements Connection {
                                                                     .FABRIC_EXECUTE_CHAINCODE_FAILED)
                                                     .data(
                                                             new byte[] {
-                                                                transactionEvent.getValidationCode()
+                                                                (byte)
+                                                                        commitProof
+                                                                                .getValidationCode()
                                                             });
                                     // error is TxValidationCode of fabric define in
                                     // Transaction.proto
 
-                                    logger.info(
-                                            "Wait event failed: "
-                                                    + transactionEvent.getChannelId()
-                                                    + " "
-                                                    + transactionEvent.getTransactionID()
-                                                    + " "
-                                                    + transactionEvent.getType()
-                                                    + " "
-                                                    + transactionEvent.getValidationCode());
+                                    logger.info("Wait event failed: {}", commitProof);
                                 }
                                 callback.onResponseInternal(response);
 
-                                return transactionEvent;
+                                return commitProof;
+                            })
+                    .exceptionally(
+                            e -> {
+                                // broadcast failed, no need to wait for the timeout
+                                callback.onResponseInternal(
+                                        FabricConnectionResponse.build()
+                                                .errorCode(
+                                                        FabricType.TransactionResponseStatus
+                                                                .FABRIC_COMMIT_CHAINCODE_FAILED)
+                                                .errorMessage("Invoke orderer exception: " + e));
+                                return null;
                             });
 
             callback.setTimeout(
@@ -573,9 +1345,10 @@ public class FabricConnection implements Connection {
                                 @Override
                                 public void run(Timeout timeout) throws Exception {
                                     callback.onTimeout();
+                                    commitEventDispatcher.expire(proposalTransactionID);
                                 }
                             },
-                            15000,
+                            commitTimeoutPolicy.getTimeout(),
                             TimeUnit.MILLISECONDS));
 
         } catch (Exception e) {
@@ -589,154 +1362,192 @@ public class FabricConnection implements Connection {
         }
     }
 
-    private CompletableFuture<BlockEvent.TransactionEvent> sendOrdererPayload(
+    private CompletableFuture<CommitProof> sendOrdererPayload(
             Common.Envelope transactionEnvelope, String proposalTransactionID) throws Exception {
-        // make certain we have our own copy
-
-        final List<Orderer> shuffeledOrderers = new ArrayList<>(channel.getOrderers());
-        final String name = channel.getName();
-        Channel.TransactionOptions transactionOptions =
-                Channel.TransactionOptions.createTransactionOptions()
-                        .orderers(channel.getOrderers())
-                        .userContext(hfClient.getUserContext());
-        try {
-            Collections.shuffle(shuffeledOrderers);
-
-            logger.debug(
-                    "Channel {} sending transaction to orderer(s) with TxID {} ",
-                    name,
-                    proposalTransactionID);
-            boolean success = false;
-            Exception lException =
-                    null; // Save last exception to report to user .. others are just logged.
-
-            CompletableFuture<BlockEvent.TransactionEvent> sret =
-                    createTransactionEvent(proposalTransactionID);
+        logger.debug(
+                "Channel {} sending transaction to orderer(s) with TxID {} ",
+                channel.getName(),
+                proposalTransactionID);
+
+        CompletableFuture<CommitProof> sret = commitEventDispatcher.register(proposalTransactionID);
+
+        CompletableFuture<CommitProof> ret = new CompletableFuture<>();
+        new OrdererBroadcast(transactionEnvelope, proposalTransactionID)
+                .start()
+                .whenComplete(
+                        (resp, e) -> {
+                            if (e != null) {
+                                commitEventDispatcher.unregister(proposalTransactionID);
+                                ret.completeExceptionally(e);
+                                return;
+                            }
 
-            Ab.BroadcastResponse resp = null;
-            Orderer failed = null;
+                            logger.debug(
+                                    "Channel {} successful sent to Orderer transaction id: {}",
+                                    channel.getName(),
+                                    proposalTransactionID);
+                            sret.whenComplete(
+                                    (commitProof, eventException) -> {
+                                        if (eventException != null) {
+                                            ret.completeExceptionally(eventException);
+                                        } else {
+                                            ret.complete(commitProof);
+                                        }
+                                    });
+                        });
+        return ret;
+    }
 
-            for (Orderer orderer : shuffeledOrderers) {
-                if (failed != null) {
-                    logger.warn("Channel {}  {} failed. Now trying {}.", name, failed, orderer);
-                }
-                failed = orderer;
-                try {
-
-                    resp =
-                            fabricInnerFunction.sendTransactionToOrderer(
-                                    orderer, transactionEnvelope);
-
-                    lException = null; // no longer last exception .. maybe just failed.
-                    if (resp.getStatus() == Common.Status.SUCCESS) {
-                        success = true;
-                        break;
-                    } else {
-                        logger.warn(
-                                format(
-                                        "Channel %s %s failed. Status returned %s",
-                                        name, orderer, dumpRespData(resp)));
-                    }
-                } catch (Exception e) {
-                    String emsg =
-                            format(
-                                    "Channel %s unsuccessful sendTransaction to orderer %s (%s)",
-                                    name, orderer.getName(), orderer.getUrl());
-                    if (resp != null) {
-
-                        emsg =
-                                format(
-                                        "Channel %s unsuccessful sendTransaction to orderer %s (%s).  %s",
-                                        name,
-                                        orderer.getName(),
-                                        orderer.getUrl(),
-                                        dumpRespData(resp));
-                    }
+    // A broadcast sent off the caller thread to the preferred orderer, failed over to the next
+    // ones in order, and hedged to the next one if the first has not answered after hedgeDelay.
+    // A hedged duplicate is invalidated as DUPLICATE_TXID in its block, the first one counts
+    private class OrdererBroadcast {
+        private Common.Envelope envelope;
+        private String txID;
+        private List<Orderer> orderers;
+        private CompletableFuture<Ab.BroadcastResponse> future = new CompletableFuture<>();
+        private AtomicInteger next = new AtomicInteger(0);
+        private AtomicInteger pending = new AtomicInteger(0);
+        private volatile Ab.BroadcastResponse lastResponse;
+        private volatile Exception lastException;
+
+        OrdererBroadcast(Common.Envelope envelope, String txID) {
+            this.envelope = envelope;
+            this.txID = txID;
+            this.orderers = ordererSelector.order(channel.getOrderers());
+        }
 
-                    logger.error(emsg);
-                    lException = new Exception(emsg, e);
-                }
+        CompletableFuture<Ab.BroadcastResponse> start() {
+            if (!sendNext()) {
+                future.completeExceptionally(
+                        new Exception("Channel " + channel.getName() + " has no orderer"));
+                return future;
             }
 
-            if (success) {
-                logger.debug(
-                        format(
-                                "Channel %s successful sent to Orderer transaction id: %s",
-                                name, proposalTransactionID));
-
-                // sret.complete(null); // just say we're done.
-
-                return sret;
-            } else {
-
-                String emsg =
-                        format(
-                                "Channel %s failed to place transaction %s on Orderer. Cause: UNSUCCESSFUL. %s",
-                                name, proposalTransactionID, dumpRespData(resp));
-
-                CompletableFuture<BlockEvent.TransactionEvent> ret = new CompletableFuture<>();
-                ret.completeExceptionally(
-                        lException != null ? new Exception(emsg, lException) : new Exception(emsg));
-                return ret;
+            if (ordererConfig.isHedge() && orderers.size() > 1) {
+                timeoutHandler.newTimeout(
+                        new TimerTask() {
+                            @Override
+                            public void run(Timeout timeout) throws Exception {
+                                if (!future.isDone()) {
+                                    logger.debug("Hedge broadcast of {}", txID);
+                                    sendNext();
+                                }
+                            }
+                        },
+                        ordererConfig.getHedgeDelay(),
+                        TimeUnit.MILLISECONDS);
             }
-        } catch (Exception e) {
-
-            CompletableFuture<BlockEvent.TransactionEvent> future = new CompletableFuture<>();
-            future.completeExceptionally(e);
             return future;
         }
-    }
 
-    private CompletableFuture<BlockEvent.TransactionEvent> createTransactionEvent(
-            String proposalTransactionID) {
-        try {
-            String name = channel.getName();
-            Channel.NOfEvents nOfEvents = Channel.NOfEvents.createNofEvents();
-            Collection<Peer> eventingPeers =
-                    channel.getPeers(EnumSet.of(Peer.PeerRole.EVENT_SOURCE));
-            boolean anyAdded = false;
-            if (!eventingPeers.isEmpty()) {
-                anyAdded = true;
-                nOfEvents.addPeers(eventingPeers);
+        // false if every orderer has been tried
+        private boolean sendNext() {
+            int index = next.getAndIncrement();
+            if (index >= orderers.size()) {
+                return false;
             }
-            Collection<EventHub> eventHubs = channel.getEventHubs();
-            if (!eventHubs.isEmpty()) {
-                anyAdded = true;
-                nOfEvents.addEventHubs(channel.getEventHubs());
+
+            pending.incrementAndGet();
+            Orderer orderer = orderers.get(index);
+            long startTime = System.currentTimeMillis();
+            broadcastTo(orderer)
+                    .whenComplete((resp, e) -> onBroadcastResponse(orderer, startTime, resp, e));
+            return true;
+        }
+
+        private CompletableFuture<Ab.BroadcastResponse> broadcastTo(Orderer orderer) {
+            if (ordererConfig.isPipeline()) {
+                return getBroadcastStream(orderer).send(envelope);
             }
 
-            if (!anyAdded) {
-                nOfEvents = Channel.NOfEvents.createNoEvents();
+            CompletableFuture<Ab.BroadcastResponse> respFuture = new CompletableFuture<>();
+            try {
+                threadPool.execute(
+                        () -> {
+                            try {
+                                respFuture.complete(
+                                        fabricInnerFunction.sendTransactionToOrderer(
+                                                orderer, envelope));
+                            } catch (Exception e) {
+                                respFuture.completeExceptionally(e);
+                            }
+                        });
+            } catch (Exception e) {
+                // rejected by a full pool, fails like the orderer itself so the caller is released
+                respFuture.completeExceptionally(e);
             }
+            return respFuture;
+        }
 
-            final boolean replyonly =
-                    nOfEvents == Channel.NOfEvents.nofNoEvents
-                            || (channel.getEventHubs().isEmpty()
-                                    && channel.getPeers(EnumSet.of(Peer.PeerRole.EVENT_SOURCE))
-                                            .isEmpty());
+        private void onBroadcastResponse(
+                Orderer orderer, long startTime, Ab.BroadcastResponse resp, Throwable t) {
+            try {
+                if (t != null) {
+                    throw t instanceof Exception ? (Exception) t : new Exception(t);
+                }
+                boolean success = resp.getStatus() == Common.Status.SUCCESS;
+                ordererSelector.onResponse(
+                        orderer, System.currentTimeMillis() - startTime, success);
+                if (success) {
+                    future.complete(resp);
+                    return;
+                }
 
-            CompletableFuture<BlockEvent.TransactionEvent> sret;
+                logger.warn(
+                        format(
+                                "Channel %s %s failed. Status returned %s",
+                                channel.getName(), orderer, dumpRespData(resp)));
+                lastResponse = resp;
+                lastException = null;
+            } catch (Exception e) {
+                ordererSelector.onResponse(orderer, System.currentTimeMillis() - startTime, false);
+                String emsg =
+                        format(
+                                "Channel %s unsuccessful sendTransaction to orderer %s (%s)",
+                                channel.getName(), orderer.getName(), orderer.getUrl());
+                logger.error(emsg);
+                lastException = new Exception(emsg, e);
+            }
 
-            if (replyonly) { // If there are no eventhubs to complete the future, complete it
-                // immediately but give no transaction event
-                logger.debug(
-                        "Completing transaction id {} immediately no event hubs or peer eventing services found in channel {}.",
-                        proposalTransactionID,
-                        name);
-                sret = new CompletableFuture<>();
-            } else {
-                sret =
-                        fabricInnerFunction.registerTxListener(
-                                proposalTransactionID, nOfEvents, true);
+            boolean retried = !future.isDone() && sendNext();
+            if (retried) {
+                logger.warn("Channel {} {} failed. Now trying next.", channel.getName(), orderer);
             }
+            if (pending.decrementAndGet() == 0 && !retried) {
+                String emsg =
+                        format(
+                                "Channel %s failed to place transaction %s on Orderer. Cause: UNSUCCESSFUL. %s",
+                                channel.getName(), txID, dumpRespData(lastResponse));
+                future.completeExceptionally(
+                        lastException != null
+                                ? new Exception(emsg, lastException)
+                                : new Exception(emsg));
+            }
+        }
+    }
 
-            return sret;
-        } catch (Exception e) {
+    // One persistent stream for each orderer, shared by every transaction
+    private OrdererBroadcastStream getBroadcastStream(Orderer orderer) {
+        return broadcastStreams.computeIfAbsent(
+                orderer,
+                key ->
+                        new OrdererBroadcastStream(
+                                key.getName(),
+                                () -> fabricInnerFunction.openOrdererChannel(key),
+                                threadPool,
+                                timeoutHandler,
+                                ordererConfig.getPipelineWindow(),
+                                ordererConfig.getPipelineMaxQueued(),
+                                commitTimeoutPolicy::getTimeout));
+    }
 
-            CompletableFuture<BlockEvent.TransactionEvent> future = new CompletableFuture<>();
-            future.completeExceptionally(e);
-            return future;
-        }
+    public Map<String, OrdererSelector.OrdererStats> getOrdererStats() {
+        return ordererSelector.getOrdererStats();
+    }
+
+    public CommitTimeoutPolicy getCommitTimeoutPolicy() {
+        return commitTimeoutPolicy;
     }
 
     private String dumpRespData(Ab.BroadcastResponse resp) {
@@ -762,8 +1573,8 @@ public class FabricConnection implements Connection {
         return respdata.toString();
     }
 
-    private String getTxIDFromProposalBytes(byte[] proposalBytes) throws Exception {
-        Common.Payload payload = Common.Payload.parseFrom(proposalBytes);
+    private String getTxIDFromProposalBytes(ByteString proposalBytes) throws Exception {
+        Common.Payload payload = ProtoBytes.parse(Common.Payload.parser(), proposalBytes);
 
         Common.ChannelHeader channelHeader =
                 Common.ChannelHeader.parseFrom(payload.getHeader().getChannelHeader());
@@ -780,10 +1591,136 @@ public class FabricConnection implements Connection {
         FabricProposal.SignedProposal sp = FabricProposal.SignedProposal.parseFrom(data);
         TransactionContext transactionContext = getTransactionContext(sp);
         Collection<ProposalResponse> endorserResponses =
-                fabricInnerFunction.sendProposalToPeers(endorsers, sp, transactionContext);
+                fabricInnerFunction.sendProposalToPeers(
+                        peerHealth.filterAvailable(endorsers), sp, transactionContext);
         return endorserResponses;
     }
 
+    // Send proposal to every endorser without blocking, callback is called from gRPC thread
+    public void asyncQueryEndorser(
+            byte[] data, Collection<Peer> endorsers, EndorsementCollector.Callback callback)
+            throws Exception {
+        asyncQueryEndorser(data, endorsers, EndorsementCompletionPolicy.all(), callback);
+    }
+
+    // Callback is called once the completion policy is satisfied, stragglers are cancelled
+    public void asyncQueryEndorser(
+            byte[] data,
+            Collection<Peer> endorsers,
+            EndorsementCompletionPolicy completionPolicy,
+            EndorsementCollector.Callback callback)
+            throws Exception {
+        FabricProposal.SignedProposal sp = FabricProposal.SignedProposal.parseFrom(data);
+        TransactionContext transactionContext = getTransactionContext(sp);
+        endorsers = peerHealth.filterAvailable(endorsers);
+
+        if (endorsers.isEmpty()) {
+            callback.onResponse(new ArrayList<>());
+            return;
+        }
+
+        EndorsementCollector collector =
+                new EndorsementCollector(endorsers.size(), callback, completionPolicy);
+        collector.setTimeout(
+                timeoutHandler.newTimeout(
+                        new TimerTask() {
+                            @Override
+                            public void run(Timeout timeout) throws Exception {
+                                collector.onTimeout();
+                            }
+                        },
+                        transactionContext.getProposalWaitTime(),
+                        TimeUnit.MILLISECONDS));
+
+        for (Peer peer : endorsers) {
+            if (collector.isDone()) {
+                break; // completed early, no need to send to the rest
+            }
+            sendProposalAsync(peer, sp, transactionContext, collector);
+        }
+    }
+
+    private void sendProposalAsync(
+            Peer peer,
+            FabricProposal.SignedProposal sp,
+            TransactionContext transactionContext,
+            EndorsementCollector collector) {
+        ListenableFuture<FabricProposalResponse.ProposalResponse> future;
+        long startTime = System.currentTimeMillis();
+        try {
+            future = fabricInnerFunction.sendProposalAsync(peer, sp);
+        } catch (Exception e) {
+            peerHealth.onResponse(peer, 0, false);
+            onPeerProposalResponse(
+                    peer,
+                    sp,
+                    transactionContext,
+                    collector,
+                    null,
+                    format(
+                            "Sending proposal with transaction: %s to %s failed because of: %s",
+                            transactionContext.getTxID(), peer, e.getMessage()));
+            return;
+        }
+
+        collector.addPendingFuture(future);
+        Futures.addCallback(
+                future,
+                new FutureCallback<FabricProposalResponse.ProposalResponse>() {
+                    @Override
+                    public void onSuccess(FabricProposalResponse.ProposalResponse fabricResponse) {
+                        peerHealth.onResponse(peer, System.currentTimeMillis() - startTime, true);
+                        onPeerProposalResponse(
+                                peer, sp, transactionContext, collector, fabricResponse, null);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        if (!(t instanceof CancellationException) || !collector.isDone()) {
+                            // a straggler cancelled after early completion is not a failure
+                            peerHealth.onResponse(
+                                    peer, System.currentTimeMillis() - startTime, false);
+                        }
+                        String message =
+                                t instanceof CancellationException
+                                        ? format(
+                                                "Sending proposal with transaction: %s to %s timed out after %d ms.",
+                                                transactionContext.getTxID(),
+                                                peer,
+                                                transactionContext.getProposalWaitTime())
+                                        : format(
+                                                "Sending proposal with transaction: %s to %s failed because of: %s",
+                                                transactionContext.getTxID(), peer, t.getMessage());
+                        onPeerProposalResponse(
+                                peer, sp, transactionContext, collector, null, message);
+                    }
+                },
+                MoreExecutors.directExecutor());
+    }
+
+    private void onPeerProposalResponse(
+            Peer peer,
+            FabricProposal.SignedProposal sp,
+            TransactionContext transactionContext,
+            EndorsementCollector collector,
+            FabricProposalResponse.ProposalResponse fabricResponse,
+            String errorMessage) {
+        ProposalResponse proposalResponse = null;
+        try {
+            proposalResponse =
+                    fabricInnerFunction.buildProposalResponse(
+                            transactionContext,
+                            hfClient.getCryptoSuite(),
+                            peer,
+                            sp,
+                            fabricResponse,
+                            errorMessage);
+        } catch (Exception e) {
+            logger.error("Build proposal response of {} exception: ", peer, e);
+        }
+        collector.onPeerResponse(proposalResponse);
+    }
+
     private TransactionContext getTransactionContext(FabricProposal.SignedProposal signedProposal)
             throws Exception {
         User userContext = hfClient.getUserContext();
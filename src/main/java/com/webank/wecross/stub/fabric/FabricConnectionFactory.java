@@ -3,6 +3,7 @@ package com.webank.wecross.stub.fabric;
 import com.webank.wecross.account.FabricAccountFactory;
 import com.webank.wecross.common.FabricType;
 import com.webank.wecross.stub.StubConstant;
+import com.webank.wecross.utils.FabricUtils;
 import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -32,7 +33,12 @@ public class FabricConnectionFactory {
             ThreadPoolTaskExecutor threadPool = buildThreadPool(configFile);
 
             return new FabricConnection(
-                    hfClient, channel, peersMap, StubConstant.PROXY_NAME, threadPool);
+                    hfClient,
+                    channel,
+                    peersMap,
+                    StubConstant.PROXY_NAME,
+                    threadPool,
+                    configFile.getAdvanced());
 
         } catch (Exception e) {
             Logger logger = LoggerFactory.getLogger(FabricConnectionFactory.class);
@@ -80,11 +86,13 @@ public class FabricConnectionFactory {
         for (Map.Entry<String, FabricStubConfigParser.Orgs.Org> orgEntry : orgs.entrySet()) {
             String orgName = orgEntry.getKey();
             FabricStubConfigParser.Orgs.Org org = orgEntry.getValue();
+            String mspId = getOrgMspId(org);
 
             for (String peerAddress : org.getEndorsers()) {
                 String name = "peer-" + String.valueOf(index);
                 peersMap.put(
-                        name, buildPeer(client, peerAddress, org.getTlsCaFile(), orgName, index));
+                        name,
+                        buildPeer(client, peerAddress, org.getTlsCaFile(), orgName, mspId, index));
                 index++;
             }
         }
@@ -132,9 +140,41 @@ public class FabricConnectionFactory {
         return orderer;
     }
 
+    // MSP ID of an org is taken from its admin account, null if the account is not found
+    private static String getOrgMspId(FabricStubConfigParser.Orgs.Org org) {
+        String accountConfigFile =
+                "classpath:accounts"
+                        + File.separator
+                        + org.getAdminName()
+                        + File.separator
+                        + "account.toml";
+        try {
+            Object accountConfig = FabricUtils.readTomlMap(accountConfigFile).get("account");
+            if (!(accountConfig instanceof Map)) {
+                return null;
+            }
+            Object mspId = ((Map<?, ?>) accountConfig).get("mspid");
+            return mspId == null ? null : mspId.toString();
+        } catch (Exception e) {
+            logger.warn("Could not get mspid of {}, exception: {}", org.getAdminName(), e);
+            return null;
+        }
+    }
+
     public static Peer buildPeer(
             HFClient client, String address, String tlsCaFile, String orgName, Integer index)
             throws InvalidArgumentException {
+        return buildPeer(client, address, tlsCaFile, orgName, null, index);
+    }
+
+    public static Peer buildPeer(
+            HFClient client,
+            String address,
+            String tlsCaFile,
+            String orgName,
+            String mspId,
+            Integer index)
+            throws InvalidArgumentException {
         Properties peer0Prop = new Properties();
         peer0Prop.setProperty("pemFile", tlsCaFile);
         // peer0Prop.setProperty("sslProvider", "openSSL");
@@ -145,6 +185,9 @@ public class FabricConnectionFactory {
         peer0Prop.setProperty("allowAllHostNames", "true");
         peer0Prop.setProperty(
                 FabricType.ORG_NAME_DEF, orgName); // ORG_NAME_DEF is only used by wecross
+        if (mspId != null) {
+            peer0Prop.setProperty(FabricType.ORG_MSP_ID_DEF, mspId);
+        }
         Peer peer = client.newPeer("peer" + index, address, peer0Prop);
         return peer;
     }
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webank.wecross.utils.BinaryFrame;
 import java.io.IOException;
 
 public class InstallChaincodeRequest {
@@ -23,6 +24,7 @@ public class InstallChaincodeRequest {
     private String orgName;
 
     private static ObjectMapper objectMapper = new ObjectMapper();
+    private static final int FRAME_VERSION = 1;
 
     InstallChaincodeRequest() {
         // use buildProposalRequest() to new this class
@@ -89,7 +91,14 @@ public class InstallChaincodeRequest {
             throw new Exception("OrgName is null");
         }
 
-        return objectMapper.writeValueAsBytes(this);
+        return new BinaryFrame.Writer(FRAME_VERSION, code.length)
+                .writeString(name)
+                .writeString(channelName)
+                .writeString(version)
+                .writeBytes(code)
+                .writeString(chaincodeLanguage)
+                .writeString(orgName)
+                .toBytes();
     }
 
     public String getName() {
@@ -119,7 +128,19 @@ public class InstallChaincodeRequest {
     @JsonIgnore
     public static InstallChaincodeRequest parseFrom(byte[] bytes)
             throws IOException, JsonParseException, JsonMappingException {
-        return objectMapper.readValue(bytes, InstallChaincodeRequest.class);
+        if (!BinaryFrame.isFramed(bytes)) {
+            // JSON of older stubs
+            return objectMapper.readValue(bytes, InstallChaincodeRequest.class);
+        }
+
+        BinaryFrame.Reader reader = new BinaryFrame.Reader(bytes, FRAME_VERSION);
+        return new InstallChaincodeRequest()
+                .setName(reader.readString())
+                .setChannelName(reader.readString())
+                .setVersion(reader.readString())
+                .setCode(reader.readBytes())
+                .setChaincodeLanguage(reader.readString())
+                .setOrgName(reader.readString());
     }
 
     @JsonIgnore
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webank.wecross.utils.BinaryFrame;
 import com.webank.wecross.utils.FabricUtils;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -33,6 +34,7 @@ public class UpgradeChaincodeRequest {
     private String[] orgNames;
 
     private static ObjectMapper objectMapper = new ObjectMapper();
+    private static final int FRAME_VERSION = 1;
 
     UpgradeChaincodeRequest() {
         // Use buildProposalRequest() to new this class
@@ -125,7 +127,16 @@ public class UpgradeChaincodeRequest {
             throw new Exception("OrgNames is null");
         }
 
-        return objectMapper.writeValueAsBytes(this);
+        return new BinaryFrame.Writer(FRAME_VERSION, 0)
+                .writeString(name)
+                .writeString(channelName)
+                .writeString(version)
+                .writeString(chaincodeLanguage)
+                .writeString(endorsementPolicy)
+                .writeBytesMap(transientMap)
+                .writeStringArray(args)
+                .writeStringArray(orgNames)
+                .toBytes();
     }
 
     public String getName() {
@@ -172,8 +183,22 @@ public class UpgradeChaincodeRequest {
     @JsonIgnore
     public static UpgradeChaincodeRequest parseFrom(byte[] bytes)
             throws IOException, JsonParseException, JsonMappingException {
-        return (UpgradeChaincodeRequest)
-                objectMapper.readValue(bytes, UpgradeChaincodeRequest.class);
+        if (!BinaryFrame.isFramed(bytes)) {
+            // JSON of older stubs
+            return (UpgradeChaincodeRequest)
+                    objectMapper.readValue(bytes, UpgradeChaincodeRequest.class);
+        }
+
+        BinaryFrame.Reader reader = new BinaryFrame.Reader(bytes, FRAME_VERSION);
+        return new UpgradeChaincodeRequest()
+                .setName(reader.readString())
+                .setChannelName(reader.readString())
+                .setVersion(reader.readString())
+                .setChaincodeLanguage(reader.readString())
+                .setEndorsementPolicy(reader.readString())
+                .setTransientMap(reader.readBytesMap())
+                .setArgs(reader.readStringArray())
+                .setOrgNames(reader.readStringArray());
     }
 
     @JsonIgnore
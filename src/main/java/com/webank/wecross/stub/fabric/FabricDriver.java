@@ -8,6 +8,7 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import com.webank.wecross.account.FabricAccount;
 import com.webank.wecross.account.FabricAccountFactory;
 import com.webank.wecross.common.FabricType;
+import com.webank.wecross.exception.WeCrossException;
 import com.webank.wecross.stub.Account;
 import com.webank.wecross.stub.Block;
 import com.webank.wecross.stub.BlockManager;
@@ -34,8 +35,11 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.hyperledger.fabric.protos.common.Common;
@@ -44,6 +48,7 @@ import org.slf4j.LoggerFactory;
 
 public class FabricDriver implements Driver {
     private Logger logger = LoggerFactory.getLogger(FabricDriver.class);
+    private Map<String, BlockVerifier> blockVerifiers = new ConcurrentHashMap<>();
 
     public byte[] encodeTransactionRequest(
             TransactionContext transactionContext, TransactionRequest transactionRequest) {
@@ -121,9 +126,7 @@ public class FabricDriver implements Driver {
             case 0:
                 return new byte[] {};
             case 1:
-                String result = response.getResult()[0];
-                ByteString payload = ByteString.copyFrom(result, StandardCharsets.UTF_8);
-                return payload.toByteArray();
+                return response.getResult()[0].getBytes(StandardCharsets.UTF_8);
             default:
                 logger.error(
                         "encodeTransactionResponse error: Illegal result size: {}",
@@ -134,8 +137,7 @@ public class FabricDriver implements Driver {
 
     public TransactionResponse decodeTransactionResponse(byte[] data) {
         // Fabric only has 1 return object
-        ByteString payload = ByteString.copyFrom(data);
-        String[] result = new String[] {payload.toStringUtf8()};
+        String[] result = new String[] {new String(data, StandardCharsets.UTF_8)};
 
         TransactionResponse response = new TransactionResponse();
         response.setResult(result);
@@ -308,6 +310,7 @@ public class FabricDriver implements Driver {
             endorserRequest.setType(FabricType.ConnectionMessage.FABRIC_SENDTRANSACTION_ENDORSER);
             endorserRequest.setResourceInfo(transactionContext.getResourceInfo());
 
+            boolean submitOnly = isSubmitOnly(transactionRequest);
             connection.asyncSend(
                     endorserRequest,
                     endorserResponse ->
@@ -316,6 +319,7 @@ public class FabricDriver implements Driver {
                                     data,
                                     endorserResponse,
                                     connection,
+                                    submitOnly,
                                     callback));
 
         } catch (Exception e) {
@@ -353,6 +357,7 @@ public class FabricDriver implements Driver {
             endorserRequest.setType(FabricType.ConnectionMessage.FABRIC_SENDTRANSACTION_ENDORSER);
             endorserRequest.setResourceInfo(transactionContext.getResourceInfo());
 
+            boolean submitOnly = isSubmitOnly(transactionRequest);
             connection.asyncSend(
                     endorserRequest,
                     endorserResponse ->
@@ -361,6 +366,7 @@ public class FabricDriver implements Driver {
                                     data,
                                     endorserResponse,
                                     connection,
+                                    submitOnly,
                                     callback));
 
         } catch (Exception e) {
@@ -393,6 +399,27 @@ public class FabricDriver implements Driver {
                 });
     }
 
+    // Respond once the block number reaches blockNumber, or with a smaller one after the wait
+    // timeout of the connection, the caller waits again then
+    public void asyncWaitBlockNumber(
+            long blockNumber, Connection connection, GetBlockNumberCallback callback) {
+        Request request = new Request();
+        request.setType(FabricType.ConnectionMessage.FABRIC_WAIT_BLOCK_NUMBER);
+        request.setData(longToBytes(blockNumber));
+
+        connection.asyncSend(
+                request,
+                response -> {
+                    if (response.getErrorCode() == FabricType.TransactionResponseStatus.SUCCESS) {
+                        callback.onResponse(null, bytesToLong(response.getData()));
+                    } else {
+                        String errorMsg = "Wait block number failed: " + response.getErrorMessage();
+                        logger.warn(errorMsg);
+                        callback.onResponse(new Exception(errorMsg), -1);
+                    }
+                });
+    }
+
     @Override
     public void asyncGetBlock(
             long blockNumber,
@@ -409,81 +436,13 @@ public class FabricDriver implements Driver {
                 request,
                 response -> {
                     if (response.getErrorCode() == FabricType.TransactionResponseStatus.SUCCESS) {
-                        Block block = new Block();
-                        block.setRawBytes(response.getData());
-
-                        FabricBlock fabricBlock = null;
                         try {
-                            fabricBlock = FabricBlock.encode(response.getData());
-                            if (blockVerifierString != null) {
-                                if (logger.isDebugEnabled()) {
-                                    logger.debug(
-                                            "asyncGetBlock: blockVerifierString is not null, enable verify Fabric block, "
-                                                    + "blockVerifierString is {}",
-                                            blockVerifierString);
-                                }
-                                if (!fabricBlock.verify(blockVerifierString)) {
-
-                                    logger.error(
-                                            "block {} verify failed: {}",
-                                            fabricBlock.getHeader().getNumber(),
-                                            java.util.Base64.getEncoder()
-                                                    .encodeToString(response.getData()));
-
-                                    callback.onResponse(
-                                            new Exception(
-                                                    "block "
-                                                            + fabricBlock.getHeader().getNumber()
-                                                            + " verify failed"),
-                                            null);
-                                    return;
-                                }
-                            }
-
-                            if (!onlyHeader) {
-                                Common.Block b = Common.Block.parseFrom(response.getData());
-                                List<ByteString> dataList = b.getData().getDataList();
-                                for (ByteString data : dataList) {
-                                    try {
-                                        Common.Envelope envelope = Common.Envelope.parseFrom(data);
-                                        String payload = envelope.toString();
-                                        int from = payload.indexOf("-----BEGIN CERTIFICATE-----");
-                                        int end = payload.indexOf("-----END CERTIFICATE-----");
-                                        String identity =
-                                                payload.substring(from, end)
-                                                        + "-----END CERTIFICATE-----\n";
-                                        FabricTransaction fabricTransaction =
-                                                FabricTransaction.buildFromEnvelopeBytes(
-                                                        envelope.toByteArray());
-                                        if (StringUtils.isBlank(fabricTransaction.getTxID())) {
-                                            continue;
-                                        }
-                                        Transaction transaction =
-                                                parseFabricTransaction(fabricTransaction);
-                                        transaction
-                                                .getTransactionResponse()
-                                                .setErrorCode(
-                                                        FabricType.TransactionResponseStatus
-                                                                .SUCCESS);
-                                        transaction.setAccountIdentity(identity);
-                                        transaction
-                                                .getTransactionResponse()
-                                                .setHash(fabricTransaction.getTxID());
-                                        transaction.setTxBytes(data.toByteArray());
-                                        transaction
-                                                .getTransactionResponse()
-                                                .setBlockNumber(blockNumber);
-                                        block.getTransactionsWithDetail().add(transaction);
-                                    } catch (InvalidProtocolBufferException e) {
-                                        logger.warn(
-                                                "Invalid fabric block transactions,blockNumber: {},e: {}",
-                                                blockNumber,
-                                                e.getMessage());
-                                    }
-                                }
-                            }
-                            block.setBlockHeader(fabricBlock.dumpWeCrossHeader());
+                            Block block =
+                                    decodeBlock(
+                                            response.getData(), onlyHeader, blockVerifierString);
                             callback.onResponse(null, block);
+                        } catch (BlockVerifyException e) {
+                            callback.onResponse(e, null);
                         } catch (Exception e) {
                             String errorMsg =
                                     "Invalid fabric block format: " + response.getErrorMessage();
@@ -498,6 +457,168 @@ public class FabricDriver implements Driver {
                 });
     }
 
+    public interface GetBlockStreamCallback {
+        // Called synchronously on the stream thread, the next block is requested from the peer
+        // once it returns. Block here (e.g. on a bounded queue) to slow the stream down, it does
+        // not wait for work handed to other threads
+        void onBlock(long blockNumber, Block block);
+
+        // Called once when the stream ends, e is null if all blocks have been delivered
+        void onFinish(Exception e);
+    }
+
+    // Stream blocks of [startBlockNumber, endBlockNumber] on one deliver stream, in order
+    public void asyncGetBlockStream(
+            long startBlockNumber,
+            long endBlockNumber,
+            boolean onlyHeader,
+            Connection connection,
+            GetBlockStreamCallback callback) {
+        Request request = new Request();
+        request.setType(FabricType.ConnectionMessage.FABRIC_GET_BLOCK_STREAM);
+        try {
+            request.setData(new BlockStreamRequest(startBlockNumber, endBlockNumber).toBytes());
+        } catch (Exception e) {
+            callback.onFinish(e);
+            return;
+        }
+
+        String blockVerifierString = connection.getProperties().get(FabricType.FABRIC_VERIFIER);
+        AtomicBoolean finished = new AtomicBoolean(false);
+        connection.asyncSend(
+                request,
+                response -> {
+                    if (finished.get()) {
+                        return;
+                    }
+
+                    if (response.getErrorCode() != FabricType.TransactionResponseStatus.SUCCESS) {
+                        String errorMsg = "Get block stream failed: " + response.getErrorMessage();
+                        logger.warn(errorMsg);
+                        finished.set(true);
+                        callback.onFinish(new Exception(errorMsg));
+                        return;
+                    }
+
+                    if (response.getData() == null || response.getData().length == 0) {
+                        // end of stream
+                        finished.set(true);
+                        callback.onFinish(null);
+                        return;
+                    }
+
+                    try {
+                        Block block =
+                                decodeBlock(response.getData(), onlyHeader, blockVerifierString);
+                        callback.onBlock(block.getBlockHeader().getNumber(), block);
+                    } catch (Exception e) {
+                        logger.warn("Decode streamed block exception: ", e);
+                        finished.set(true);
+                        callback.onFinish(e);
+                    }
+                });
+    }
+
+    private static class BlockVerifyException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        BlockVerifyException(String message) {
+            super(message);
+        }
+    }
+
+    // Verifier is parsed once for each FABRIC_VERIFIER property
+    private BlockVerifier getBlockVerifier(String blockVerifierString) throws BlockVerifyException {
+        BlockVerifier blockVerifier = blockVerifiers.get(blockVerifierString);
+        if (blockVerifier == null) {
+            try {
+                blockVerifier = BlockVerifier.build(blockVerifierString);
+            } catch (WeCrossException e) {
+                logger.error(
+                        "Build block verifier error, errorCode:{}, error: {}",
+                        e.getErrorCode(),
+                        e.getMessage());
+                throw new BlockVerifyException("Illegal block verifier: " + e.getMessage());
+            }
+            blockVerifiers.put(blockVerifierString, blockVerifier);
+        }
+        return blockVerifier;
+    }
+
+    // Block bytes are parsed once, every envelope is parsed once into its transaction
+    public Block decodeBlock(byte[] blockBytes, boolean onlyHeader, String blockVerifierString)
+            throws Exception {
+        Block block = new Block();
+        block.setRawBytes(blockBytes);
+
+        FabricBlock fabricBlock = FabricBlock.encode(blockBytes);
+        long blockNumber = fabricBlock.getHeader().getNumber();
+        if (blockVerifierString != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(
+                        "asyncGetBlock: blockVerifierString is not null, enable verify Fabric block, "
+                                + "blockVerifierString is {}",
+                        blockVerifierString);
+            }
+            if (!fabricBlock.verifyWith(getBlockVerifier(blockVerifierString))) {
+
+                logger.error(
+                        "block {} verify failed: {}",
+                        blockNumber,
+                        java.util.Base64.getEncoder().encodeToString(blockBytes));
+
+                throw new BlockVerifyException("block " + blockNumber + " verify failed");
+            }
+        }
+
+        if (onlyHeader) {
+            block.setBlockHeader(fabricBlock.dumpWeCrossHeader());
+            return block;
+        }
+
+        // only the headers are parsed here, details are decoded when a transaction is read
+        long timestamp = 0;
+        boolean first = true;
+        for (ByteString data : fabricBlock.getBlock().getData().getDataList()) {
+            try {
+                Common.Envelope envelope = ProtoBytes.parse(Common.Envelope.parser(), data);
+                Common.Payload payload =
+                        ProtoBytes.parse(Common.Payload.parser(), envelope.getPayload());
+                Common.ChannelHeader channelHeader =
+                        Common.ChannelHeader.parseFrom(payload.getHeader().getChannelHeader());
+                if (first) {
+                    timestamp = channelHeader.getTimestamp().getSeconds();
+                    first = false;
+                }
+                if (StringUtils.isBlank(channelHeader.getTxId())) {
+                    continue;
+                }
+
+                block.getTransactionsWithDetail()
+                        .add(
+                                new LazyTransaction(
+                                        channelHeader.getTxId(),
+                                        blockNumber,
+                                        data,
+                                        transaction -> {
+                                            FabricTransaction fabricTransaction =
+                                                    FabricTransaction.buildFromPayload(
+                                                            payload, channelHeader);
+                                            fillFabricTransaction(transaction, fabricTransaction);
+                                            transaction.setAccountIdentity(
+                                                    fabricTransaction.getCreatorIdentity());
+                                        }));
+            } catch (InvalidProtocolBufferException e) {
+                logger.warn(
+                        "Invalid fabric block transactions,blockNumber: {},e: {}",
+                        blockNumber,
+                        e.getMessage());
+            }
+        }
+        block.setBlockHeader(fabricBlock.dumpWeCrossHeader(timestamp));
+        return block;
+    }
+
     @Override
     public void asyncGetTransaction(
             String transactionHash,
@@ -523,11 +644,7 @@ public class FabricDriver implements Driver {
                                     FabricTransaction.buildFromEnvelopeBytes(response.getData());
 
                             String txID = fabricTransaction.getTxID();
-                            String payload = new String(response.getData(), "UTF-8");
-                            int from = payload.indexOf("-----BEGIN CERTIFICATE-----");
-                            int end = payload.indexOf("-----END CERTIFICATE-----");
-                            String identity =
-                                    payload.substring(from, end) + "-----END CERTIFICATE-----\n";
+                            String identity = fabricTransaction.getCreatorIdentity();
 
                             if (!transactionHash.equals(txID)) {
                                 throw new Exception(
@@ -576,12 +693,40 @@ public class FabricDriver implements Driver {
                 });
     }
 
+    // Submit only if the request asks for it in options, the callback is called once the orderer
+    // accepts the transaction, without waiting for its commit
+    private static boolean isSubmitOnly(TransactionRequest transactionRequest) {
+        if (transactionRequest.getOptions() == null) {
+            return false;
+        }
+
+        Object submitOnly =
+                transactionRequest.getOptions().get(FabricType.TransactionOption.SUBMIT_ONLY);
+        return Boolean.TRUE.equals(submitOnly) || "true".equals(submitOnly);
+    }
+
     private void asyncSendTransactionHandleEndorserResponse(
             TransactionContext transactionContext,
             byte[] envelopeRequestData,
             Response endorserResponse,
             Connection connection,
             Driver.Callback callback) {
+        asyncSendTransactionHandleEndorserResponse(
+                transactionContext,
+                envelopeRequestData,
+                endorserResponse,
+                connection,
+                false,
+                callback);
+    }
+
+    private void asyncSendTransactionHandleEndorserResponse(
+            TransactionContext transactionContext,
+            byte[] envelopeRequestData,
+            Response endorserResponse,
+            Connection connection,
+            boolean submitOnly,
+            Driver.Callback callback) {
         if (endorserResponse.getErrorCode() != FabricType.TransactionResponseStatus.SUCCESS) {
             TransactionResponse response = new TransactionResponse();
             TransactionException transactionException =
@@ -595,18 +740,36 @@ public class FabricDriver implements Driver {
                 Request ordererRequest =
                         OrdererRequestFactory.build(
                                 transactionContext.getAccount(), ordererPayloadToSign);
-                ordererRequest.setType(FabricType.ConnectionMessage.FABRIC_SENDTRANSACTION_ORDERER);
+                ordererRequest.setType(
+                        submitOnly
+                                ? FabricType.ConnectionMessage.FABRIC_SUBMIT_TRANSACTION_ORDERER
+                                : FabricType.ConnectionMessage.FABRIC_SENDTRANSACTION_ORDERER);
                 ordererRequest.setResourceInfo(transactionContext.getResourceInfo());
+                // a router verifying blocks verifies the transaction with its block too
+                boolean verifyOnChain =
+                        connection.getProperties() != null
+                                && connection.getProperties().get(FabricType.FABRIC_VERIFIER)
+                                        != null;
 
                 connection.asyncSend(
                         ordererRequest,
-                        ordererResponse ->
+                        ordererResponse -> {
+                            if (submitOnly) {
+                                asyncSendTransactionHandleSubmitResponse(
+                                        envelopeRequestData,
+                                        ordererPayloadToSign,
+                                        ordererResponse,
+                                        callback);
+                            } else {
                                 asyncSendTransactionHandleOrdererResponse(
                                         transactionContext,
                                         envelopeRequestData,
                                         ordererPayloadToSign,
                                         ordererResponse,
-                                        callback));
+                                        verifyOnChain,
+                                        callback);
+                            }
+                        });
 
             } catch (Exception e) {
                 String errorMessage = "Fabric driver call orderer exception: " + e;
@@ -619,22 +782,88 @@ public class FabricDriver implements Driver {
         }
     }
 
+    // Accepted by the orderer: the result is the one endorsed, block number is unknown until commit
+    private void asyncSendTransactionHandleSubmitResponse(
+            byte[] envelopeRequestData,
+            byte[] ordererPayloadToSign,
+            Response ordererResponse,
+            Driver.Callback callback) {
+        TransactionResponse response = new TransactionResponse();
+        TransactionException transactionException;
+        try {
+            if (ordererResponse.getErrorCode() == FabricType.TransactionResponseStatus.SUCCESS) {
+                String txID = EndorserRequestFactory.getTxIDFromEnvelopeBytes(envelopeRequestData);
+                FabricTransaction fabricTransaction =
+                        FabricTransaction.buildFromPayloadBytes(ordererPayloadToSign);
+                response.setResult(new String[] {fabricTransaction.getOutput()});
+                response.setHash(txID);
+                response.setErrorCode(FabricType.TransactionResponseStatus.SUCCESS);
+                response.setTimestamp(fabricTransaction.getTimestamp());
+                response.setMessage("Submitted");
+                transactionException = TransactionException.Builder.newSuccessException();
+            } else {
+                transactionException =
+                        new TransactionException(
+                                ordererResponse.getErrorCode(), ordererResponse.getErrorMessage());
+            }
+        } catch (Exception e) {
+            String errorMessage = "Fabric driver call handle submit response exception: " + e;
+            logger.error(errorMessage);
+            response.setErrorCode(FabricType.TransactionResponseStatus.INTERNAL_ERROR);
+            transactionException = TransactionException.Builder.newInternalException(errorMessage);
+        }
+        callback.onTransactionResponse(transactionException, response);
+    }
+
     private void asyncSendTransactionHandleOrdererResponse(
             TransactionContext transactionContext,
             byte[] envelopeRequestData,
             byte[] ordererPayloadToSign,
             Response ordererResponse,
+            boolean verifyOnChain,
             Driver.Callback callback) {
         try {
             if (ordererResponse.getErrorCode() == FabricType.TransactionResponseStatus.SUCCESS) {
-                // Success, verify transaction
                 String txID = EndorserRequestFactory.getTxIDFromEnvelopeBytes(envelopeRequestData);
-                long txBlockNumber = bytesToLong(ordererResponse.getData());
+                byte[] data = ordererResponse.getData();
+                CommitProof commitProof =
+                        CommitProof.isCommitProof(data) ? CommitProof.parseFrom(data) : null;
+
+                if (commitProof != null && !verifyOnChain) {
+                    // Trusted as the connection's commit event without fetching the block, a
+                    // router verifying blocks checks the proof against its block below
+                    if (commitProof.matches(txID)) {
+                        callback.onTransactionResponse(
+                                TransactionException.Builder.newSuccessException(),
+                                buildTransactionResponse(
+                                        txID, commitProof.getBlockNumber(), ordererPayloadToSign));
+                    } else {
+                        callback.onTransactionResponse(
+                                new TransactionException(
+                                        FabricType.TransactionResponseStatus
+                                                .FABRIC_TX_ONCHAIN_VERIFY_FAIED,
+                                        "Transaction commit proof verify failed. Tx("
+                                                + txID
+                                                + "), proof: "
+                                                + commitProof),
+                                new TransactionResponse());
+                    }
+                    return;
+                }
+
+                // Verify transaction with its block
+                long txBlockNumber =
+                        commitProof != null ? commitProof.getBlockNumber() : bytesToLong(data);
+                Predicate<FabricBlock> inBlock =
+                        commitProof != null
+                                ? block -> commitProof.matches(txID) && commitProof.verify(block)
+                                : block -> block.hasTransaction(txID);
 
                 asyncVerifyTransactionOnChain(
                         txID,
                         txBlockNumber,
                         transactionContext.getBlockManager(),
+                        inBlock,
                         verifyResult -> {
                             TransactionResponse response = new TransactionResponse();
                             TransactionException transactionException = null;
@@ -650,18 +879,9 @@ public class FabricDriver implements Driver {
                                                             + txBlockNumber
                                                             + ")");
                                 } else {
-                                    FabricTransaction fabricTransaction =
-                                            FabricTransaction.buildFromPayloadBytes(
-                                                    ordererPayloadToSign);
                                     response =
-                                            decodeTransactionResponse(
-                                                    fabricTransaction.getOutputBytes());
-                                    response.setHash(txID);
-                                    response.setBlockNumber(txBlockNumber);
-                                    response.setErrorCode(
-                                            FabricType.TransactionResponseStatus.SUCCESS);
-                                    response.setTimestamp(fabricTransaction.getTimestamp());
-                                    response.setMessage("Success");
+                                            buildTransactionResponse(
+                                                    txID, txBlockNumber, ordererPayloadToSign);
                                     transactionException =
                                             TransactionException.Builder.newSuccessException();
                                 }
@@ -1057,10 +1277,38 @@ public class FabricDriver implements Driver {
         }
     }
 
+    private TransactionResponse buildTransactionResponse(
+            String txID, long blockNumber, byte[] ordererPayloadToSign) throws Exception {
+        FabricTransaction fabricTransaction =
+                FabricTransaction.buildFromPayloadBytes(ordererPayloadToSign);
+        TransactionResponse response = new TransactionResponse();
+        response.setResult(new String[] {fabricTransaction.getOutput()});
+        response.setHash(txID);
+        response.setBlockNumber(blockNumber);
+        response.setErrorCode(FabricType.TransactionResponseStatus.SUCCESS);
+        response.setTimestamp(fabricTransaction.getTimestamp());
+        response.setMessage("Success");
+        return response;
+    }
+
+    private void asyncVerifyTransactionOnChain(
+            String txID,
+            long blockNumber,
+            BlockManager blockHeaderManager,
+            Consumer<Boolean> callback) {
+        asyncVerifyTransactionOnChain(
+                txID,
+                blockNumber,
+                blockHeaderManager,
+                block -> block.hasTransaction(txID),
+                callback);
+    }
+
     private void asyncVerifyTransactionOnChain(
             String txID,
             long blockNumber,
             BlockManager blockHeaderManager,
+            Predicate<FabricBlock> inBlock,
             Consumer<Boolean> callback) {
         logger.debug("To verify transaction, waiting fabric block syncing ...");
         blockHeaderManager.asyncGetBlock(
@@ -1070,7 +1318,7 @@ public class FabricDriver implements Driver {
                     boolean verifyResult = false;
                     try {
                         FabricBlock fabricBlock = FabricBlock.encode(block.getRawBytes());
-                        verifyResult = fabricBlock.hasTransaction(txID);
+                        verifyResult = inBlock.test(fabricBlock);
                         logger.debug(
                                 "Tx(block: "
                                         + blockNumber
@@ -1204,6 +1452,13 @@ public class FabricDriver implements Driver {
 
     private Transaction parseFabricTransaction(FabricTransaction fabricTransaction)
             throws Exception {
+        Transaction transaction = new Transaction();
+        fillFabricTransaction(transaction, fabricTransaction);
+        return transaction;
+    }
+
+    private void fillFabricTransaction(Transaction transaction, FabricTransaction fabricTransaction)
+            throws Exception {
         String chaincodeName = fabricTransaction.getChaincodeName();
         String[] originArgs = fabricTransaction.getArgs().toArray(new String[] {});
         String method = fabricTransaction.getMethod();
@@ -1240,15 +1495,12 @@ public class FabricDriver implements Driver {
         }
 
         /** request */
-        Transaction transaction = new Transaction();
         transaction.getTransactionRequest().setArgs(args);
         transaction.getTransactionRequest().setMethod(method);
 
         /** response */
-        byte[] outputBytes = fabricTransaction.getOutputBytes();
         // Fabric only has 1 return object
-        ByteString payload = ByteString.copyFrom(outputBytes);
-        String[] output = new String[] {payload.toStringUtf8()};
+        String[] output = new String[] {fabricTransaction.getOutput()};
         transaction.getTransactionResponse().setResult(output);
         transaction.getTransactionResponse().setTimestamp(fabricTransaction.getTimestamp());
 
@@ -1260,7 +1512,5 @@ public class FabricDriver implements Driver {
                 .put(StubConstant.XA_TRANSACTION_ID, transactionID);
         transaction.getTransactionRequest().getOptions().put(StubConstant.XA_TRANSACTION_SEQ, seq);
         transaction.setResource(resource);
-
-        return transaction;
     }
 }
@@ -1,17 +1,22 @@
 package com.webank.wecross.stub.fabric;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Collection;
-import java.util.concurrent.CompletableFuture;
+import java.util.Properties;
 import org.hyperledger.fabric.protos.common.Common;
 import org.hyperledger.fabric.protos.orderer.Ab;
 import org.hyperledger.fabric.protos.peer.FabricProposal;
-import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
 import org.hyperledger.fabric.sdk.Channel;
 import org.hyperledger.fabric.sdk.Orderer;
 import org.hyperledger.fabric.sdk.Peer;
 import org.hyperledger.fabric.sdk.ProposalResponse;
+import org.hyperledger.fabric.sdk.security.CryptoSuite;
 import org.hyperledger.fabric.sdk.transaction.TransactionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,7 +27,15 @@ public class FabricInnerFunction {
     // Fabric inner functions
     private Method methodSendProposalToPeers;
     private Method methodSendTransactionToOrderer;
-    private Method methodRegisterTxListener;
+    private Method methodSendProposalAsync;
+    private Constructor<ProposalResponse> proposalResponseConstructor;
+    private Method methodSetProposalResponse;
+    private Method methodSetProposal;
+    private Method methodSetPeer;
+    private Method methodVerifyProposalResponse;
+    private Method methodCreateEndpoint;
+    private Method methodGetChannelBuilder;
+    private Method methodGetClientTLSCertificateDigest;
 
     private Channel channel;
 
@@ -34,30 +47,59 @@ public class FabricInnerFunction {
                     channel.getClass()
                             .getDeclaredMethod(
                                     "sendProposalToPeers",
-                                    new Class[] {
-                                        Collection.class,
-                                        org.hyperledger.fabric.protos.peer.FabricProposal
-                                                .SignedProposal.class,
-                                        TransactionContext.class
-                                    });
+                                    Collection.class,
+                                    org.hyperledger.fabric.protos.peer.FabricProposal.SignedProposal
+                                            .class,
+                                    TransactionContext.class);
             methodSendProposalToPeers.setAccessible(true);
 
             // sendTransaction(Common.Envelope transaction)
             methodSendTransactionToOrderer =
-                    Orderer.class.getDeclaredMethod(
-                            "sendTransaction", new Class[] {Common.Envelope.class});
+                    Orderer.class.getDeclaredMethod("sendTransaction", Common.Envelope.class);
             methodSendTransactionToOrderer.setAccessible(true);
 
-            // Channel.CompletableFuture<TransactionEvent> registerTxListener(String txid, NOfEvents
-            // nOfEvents, boolean failFast)
-            methodRegisterTxListener =
-                    channel.getClass()
-                            .getDeclaredMethod(
-                                    "registerTxListener",
-                                    new Class[] {
-                                        String.class, Channel.NOfEvents.class, boolean.class
-                                    });
-            methodRegisterTxListener.setAccessible(true);
+            // ListenableFuture<ProposalResponse> Peer.sendProposalAsync(SignedProposal proposal)
+            methodSendProposalAsync =
+                    Peer.class.getDeclaredMethod(
+                            "sendProposalAsync", FabricProposal.SignedProposal.class);
+            methodSendProposalAsync.setAccessible(true);
+
+            // ProposalResponse(TransactionContext transactionContext, int status, String message)
+            proposalResponseConstructor =
+                    ProposalResponse.class.getDeclaredConstructor(
+                            TransactionContext.class, int.class, String.class);
+            proposalResponseConstructor.setAccessible(true);
+
+            methodSetProposalResponse =
+                    ProposalResponse.class.getDeclaredMethod(
+                            "setProposalResponse", FabricProposalResponse.ProposalResponse.class);
+            methodSetProposalResponse.setAccessible(true);
+
+            methodSetProposal =
+                    ProposalResponse.class.getDeclaredMethod(
+                            "setProposal", FabricProposal.SignedProposal.class);
+            methodSetProposal.setAccessible(true);
+
+            methodSetPeer = ProposalResponse.class.getDeclaredMethod("setPeer", Peer.class);
+            methodSetPeer.setAccessible(true);
+
+            methodVerifyProposalResponse =
+                    ProposalResponse.class.getDeclaredMethod("verify", CryptoSuite.class);
+            methodVerifyProposalResponse.setAccessible(true);
+
+            // Endpoint.createEndpoint(String url, Properties properties), to open own streams
+            Class<?> endpointClass = Class.forName("org.hyperledger.fabric.sdk.Endpoint");
+            methodCreateEndpoint =
+                    endpointClass.getDeclaredMethod(
+                            "createEndpoint", String.class, Properties.class);
+            methodCreateEndpoint.setAccessible(true);
+
+            methodGetChannelBuilder = endpointClass.getDeclaredMethod("getChannelBuilder");
+            methodGetChannelBuilder.setAccessible(true);
+
+            methodGetClientTLSCertificateDigest =
+                    endpointClass.getDeclaredMethod("getClientTLSCertificateDigest");
+            methodGetClientTLSCertificateDigest.setAccessible(true);
         } catch (Exception e) {
             logger.error("enableFabricInnerFunctions exception: " + e);
         }
@@ -87,11 +129,88 @@ public class FabricInnerFunction {
         }
     }
 
-    public CompletableFuture<BlockEvent.TransactionEvent> registerTxListener(
-            String txid, Channel.NOfEvents nOfEvents, boolean failFast) throws Exception {
+    public ListenableFuture<FabricProposalResponse.ProposalResponse> sendProposalAsync(
+            Peer peer, FabricProposal.SignedProposal signedProposal) throws Exception {
+        try {
+            return (ListenableFuture<FabricProposalResponse.ProposalResponse>)
+                    methodSendProposalAsync.invoke((Object) peer, signedProposal);
+        } catch (InvocationTargetException e) {
+            throw new Exception(e.getTargetException().getMessage());
+        }
+    }
+
+    // Same as what channel.sendProposalToPeers() does for each peer after the future returns
+    public ProposalResponse buildProposalResponse(
+            TransactionContext transactionContext,
+            CryptoSuite cryptoSuite,
+            Peer peer,
+            FabricProposal.SignedProposal signedProposal,
+            FabricProposalResponse.ProposalResponse fabricResponse,
+            String errorMessage)
+            throws Exception {
+        int status = 500;
+        String message = errorMessage;
+        if (fabricResponse != null) {
+            status = fabricResponse.getResponse().getStatus();
+            message = fabricResponse.getResponse().getMessage();
+        }
+
+        try {
+            ProposalResponse proposalResponse =
+                    proposalResponseConstructor.newInstance(transactionContext, status, message);
+            if (fabricResponse != null) {
+                methodSetProposalResponse.invoke((Object) proposalResponse, fabricResponse);
+            }
+            methodSetProposal.invoke((Object) proposalResponse, signedProposal);
+            methodSetPeer.invoke((Object) proposalResponse, peer);
+
+            if (fabricResponse != null && transactionContext.getVerify()) {
+                methodVerifyProposalResponse.invoke((Object) proposalResponse, cryptoSuite);
+            }
+            return proposalResponse;
+        } catch (InvocationTargetException e) {
+            throw new Exception(e.getTargetException().getMessage());
+        }
+    }
+
+    public static class PeerEndpoint {
+        private ManagedChannel managedChannel;
+        private byte[] tlsCertHash;
+
+        PeerEndpoint(ManagedChannel managedChannel, byte[] tlsCertHash) {
+            this.managedChannel = managedChannel;
+            this.tlsCertHash = tlsCertHash;
+        }
+
+        public ManagedChannel getManagedChannel() {
+            return managedChannel;
+        }
+
+        public byte[] getTlsCertHash() {
+            return tlsCertHash;
+        }
+    }
+
+    // A new gRPC channel to the peer with the same TLS settings as the peer itself
+    public PeerEndpoint openPeerEndpoint(Peer peer) throws Exception {
+        try {
+            Object endpoint =
+                    methodCreateEndpoint.invoke(null, peer.getUrl(), peer.getProperties());
+            ManagedChannel managedChannel =
+                    ((ManagedChannelBuilder<?>) methodGetChannelBuilder.invoke(endpoint)).build();
+            byte[] tlsCertHash = (byte[]) methodGetClientTLSCertificateDigest.invoke(endpoint);
+            return new PeerEndpoint(managedChannel, tlsCertHash);
+        } catch (InvocationTargetException e) {
+            throw new Exception(e.getTargetException().getMessage());
+        }
+    }
+
+    // A new gRPC channel to the orderer with the same TLS settings as the orderer itself
+    public ManagedChannel openOrdererChannel(Orderer orderer) throws Exception {
         try {
-            return (CompletableFuture<BlockEvent.TransactionEvent>)
-                    methodRegisterTxListener.invoke((Object) channel, txid, nOfEvents, true);
+            Object endpoint =
+                    methodCreateEndpoint.invoke(null, orderer.getUrl(), orderer.getProperties());
+            return ((ManagedChannelBuilder<?>) methodGetChannelBuilder.invoke(endpoint)).build();
         } catch (InvocationTargetException e) {
             throw new Exception(e.getTargetException().getMessage());
         }
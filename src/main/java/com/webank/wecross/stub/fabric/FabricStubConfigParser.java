@@ -26,6 +26,44 @@ package com.webank.wecross.stub.fabric;
         corePoolSize = 200
         maxPoolSize = 500
         queueCapacity = 5000
+    [advanced.endorsement]
+        earlyCompletion = true
+        requiredEndorsements = 1
+        policyAwareSelection = true
+    [advanced.query]
+        loadBalance = true
+        hedge = true
+        hedgeDelayPercentile = 95
+        minHedgeDelay = 20
+    [advanced.blockCache]
+        enable = true
+        maxSize = 64 # MB
+        prefetch = 8
+    [advanced.blockStore]
+        enable = true
+        path = 'blocks'
+    [advanced.txIndex]
+        enable = true
+        maxSize = 1000000
+    [advanced.chaincodeDiscovery]
+        eventDriven = true
+        pollInterval = 300 # s
+        probeTimeout = 5000 # ms
+    [advanced.peerHealth]
+        enable = true
+        failureThreshold = 5
+        probeInterval = 5000 # ms
+    [advanced.orderer]
+        hedge = false
+        hedgeDelay = 3000 # ms
+        pipeline = false
+        pipelineWindow = 1000
+        pipelineMaxQueued = 10000
+    [advanced.commit]
+        adaptive = true
+        timeout = 15000 # ms
+        minTimeout = 5000 # ms
+        maxTimeout = 60000 # ms
  */
 
 import com.moandjiezana.toml.Toml;
@@ -62,7 +100,7 @@ public class FabricStubConfigParser {
             common = new Common(toml);
             fabricServices = new FabricServices(toml, stubPath);
             orgs = new Orgs(toml, stubPath);
-            advanced = new Advanced(toml);
+            advanced = new Advanced(toml, stubPath);
 
         } catch (Exception e) {
             throw new Exception(stubConfig + " error: " + e);
@@ -215,17 +253,109 @@ public class FabricStubConfigParser {
                     corePoolSize = 200
                     maxPoolSize = 500
                     queueCapacity = 5000
+                [advanced.endorsement]
+                    earlyCompletion = true
+                    requiredEndorsements = 1
+                    policyAwareSelection = true
+                [advanced.query]
+                    loadBalance = true
+                    hedge = true
+                    hedgeDelayPercentile = 95
+                    minHedgeDelay = 20
+                [advanced.blockCache]
+                    enable = true
+                    maxSize = 64 # MB
+                    prefetch = 8
+                [advanced.blockStore]
+                    enable = true
+                    path = 'blocks'
+                [advanced.txIndex]
+                    enable = true
+                    maxSize = 1000000
+                [advanced.chaincodeDiscovery]
+                    eventDriven = true
+                    pollInterval = 300 # s
+                    probeTimeout = 5000 # ms
+                [advanced.peerHealth]
+                    enable = true
+                    failureThreshold = 5
+                    probeInterval = 5000 # ms
+                [advanced.orderer]
+                    hedge = false
+                    hedgeDelay = 3000 # ms
+                    pipeline = false
+                    pipelineWindow = 1000
+                    pipelineMaxQueued = 10000
+                [advanced.commit]
+                    adaptive = true
+                    timeout = 15000 # ms
+                    minTimeout = 5000 # ms
+                    maxTimeout = 60000 # ms
         * */
         private ThreadPool threadPool;
-
-        public Advanced(Toml toml) throws Exception {
+        private Endorsement endorsement;
+        private Query query;
+        private BlockCache blockCache;
+        private BlockStore blockStore;
+        private TxIndex txIndex;
+        private ChaincodeDiscovery chaincodeDiscovery;
+        private PeerHealth peerHealth;
+        private Orderer orderer;
+        private Commit commit;
+
+        public Advanced(Toml toml, String stubPath) throws Exception {
             threadPool = new ThreadPool(toml);
+            endorsement = new Endorsement(toml);
+            query = new Query(toml);
+            blockCache = new BlockCache(toml);
+            blockStore = new BlockStore(toml, stubPath);
+            txIndex = new TxIndex(toml);
+            chaincodeDiscovery = new ChaincodeDiscovery(toml);
+            peerHealth = new PeerHealth(toml);
+            orderer = new Orderer(toml);
+            commit = new Commit(toml);
         }
 
         public ThreadPool getThreadPool() {
             return threadPool;
         }
 
+        public Endorsement getEndorsement() {
+            return endorsement;
+        }
+
+        public Query getQuery() {
+            return query;
+        }
+
+        public BlockCache getBlockCache() {
+            return blockCache;
+        }
+
+        public BlockStore getBlockStore() {
+            return blockStore;
+        }
+
+        public TxIndex getTxIndex() {
+            return txIndex;
+        }
+
+        public ChaincodeDiscovery getChaincodeDiscovery() {
+            return chaincodeDiscovery;
+        }
+
+        public PeerHealth getPeerHealth() {
+            return peerHealth;
+        }
+
+        public Orderer getOrderer() {
+            return orderer;
+        }
+
+        public Commit getCommit() {
+            return commit;
+        }
+
         public static class ThreadPool {
             private int corePoolSize; // default
             private int maxPoolSize; // default
@@ -249,6 +379,241 @@ public class FabricStubConfigParser {
                 return queueCapacity;
             }
         }
+
+        public static class Endorsement {
+            private boolean earlyCompletion; // default false: wait for every endorser
+            private int requiredEndorsements; // default 0: all endorsers of the chaincode
+            private boolean policyAwareSelection; // default false: send to all endorsers
+
+            public Endorsement(Toml toml) {
+                earlyCompletion = parseBoolean(toml, "advanced.endorsement.earlyCompletion", false);
+                requiredEndorsements =
+                        parseInt(toml, "advanced.endorsement.requiredEndorsements", 0);
+                policyAwareSelection =
+                        parseBoolean(toml, "advanced.endorsement.policyAwareSelection", false);
+            }
+
+            public boolean isEarlyCompletion() {
+                return earlyCompletion;
+            }
+
+            public int getRequiredEndorsements() {
+                return requiredEndorsements;
+            }
+
+            public boolean isPolicyAwareSelection() {
+                return policyAwareSelection;
+            }
+        }
+
+        public static class Query {
+            private boolean loadBalance; // default false: send a call to all endorsers
+            private boolean hedge; // default false: no second peer
+            private int hedgeDelayPercentile; // default 95
+            private int minHedgeDelay; // default 20ms
+
+            public Query(Toml toml) {
+                loadBalance = parseBoolean(toml, "advanced.query.loadBalance", false);
+                hedge = parseBoolean(toml, "advanced.query.hedge", false);
+                hedgeDelayPercentile = parseInt(toml, "advanced.query.hedgeDelayPercentile", 95);
+                minHedgeDelay = parseInt(toml, "advanced.query.minHedgeDelay", 20);
+            }
+
+            public boolean isLoadBalance() {
+                return loadBalance;
+            }
+
+            public boolean isHedge() {
+                return hedge;
+            }
+
+            public int getHedgeDelayPercentile() {
+                return hedgeDelayPercentile;
+            }
+
+            public int getMinHedgeDelay() {
+                return minHedgeDelay;
+            }
+        }
+
+        public static class BlockCache {
+            private boolean enable; // default true
+            private int maxSize; // default 64 MB
+            private int prefetch; // default 8 blocks
+
+            public BlockCache(Toml toml) {
+                enable = parseBoolean(toml, "advanced.blockCache.enable", true);
+                maxSize = parseInt(toml, "advanced.blockCache.maxSize", 64);
+                prefetch = parseInt(toml, "advanced.blockCache.prefetch", 8);
+            }
+
+            public boolean isEnable() {
+                return enable;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public int getPrefetch() {
+                return prefetch;
+            }
+        }
+
+        public static class BlockStore {
+            private boolean enable; // default false
+            private String path; // default 'blocks' under the chain directory
+
+            public BlockStore(Toml toml, String stubPath) throws Exception {
+                enable = parseBoolean(toml, "advanced.blockStore.enable", false);
+                String dir = parseString(toml, "advanced.blockStore.path", "blocks");
+                path = enable ? FabricUtils.getPath(stubPath) + File.separator + dir : null;
+            }
+
+            public boolean isEnable() {
+                return enable;
+            }
+
+            public String getPath() {
+                return path;
+            }
+        }
+
+        public static class TxIndex {
+            private boolean enable; // default true
+            private int maxSize; // default 1000000 transactions
+
+            public TxIndex(Toml toml) {
+                enable = parseBoolean(toml, "advanced.txIndex.enable", true);
+                maxSize = parseInt(toml, "advanced.txIndex.maxSize", 1000000);
+            }
+
+            public boolean isEnable() {
+                return enable;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+        }
+
+        public static class ChaincodeDiscovery {
+            private boolean eventDriven; // default true
+            private int pollInterval; // default 300s if event driven, else 10s
+            private int probeTimeout; // default 5000ms for each peer
+
+            public ChaincodeDiscovery(Toml toml) {
+                eventDriven = parseBoolean(toml, "advanced.chaincodeDiscovery.eventDriven", true);
+                pollInterval =
+                        parseInt(
+                                toml,
+                                "advanced.chaincodeDiscovery.pollInterval",
+                                eventDriven ? 300 : 10);
+                probeTimeout = parseInt(toml, "advanced.chaincodeDiscovery.probeTimeout", 5000);
+            }
+
+            public boolean isEventDriven() {
+                return eventDriven;
+            }
+
+            public int getPollInterval() {
+                return pollInterval;
+            }
+
+            public int getProbeTimeout() {
+                return probeTimeout;
+            }
+        }
+
+        public static class PeerHealth {
+            private boolean enable; // default true
+            private int failureThreshold; // default 5 consecutive failures
+            private int probeInterval; // default 5000ms
+
+            public PeerHealth(Toml toml) {
+                enable = parseBoolean(toml, "advanced.peerHealth.enable", true);
+                failureThreshold = parseInt(toml, "advanced.peerHealth.failureThreshold", 5);
+                probeInterval = parseInt(toml, "advanced.peerHealth.probeInterval", 5000);
+            }
+
+            public boolean isEnable() {
+                return enable;
+            }
+
+            public int getFailureThreshold() {
+                return failureThreshold;
+            }
+
+            public int getProbeInterval() {
+                return probeInterval;
+            }
+        }
+
+        public static class Orderer {
+            private boolean hedge; // default false, a hedged transaction is ordered twice
+            private int hedgeDelay; // default 3000ms
+            private boolean pipeline; // default false, one broadcast call for each transaction
+            private int pipelineWindow; // default 1000 unacknowledged envelopes for each orderer
+            private int pipelineMaxQueued; // default 10000 envelopes waiting for the window
+
+            public Orderer(Toml toml) {
+                hedge = parseBoolean(toml, "advanced.orderer.hedge", false);
+                hedgeDelay = parseInt(toml, "advanced.orderer.hedgeDelay", 3000);
+                pipeline = parseBoolean(toml, "advanced.orderer.pipeline", false);
+                pipelineWindow = parseInt(toml, "advanced.orderer.pipelineWindow", 1000);
+                pipelineMaxQueued = parseInt(toml, "advanced.orderer.pipelineMaxQueued", 10000);
+            }
+
+            public boolean isHedge() {
+                return hedge;
+            }
+
+            public int getHedgeDelay() {
+                return hedgeDelay;
+            }
+
+            public boolean isPipeline() {
+                return pipeline;
+            }
+
+            public int getPipelineWindow() {
+                return pipelineWindow;
+            }
+
+            public int getPipelineMaxQueued() {
+                return pipelineMaxQueued;
+            }
+        }
+
+        public static class Commit {
+            private boolean adaptive; // default true, follow the measured commit latency
+            private int timeout; // default 15000ms, until measured, or always if not adaptive
+            private int minTimeout; // default 5000ms
+            private int maxTimeout; // default 60000ms
+
+            public Commit(Toml toml) {
+                adaptive = parseBoolean(toml, "advanced.commit.adaptive", true);
+                timeout = parseInt(toml, "advanced.commit.timeout", 15000);
+                minTimeout = parseInt(toml, "advanced.commit.minTimeout", 5000);
+                maxTimeout = parseInt(toml, "advanced.commit.maxTimeout", 60000);
+            }
+
+            public boolean isAdaptive() {
+                return adaptive;
+            }
+
+            public int getTimeout() {
+                return timeout;
+            }
+
+            public int getMinTimeout() {
+                return minTimeout;
+            }
+
+            public int getMaxTimeout() {
+                return maxTimeout;
+            }
+        }
     }
 
     private static int parseInt(Toml toml, String key, int defaultReturn) {
@@ -261,6 +626,16 @@ public class FabricStubConfigParser {
         return res.intValue();
     }
 
+    private static boolean parseBoolean(Toml toml, String key, boolean defaultReturn) {
+        Boolean res = toml.getBoolean(key);
+
+        if (res == null) {
+            logger.info(key + " has not set, default to " + defaultReturn);
+            return defaultReturn;
+        }
+        return res.booleanValue();
+    }
+
     private static String parseString(Toml toml, String key, String defaultReturn) {
         try {
             return parseString(toml, key);
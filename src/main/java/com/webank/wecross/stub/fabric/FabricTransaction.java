@@ -2,11 +2,11 @@ package com.webank.wecross.stub.fabric;
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Timestamp;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.msp.Identities;
 import org.hyperledger.fabric.protos.peer.Chaincode;
 import org.hyperledger.fabric.protos.peer.FabricProposal;
 import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
@@ -19,16 +19,25 @@ public class FabricTransaction {
     private String txID;
 
     private long timestamp = 0;
+    private String creatorIdentity;
 
     FabricTransaction(byte[] payloadBytes) throws Exception {
+        this(ProtoBytes.parse(Common.Payload.parser(), payloadBytes));
+    }
+
+    FabricTransaction(Common.Payload transactionPayload) throws Exception {
+        this(
+                transactionPayload,
+                Common.ChannelHeader.parseFrom(transactionPayload.getHeader().getChannelHeader()));
+    }
 
-        Common.Payload transactionPayload = Common.Payload.parseFrom(payloadBytes);
+    FabricTransaction(Common.Payload transactionPayload, Common.ChannelHeader channelHeader)
+            throws Exception {
         this.header = transactionPayload.getHeader();
-        Common.ChannelHeader channelHeader =
-                Common.ChannelHeader.parseFrom(header.getChannelHeader());
         this.txID = channelHeader.getTxId();
         this.transaction =
-                org.hyperledger.fabric.protos.peer.FabricTransaction.Transaction.parseFrom(
+                ProtoBytes.parse(
+                        org.hyperledger.fabric.protos.peer.FabricTransaction.Transaction.parser(),
                         transactionPayload.getData());
         Timestamp ts = channelHeader.getTimestamp();
         this.timestamp = ts.getSeconds();
@@ -39,16 +48,21 @@ public class FabricTransaction {
     }
 
     public static FabricTransaction buildFromEnvelopeBytes(byte[] envelopeBytes) throws Exception {
-        Common.Envelope envelope = Common.Envelope.parseFrom(envelopeBytes);
-
-        byte[] payloadBytes = envelope.getPayload().toByteArray();
-        return buildFromPayloadBytes(payloadBytes);
+        Common.Envelope envelope = ProtoBytes.parse(Common.Envelope.parser(), envelopeBytes);
+        return new FabricTransaction(
+                ProtoBytes.parse(Common.Payload.parser(), envelope.getPayload()));
     }
 
     public static FabricTransaction buildFromPayloadBytes(byte[] payloadBytes) throws Exception {
         return new FabricTransaction(payloadBytes);
     }
 
+    // For callers which have parsed the channel header already
+    public static FabricTransaction buildFromPayload(
+            Common.Payload payload, Common.ChannelHeader channelHeader) throws Exception {
+        return new FabricTransaction(payload, channelHeader);
+    }
+
     public String getTxID() {
         return txID;
     }
@@ -85,6 +99,19 @@ public class FabricTransaction {
         return timestamp;
     }
 
+    // Certificate of the client who signed the transaction, from SignatureHeader.creator
+    public String getCreatorIdentity() throws Exception {
+        if (creatorIdentity == null) {
+            Common.SignatureHeader signatureHeader =
+                    Common.SignatureHeader.parseFrom(header.getSignatureHeader());
+            creatorIdentity =
+                    Identities.SerializedIdentity.parseFrom(signatureHeader.getCreator())
+                            .getIdBytes()
+                            .toStringUtf8();
+        }
+        return creatorIdentity;
+    }
+
     public static class TransactionAction {
         private org.hyperledger.fabric.protos.peer.FabricTransaction.TransactionAction
                 transactionAction;
@@ -95,8 +122,7 @@ public class FabricTransaction {
                         transactionAction)
                 throws Exception {
             this.transactionAction = transactionAction;
-            chaincodeAction =
-                    new ChaincodeActionPayload(this.transactionAction.getPayload().toByteArray());
+            chaincodeAction = new ChaincodeActionPayload(this.transactionAction.getPayload());
         }
 
         public ChaincodeActionPayload getChaincodeAction() {
@@ -110,12 +136,17 @@ public class FabricTransaction {
             private EndorsedAction endorsedAction;
 
             public ChaincodeActionPayload(byte[] bytes) throws Exception {
+                this(ProtoBytes.wrap(bytes));
+            }
+
+            public ChaincodeActionPayload(ByteString bytes) throws Exception {
                 this.chaincodeActionPayload =
-                        org.hyperledger.fabric.protos.peer.FabricTransaction.ChaincodeActionPayload
-                                .parseFrom(bytes);
+                        ProtoBytes.parse(
+                                org.hyperledger.fabric.protos.peer.FabricTransaction
+                                        .ChaincodeActionPayload.parser(),
+                                bytes);
                 this.proposalPayload =
-                        new ProposalPayload(
-                                chaincodeActionPayload.getChaincodeProposalPayload().toByteArray());
+                        new ProposalPayload(chaincodeActionPayload.getChaincodeProposalPayload());
                 this.endorsedAction = new EndorsedAction(chaincodeActionPayload.getAction());
             }
 
@@ -134,11 +165,17 @@ public class FabricTransaction {
                 private List<String> args;
 
                 public ProposalPayload(byte[] bytes) throws Exception {
+                    this(ProtoBytes.wrap(bytes));
+                }
+
+                public ProposalPayload(ByteString bytes) throws Exception {
                     this.chaincodeProposalPayload =
-                            FabricProposal.ChaincodeProposalPayload.parseFrom(bytes);
+                            ProtoBytes.parse(
+                                    FabricProposal.ChaincodeProposalPayload.parser(), bytes);
 
                     Chaincode.ChaincodeInvocationSpec chaincodeInvocationSpec =
-                            Chaincode.ChaincodeInvocationSpec.parseFrom(
+                            ProtoBytes.parse(
+                                    Chaincode.ChaincodeInvocationSpec.parser(),
                                     chaincodeProposalPayload.getInput());
 
                     Chaincode.ChaincodeSpec chaincodeSpec =
@@ -158,8 +195,7 @@ public class FabricTransaction {
                             method = byteString.toStringUtf8();
                             isMethod = false;
                         } else {
-                            args.add(
-                                    new String(byteString.toByteArray(), Charset.forName("UTF-8")));
+                            args.add(byteString.toStringUtf8());
                         }
                     }
                 }
@@ -189,13 +225,13 @@ public class FabricTransaction {
                     this.chaincodeEndorsedAction = chaincodeEndorsedAction;
 
                     FabricProposalResponse.ProposalResponsePayload proposalResponsePayload =
-                            FabricProposalResponse.ProposalResponsePayload.parseFrom(
+                            ProtoBytes.parse(
+                                    FabricProposalResponse.ProposalResponsePayload.parser(),
                                     this.chaincodeEndorsedAction.getProposalResponsePayload());
-                    org.hyperledger.fabric.protos.peer.FabricProposal.ChaincodeAction
-                            chaincodeAction =
-                                    org.hyperledger.fabric.protos.peer.FabricProposal
-                                            .ChaincodeAction.parseFrom(
-                                            proposalResponsePayload.getExtension());
+                    FabricProposal.ChaincodeAction chaincodeAction =
+                            ProtoBytes.parse(
+                                    FabricProposal.ChaincodeAction.parser(),
+                                    proposalResponsePayload.getExtension());
                     this.output = chaincodeAction.getResponse().getPayload();
                 }
 
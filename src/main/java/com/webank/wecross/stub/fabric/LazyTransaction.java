@@ -0,0 +1,101 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.protobuf.ByteString;
+import com.webank.wecross.common.FabricType;
+import com.webank.wecross.stub.Transaction;
+import com.webank.wecross.stub.TransactionRequest;
+import com.webank.wecross.stub.TransactionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Transaction of a block which is decoded when its detail is first read. Until then it only
+// holds the envelope, a slice of the block bytes
+public class LazyTransaction extends Transaction {
+    private static Logger logger = LoggerFactory.getLogger(LazyTransaction.class);
+
+    public interface Decoder {
+        void decode(Transaction transaction) throws Exception;
+    }
+
+    private ByteString envelopeBytes;
+    private Decoder decoder; // null once decoding has started
+    private volatile boolean decoded = false;
+
+    public LazyTransaction(
+            String txID, long blockNumber, ByteString envelopeBytes, Decoder decoder) {
+        this.envelopeBytes = envelopeBytes;
+        this.decoder = decoder;
+
+        TransactionResponse response = super.getTransactionResponse();
+        response.setErrorCode(FabricType.TransactionResponseStatus.SUCCESS);
+        response.setHash(txID);
+        response.setBlockNumber(blockNumber);
+    }
+
+    private void decode() {
+        if (decoded) {
+            return;
+        }
+
+        synchronized (this) {
+            // decoder calls the getters below, they return at once on the decoding thread
+            if (decoder == null) {
+                return;
+            }
+            Decoder current = decoder;
+            decoder = null;
+
+            try {
+                current.decode(this);
+            } catch (Exception e) {
+                TransactionResponse response = super.getTransactionResponse();
+                logger.warn("Decode transaction {} exception: ", response.getHash(), e);
+                response.setErrorCode(FabricType.TransactionResponseStatus.INTERNAL_ERROR);
+                response.setMessage("Decode transaction exception: " + e);
+            }
+            super.setTxBytes(envelopeBytes.toByteArray());
+            envelopeBytes = null;
+            decoded = true;
+        }
+    }
+
+    public boolean isDecoded() {
+        return decoded;
+    }
+
+    @Override
+    public byte[] getTxBytes() {
+        decode();
+        return super.getTxBytes();
+    }
+
+    @Override
+    public String getAccountIdentity() {
+        decode();
+        return super.getAccountIdentity();
+    }
+
+    @Override
+    public String getResource() {
+        decode();
+        return super.getResource();
+    }
+
+    @Override
+    public boolean isTransactionByProxy() {
+        decode();
+        return super.isTransactionByProxy();
+    }
+
+    @Override
+    public TransactionRequest getTransactionRequest() {
+        decode();
+        return super.getTransactionRequest();
+    }
+
+    @Override
+    public TransactionResponse getTransactionResponse() {
+        decode();
+        return super.getTransactionResponse();
+    }
+}
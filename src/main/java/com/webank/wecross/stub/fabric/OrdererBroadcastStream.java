@@ -0,0 +1,341 @@
+package com.webank.wecross.stub.fabric;
+
+import io.grpc.ManagedChannel;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.orderer.Ab;
+import org.hyperledger.fabric.protos.orderer.AtomicBroadcastGrpc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// A persistent broadcast stream to one orderer. Envelopes of concurrent callers are queued and
+// written in bursts by a single writer, the orderer acknowledges them in order so every response
+// completes the oldest unacknowledged envelope. At most `window` envelopes are unacknowledged.
+// A broken stream is reopened after a backoff, envelopes sent meanwhile fail at once so callers
+// fail over to other orderers. At most `maxQueued` envelopes wait for the window, and an envelope
+// not acknowledged within the ack timeout fails and resets the stream
+public class OrdererBroadcastStream {
+    private static Logger logger = LoggerFactory.getLogger(OrdererBroadcastStream.class);
+
+    private static final long MIN_RECONNECT_DELAY = 200; // ms
+    private static final long MAX_RECONNECT_DELAY = 10000; // ms
+
+    public interface Connector {
+        ManagedChannel connect() throws Exception;
+    }
+
+    private static class Pending {
+        private Common.Envelope envelope;
+        private CompletableFuture<Ab.BroadcastResponse> future;
+        private volatile Stream stream; // the one it has been written to
+
+        Pending(Common.Envelope envelope, CompletableFuture<Ab.BroadcastResponse> future) {
+            this.envelope = envelope;
+            this.future = future;
+        }
+    }
+
+    private String name;
+    private Connector connector;
+    private Executor executor;
+    private Timer timer;
+    private int window;
+    private int maxQueued;
+    private LongSupplier ackTimeout; // ms
+    private ManagedChannel managedChannel; // opened once, streams are reopened on it
+    private Queue<Pending> queued = new ConcurrentLinkedQueue<>();
+    private AtomicInteger queuedCount = new AtomicInteger(0);
+    private AtomicBoolean flushing = new AtomicBoolean(false);
+    private volatile Stream stream;
+    private volatile long reconnectDelay = 0; // 0 while the stream works
+    private long reconnectTime = 0; // guarded by this, no stream is opened before it
+
+    public OrdererBroadcastStream(
+            String name,
+            Connector connector,
+            Executor executor,
+            Timer timer,
+            int window,
+            int maxQueued,
+            LongSupplier ackTimeout) {
+        this.name = name;
+        this.connector = connector;
+        this.executor = executor;
+        this.timer = timer;
+        this.window = window;
+        this.maxQueued = maxQueued;
+        this.ackTimeout = ackTimeout;
+    }
+
+    public CompletableFuture<Ab.BroadcastResponse> send(Common.Envelope envelope) {
+        CompletableFuture<Ab.BroadcastResponse> future = new CompletableFuture<>();
+        if (queuedCount.incrementAndGet() > maxQueued) {
+            queuedCount.decrementAndGet();
+            future.completeExceptionally(
+                    new RejectedExecutionException(
+                            "Orderer " + name + " broadcast queue is full: " + maxQueued));
+            return future;
+        }
+
+        Pending pending = new Pending(envelope, future);
+        try {
+            Timeout deadline =
+                    timer.newTimeout(
+                            timeout -> onDeadline(pending),
+                            ackTimeout.getAsLong(),
+                            TimeUnit.MILLISECONDS);
+            future.whenComplete((response, e) -> deadline.cancel());
+        } catch (Exception e) {
+            queuedCount.decrementAndGet();
+            future.completeExceptionally(e); // the timer has been stopped
+            return future;
+        }
+
+        queued.add(pending);
+        scheduleFlush();
+        return future;
+    }
+
+    // Not acknowledged in time. A queued envelope is dropped, a written one means the orderer has
+    // stopped acknowledging with the stream open, the stream is reset and its envelopes fail
+    private void onDeadline(Pending pending) {
+        if (pending.future.isDone()) {
+            return;
+        }
+
+        TimeoutException e =
+                new TimeoutException("Orderer " + name + " broadcast is not acknowledged in time");
+        if (queued.remove(pending)) {
+            queuedCount.decrementAndGet();
+        }
+        Stream written = pending.stream;
+        if (written != null) {
+            written.close(e);
+        }
+        pending.future.completeExceptionally(e);
+    }
+
+    private Pending pollQueued() {
+        Pending pending = queued.poll();
+        if (pending != null) {
+            queuedCount.decrementAndGet();
+        }
+        return pending;
+    }
+
+    private void scheduleFlush() {
+        if (!queued.isEmpty() && flushing.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (Exception e) {
+                // rejected by a full pool, fails like a broken stream so the callers are released
+                flushing.set(false);
+                failQueued(e);
+            }
+        }
+    }
+
+    // The single writer: every queued envelope is written without waiting for responses, gRPC
+    // coalesces the writes of one pass into few flushes
+    private void flush() {
+        try {
+            while (!queued.isEmpty()) {
+                Stream current = getStream();
+                if (!current.isWritable()) {
+                    break; // resumed by the ready handler or an acknowledgement
+                }
+
+                Pending pending = pollQueued();
+                if (pending != null) {
+                    current.write(pending);
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Orderer {} broadcast stream unavailable: {}", name, e.getMessage());
+            failQueued(e);
+        } finally {
+            flushing.set(false);
+        }
+
+        Stream current = stream;
+        if (current == null || current.isWritable()) {
+            scheduleFlush(); // queued after the loop has ended
+        }
+    }
+
+    private void failQueued(Exception e) {
+        Pending pending;
+        while ((pending = pollQueued()) != null) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    private synchronized Stream getStream() throws Exception {
+        if (stream == null) {
+            long now = System.currentTimeMillis();
+            if (now < reconnectTime) {
+                throw new Exception(
+                        "Orderer "
+                                + name
+                                + " broadcast stream reconnects in "
+                                + (reconnectTime - now)
+                                + " ms");
+            }
+
+            try {
+                if (managedChannel == null) {
+                    managedChannel = connector.connect();
+                }
+                Stream opened = new Stream();
+                opened.open(managedChannel);
+                if (opened.closed.get()) {
+                    throw new Exception("Broadcast stream closed while opening");
+                }
+                stream = opened;
+            } catch (Exception e) {
+                backOff();
+                logger.warn(
+                        "Orderer {} open broadcast stream exception, retry in {} ms: {}",
+                        name,
+                        reconnectDelay,
+                        e.getMessage());
+                throw e;
+            }
+            logger.debug("Orderer {} broadcast stream opened", name);
+        }
+        return stream;
+    }
+
+    private synchronized void onStreamClosed(Stream closed) {
+        if (stream == closed) {
+            stream = null;
+            backOff();
+        }
+        scheduleFlush(); // the queued envelopes fail until the stream is reopened
+    }
+
+    // Doubled on every failure and reset by an acknowledgement, an unreachable orderer is not
+    // reconnected in a busy loop
+    private synchronized void backOff() {
+        long delay = reconnectDelay == 0 ? MIN_RECONNECT_DELAY : reconnectDelay * 2;
+        reconnectDelay = Math.min(delay, MAX_RECONNECT_DELAY);
+        reconnectTime = System.currentTimeMillis() + reconnectDelay;
+    }
+
+    public int getUnacknowledged() {
+        Stream current = stream;
+        return current == null ? 0 : current.unacknowledged.get();
+    }
+
+    private class Stream {
+        private volatile ClientCallStreamObserver<Common.Envelope> requestStream;
+        private Queue<CompletableFuture<Ab.BroadcastResponse>> inflight =
+                new ConcurrentLinkedQueue<>();
+        private AtomicInteger unacknowledged = new AtomicInteger(0);
+        private AtomicBoolean closed = new AtomicBoolean(false);
+
+        void open(ManagedChannel managedChannel) {
+            AtomicBroadcastGrpc.newStub(managedChannel)
+                    .broadcast(
+                            new ClientResponseObserver<Common.Envelope, Ab.BroadcastResponse>() {
+                                @Override
+                                public void beforeStart(
+                                        ClientCallStreamObserver<Common.Envelope> stream) {
+                                    requestStream = stream;
+                                    stream.setOnReadyHandler(() -> scheduleFlush());
+                                }
+
+                                @Override
+                                public void onNext(Ab.BroadcastResponse response) {
+                                    onAcknowledged(response);
+                                }
+
+                                @Override
+                                public void onError(Throwable t) {
+                                    close(new Exception("Broadcast stream error: " + t));
+                                }
+
+                                @Override
+                                public void onCompleted() {
+                                    close(new Exception("Broadcast stream closed by orderer"));
+                                }
+                            });
+        }
+
+        boolean isWritable() {
+            return !closed.get() && unacknowledged.get() < window && requestStream.isReady();
+        }
+
+        void write(Pending pending) {
+            // registered before writing, the acknowledgement may come at once
+            pending.stream = this;
+            inflight.add(pending.future);
+            unacknowledged.incrementAndGet();
+            try {
+                requestStream.onNext(pending.envelope);
+            } catch (Exception e) {
+                close(new Exception("Write broadcast stream exception: " + e));
+            }
+
+            if (closed.get()) {
+                failInflight(new Exception("Broadcast stream closed"));
+            }
+        }
+
+        void onAcknowledged(Ab.BroadcastResponse response) {
+            CompletableFuture<Ab.BroadcastResponse> future = inflight.poll();
+            if (future == null) {
+                logger.warn("Orderer {} unexpected broadcast response: {}", name, response);
+                return;
+            }
+
+            int count = unacknowledged.decrementAndGet();
+            reconnectDelay = 0;
+            try {
+                executor.execute(() -> future.complete(response));
+            } catch (Exception e) {
+                future.complete(response); // rejected by a full pool, on the stream thread
+            }
+            if (count == window - 1) {
+                scheduleFlush(); // the window has been full
+            }
+        }
+
+        void close(Exception e) {
+            if (!closed.compareAndSet(false, true)) {
+                return; // by the stream and a deadline at the same time
+            }
+
+            logger.warn("Orderer {} broadcast stream closed: {}", name, e.getMessage());
+            failInflight(e);
+            try {
+                requestStream.onCompleted();
+            } catch (Exception ex) {
+                // stream has been closed by the server
+            }
+            onStreamClosed(this);
+        }
+
+        // Their envelopes may or may not have been ordered, callers fail over to other orderers
+        private void failInflight(Exception e) {
+            CompletableFuture<Ab.BroadcastResponse> future;
+            while ((future = inflight.poll()) != null) {
+                unacknowledged.decrementAndGet();
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
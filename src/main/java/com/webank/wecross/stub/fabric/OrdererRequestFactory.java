@@ -1,6 +1,5 @@
 package com.webank.wecross.stub.fabric;
 
-import com.google.protobuf.ByteString;
 import com.webank.wecross.account.FabricAccount;
 import com.webank.wecross.common.FabricType;
 import com.webank.wecross.stub.Account;
@@ -19,8 +18,8 @@ public class OrdererRequestFactory {
 
         Common.Envelope envelope =
                 Common.Envelope.newBuilder()
-                        .setPayload(ByteString.copyFrom(ordererPayloadToSign))
-                        .setSignature(ByteString.copyFrom(sign))
+                        .setPayload(ProtoBytes.wrap(ordererPayloadToSign))
+                        .setSignature(ProtoBytes.wrap(sign))
                         .build();
         Request request = new Request();
         request.setData(envelope.toByteArray());
@@ -0,0 +1,118 @@
+package com.webank.wecross.stub.fabric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hyperledger.fabric.sdk.Orderer;
+
+// Order the orderers to broadcast to by recent failures and EWMA latency.
+// A follower forwards broadcasts to the raft leader, so the leader tends to answer fastest
+public class OrdererSelector {
+    private static final double EWMA_ALPHA = 0.3;
+    private static final int MAX_FAILURE_PENALTY = 3;
+
+    private Map<Orderer, OrdererStats> ordererStats = new ConcurrentHashMap<>();
+
+    // Healthy orderers first, then the fastest. Unmeasured orderers score 0 so they get tried,
+    // equal ones are shuffled to spread the load
+    public List<Orderer> order(Collection<Orderer> orderers) {
+        List<Orderer> ordered = new ArrayList<>(orderers);
+        Collections.shuffle(ordered);
+
+        Map<Orderer, OrdererStats> snapshot = new LinkedHashMap<>();
+        for (Orderer orderer : ordered) {
+            snapshot.put(orderer, getStats(orderer));
+        }
+        ordered.sort(
+                Comparator.comparingInt(
+                                (Orderer orderer) ->
+                                        Math.min(
+                                                snapshot.get(orderer).getConsecutiveFailures(),
+                                                MAX_FAILURE_PENALTY))
+                        .thenComparingDouble(orderer -> snapshot.get(orderer).getEwmaLatency()));
+        return ordered;
+    }
+
+    public void onResponse(Orderer orderer, long latency, boolean success) {
+        getStats(orderer).onResponse(latency, success);
+    }
+
+    private OrdererStats getStats(Orderer orderer) {
+        return ordererStats.computeIfAbsent(orderer, key -> new OrdererStats(key.getName()));
+    }
+
+    public Map<String, OrdererStats> getOrdererStats() {
+        Map<String, OrdererStats> res = new LinkedHashMap<>();
+        for (OrdererStats stats : ordererStats.values()) {
+            res.put(stats.getName(), stats);
+        }
+        return res;
+    }
+
+    public static class OrdererStats {
+        private String name;
+        private double ewmaLatency = 0; // ms
+        private int consecutiveFailures = 0;
+        private long requests = 0;
+        private long failures = 0;
+
+        OrdererStats(String name) {
+            this.name = name;
+        }
+
+        synchronized void onResponse(long latency, boolean success) {
+            requests++;
+            // a failed broadcast counts its latency too, an orderer timing out is slow
+            ewmaLatency =
+                    requests == 1 ? latency : EWMA_ALPHA * latency + (1 - EWMA_ALPHA) * ewmaLatency;
+            if (success) {
+                consecutiveFailures = 0;
+            } else {
+                failures++;
+                consecutiveFailures++;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public synchronized double getEwmaLatency() {
+            return ewmaLatency;
+        }
+
+        public synchronized int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        public synchronized long getRequests() {
+            return requests;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "OrdererStats{"
+                    + "name='"
+                    + name
+                    + '\''
+                    + ", ewmaLatency="
+                    + ewmaLatency
+                    + ", consecutiveFailures="
+                    + consecutiveFailures
+                    + ", requests="
+                    + requests
+                    + ", failures="
+                    + failures
+                    + '}';
+        }
+    }
+}
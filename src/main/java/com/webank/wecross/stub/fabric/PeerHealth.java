@@ -0,0 +1,256 @@
+package com.webank.wecross.stub.fabric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Executor;
+import org.hyperledger.fabric.sdk.Peer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Health of every peer: success rate, latency EWMA and consecutive failures.
+// A peer failing failureThreshold times in a row is tripped OPEN and routed around, it is probed
+// in background and closed again once a probe succeeds
+public class PeerHealth {
+    private static Logger logger = LoggerFactory.getLogger(PeerHealth.class);
+
+    private static final double LATENCY_ALPHA = 0.3;
+    private static final double SUCCESS_ALPHA = 0.1;
+
+    public enum State {
+        CLOSED, // healthy, receives requests
+        OPEN, // tripped, receives no request
+        HALF_OPEN // tripped, a probe is running
+    }
+
+    public interface Prober {
+        boolean probe(Peer peer) throws Exception;
+    }
+
+    private Map<Peer, PeerState> peerStates = new LinkedHashMap<>();
+    private boolean enable;
+    private int failureThreshold;
+    private long probeInterval; // ms
+    private Timer probeTimer;
+
+    public PeerHealth(
+            Map<String, Peer> peersMap, boolean enable, int failureThreshold, long probeInterval) {
+        for (Map.Entry<String, Peer> peerEntry : peersMap.entrySet()) {
+            peerStates.put(peerEntry.getValue(), new PeerState(peerEntry.getKey()));
+        }
+        this.enable = enable;
+        this.failureThreshold = failureThreshold;
+        this.probeInterval = probeInterval;
+    }
+
+    // Probes run on executor, so a dead peer does not hold the others back
+    public void start(Prober prober, Executor executor) {
+        if (!enable) {
+            return;
+        }
+
+        probeTimer = new Timer("PeerHealth", true);
+        probeTimer.schedule(
+                new TimerTask() {
+                    @Override
+                    public void run() {
+                        for (Map.Entry<Peer, PeerState> entry : peerStates.entrySet()) {
+                            if (!entry.getValue().startProbe()) {
+                                continue;
+                            }
+
+                            try {
+                                executor.execute(
+                                        () -> probe(prober, entry.getKey(), entry.getValue()));
+                            } catch (Exception e) {
+                                // a full pool, probe again next time. Throwing would cancel
+                                // the timer and leave the peer half open
+                                entry.getValue().finishProbe(false);
+                            }
+                        }
+                    }
+                },
+                probeInterval,
+                probeInterval);
+    }
+
+    private void probe(Prober prober, Peer peer, PeerState state) {
+        boolean success;
+        try {
+            success = prober.probe(peer);
+        } catch (Exception e) {
+            logger.debug("Probe peer {} exception: ", state.getName(), e);
+            success = false;
+        }
+        state.finishProbe(success);
+    }
+
+    public boolean isAvailable(Peer peer) {
+        PeerState state = peerStates.get(peer);
+        return !enable || state == null || state.getState() == State.CLOSED;
+    }
+
+    // Peers not tripped. If every peer is tripped all are returned, a request is never dropped
+    public Collection<Peer> filterAvailable(Collection<Peer> peers) {
+        if (!enable) {
+            return peers;
+        }
+
+        boolean allAvailable = true;
+        for (Peer peer : peers) {
+            if (!isAvailable(peer)) {
+                allAvailable = false;
+                break;
+            }
+        }
+        if (allAvailable) {
+            return peers; // the common case allocates nothing
+        }
+
+        List<Peer> available = new ArrayList<>(peers.size());
+        for (Peer peer : peers) {
+            if (isAvailable(peer)) {
+                available.add(peer);
+            }
+        }
+        return available.isEmpty() ? peers : available;
+    }
+
+    // Only transport failures and timeouts count, an error answered by the chaincode does not
+    public void onResponse(Peer peer, long latency, boolean success) {
+        PeerState state = peerStates.get(peer);
+        if (state != null && state.onResponse(latency, success, failureThreshold)) {
+            logger.warn(
+                    "Peer {} tripped after {} consecutive failures",
+                    state.getName(),
+                    failureThreshold);
+        }
+    }
+
+    public Map<String, PeerState> getPeerStates() {
+        Map<String, PeerState> res = new LinkedHashMap<>();
+        for (PeerState state : peerStates.values()) {
+            res.put(state.getName(), state);
+        }
+        return res;
+    }
+
+    public static class PeerState {
+        private String name;
+        private volatile State state = State.CLOSED;
+        private double ewmaLatency = 0; // ms
+        private double successRate = 1;
+        private int consecutiveFailures = 0;
+        private long requests = 0;
+        private long failures = 0;
+        private long trips = 0;
+
+        PeerState(String name) {
+            this.name = name;
+        }
+
+        // true if this response trips the peer
+        synchronized boolean onResponse(long latency, boolean success, int failureThreshold) {
+            requests++;
+            successRate = SUCCESS_ALPHA * (success ? 1 : 0) + (1 - SUCCESS_ALPHA) * successRate;
+            if (success) {
+                ewmaLatency =
+                        ewmaLatency == 0
+                                ? latency
+                                : LATENCY_ALPHA * latency + (1 - LATENCY_ALPHA) * ewmaLatency;
+                consecutiveFailures = 0;
+                return false;
+            }
+
+            failures++;
+            consecutiveFailures++;
+            if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                trips++;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean startProbe() {
+            if (state != State.OPEN) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            return true;
+        }
+
+        synchronized void finishProbe(boolean success) {
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+
+            if (success) {
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+                logger.info("Peer {} recovered, readmitted", name);
+            } else {
+                state = State.OPEN;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public synchronized double getEwmaLatency() {
+            return ewmaLatency;
+        }
+
+        public synchronized double getSuccessRate() {
+            return successRate;
+        }
+
+        public synchronized int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        public synchronized long getRequests() {
+            return requests;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        public synchronized long getTrips() {
+            return trips;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "PeerState{"
+                    + "name='"
+                    + name
+                    + '\''
+                    + ", state="
+                    + state
+                    + ", ewmaLatency="
+                    + ewmaLatency
+                    + ", successRate="
+                    + successRate
+                    + ", consecutiveFailures="
+                    + consecutiveFailures
+                    + ", requests="
+                    + requests
+                    + ", failures="
+                    + failures
+                    + ", trips="
+                    + trips
+                    + '}';
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.webank.wecross.stub.fabric;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hyperledger.fabric.sdk.Peer;
+
+// Choose a peer by EWMA latency weighted with outstanding requests, and keep per peer latency.
+// A failed call counts as at least failurePenalty, a peer failing fast does not look fast
+public class PeerLoadBalancer {
+    private static final double EWMA_ALPHA = 0.3;
+    private static final int LATENCY_WINDOW = 128;
+    private static final int FAILURE_PENALTY_FACTOR = 50; // times the min hedge delay
+
+    private Map<Peer, PeerStats> peerStats = new LinkedHashMap<>();
+
+    public PeerLoadBalancer(Map<String, Peer> peersMap, long minHedgeDelay) {
+        long failurePenalty = Math.max(1, minHedgeDelay) * FAILURE_PENALTY_FACTOR;
+        for (Map.Entry<String, Peer> peerEntry : peersMap.entrySet()) {
+            peerStats.put(peerEntry.getValue(), new PeerStats(peerEntry.getKey(), failurePenalty));
+        }
+    }
+
+    // Unmeasured peers score 0 so that every peer gets probed at first
+    public Peer choose(Collection<Peer> candidates, Peer exclude) {
+        Peer chosen = null;
+        double minScore = Double.MAX_VALUE;
+        for (Peer peer : candidates) {
+            PeerStats stats = peerStats.get(peer);
+            if (peer == exclude || stats == null) {
+                continue;
+            }
+
+            double score = stats.getEwmaLatency() * (stats.getOutstanding() + 1);
+            if (score < minScore) {
+                minScore = score;
+                chosen = peer;
+            }
+        }
+        return chosen;
+    }
+
+    public void onSend(Peer peer) {
+        PeerStats stats = peerStats.get(peer);
+        if (stats != null) {
+            stats.onSend();
+        }
+    }
+
+    public void onResponse(Peer peer, long latency, boolean success) {
+        PeerStats stats = peerStats.get(peer);
+        if (stats != null) {
+            stats.onResponse(latency, success);
+        }
+    }
+
+    // Delay before hedging to another peer, the given percentile of recent latency of the peer
+    public long getHedgeDelay(Peer peer, int percentile, long minDelay) {
+        PeerStats stats = peerStats.get(peer);
+        if (stats == null) {
+            return minDelay;
+        }
+        return Math.max(minDelay, stats.getLatencyPercentile(percentile));
+    }
+
+    public Map<String, PeerStats> getPeerStats() {
+        Map<String, PeerStats> res = new LinkedHashMap<>();
+        for (PeerStats stats : peerStats.values()) {
+            res.put(stats.getName(), stats);
+        }
+        return res;
+    }
+
+    public static class PeerStats {
+        private String name;
+        private long failurePenalty; // ms
+        private volatile double ewmaLatency = 0; // ms
+        private AtomicInteger outstanding = new AtomicInteger(0);
+        private AtomicLong requests = new AtomicLong(0);
+        private AtomicLong failures = new AtomicLong(0);
+        private long[] latencyWindow = new long[LATENCY_WINDOW];
+        private int latencyCount = 0;
+        private boolean measured = false;
+
+        PeerStats(String name, long failurePenalty) {
+            this.name = name;
+            this.failurePenalty = failurePenalty;
+        }
+
+        void onSend() {
+            outstanding.incrementAndGet();
+            requests.incrementAndGet();
+        }
+
+        synchronized void onResponse(long latency, boolean success) {
+            outstanding.decrementAndGet();
+            long sample = latency;
+            if (success) {
+                // hedge delays are taken from the latency of answers only
+                latencyWindow[latencyCount % LATENCY_WINDOW] = latency;
+                latencyCount++;
+            } else {
+                failures.incrementAndGet();
+                sample = Math.max(latency, failurePenalty);
+            }
+
+            ewmaLatency = measured ? EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * ewmaLatency : sample;
+            measured = true;
+        }
+
+        public synchronized long getLatencyPercentile(int percentile) {
+            int size = Math.min(latencyCount, LATENCY_WINDOW);
+            if (size == 0) {
+                return 0;
+            }
+
+            long[] sorted = Arrays.copyOf(latencyWindow, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+            return sorted[Math.max(0, Math.min(index, size - 1))];
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getEwmaLatency() {
+            return ewmaLatency;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        @Override
+        public String toString() {
+            return "PeerStats{"
+                    + "name='"
+                    + name
+                    + '\''
+                    + ", ewmaLatency="
+                    + ewmaLatency
+                    + ", p50="
+                    + getLatencyPercentile(50)
+                    + ", p99="
+                    + getLatencyPercentile(99)
+                    + ", outstanding="
+                    + outstanding
+                    + ", requests="
+                    + requests
+                    + ", failures="
+                    + failures
+                    + '}';
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.webank.wecross.account.FabricAccount;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.HFClient;
+import org.hyperledger.fabric.sdk.User;
+import org.hyperledger.fabric.sdk.security.CryptoSuite;
+import org.hyperledger.fabric.sdk.transaction.TransactionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the HFClient and Channel used to build proposals alive per (account, channel), so that
+ * EndorserRequestFactory only creates a fresh TransactionContext (nonce and txID) per request.
+ */
+public class ProposalContextCache {
+    private static Logger logger = LoggerFactory.getLogger(ProposalContextCache.class);
+
+    private static final long DEFAULT_IDLE_EXPIRES = 600000; // ms
+    private static final long DEFAULT_MAX_SIZE = 1024;
+
+    private static Cache<ContextKey, ProposalContext> contextCache =
+            CacheBuilder.newBuilder()
+                    .expireAfterAccess(DEFAULT_IDLE_EXPIRES, TimeUnit.MILLISECONDS)
+                    .maximumSize(DEFAULT_MAX_SIZE)
+                    .removalListener(
+                            notification ->
+                                    logger.debug(
+                                            "Proposal context evicted: {}, cause: {}",
+                                            notification.getKey(),
+                                            notification.getCause()))
+                    .build();
+
+    private static volatile boolean enable = true;
+
+    public static class ProposalContext {
+        private final HFClient hfClient;
+        private final Channel channel;
+        private final User user;
+        private final CryptoSuite cryptoSuite;
+
+        ProposalContext(User user, String channelName) throws Exception {
+            this.user = user;
+            this.cryptoSuite = CryptoSuite.Factory.getCryptoSuite();
+            this.hfClient = HFClient.createNewInstance();
+            this.hfClient.setCryptoSuite(cryptoSuite);
+            this.hfClient.setUserContext(user);
+            this.channel = hfClient.newChannel(channelName);
+        }
+
+        // TransactionContext generates nonce and txID in its constructor, so it is built per
+        // request on top of the cached client and channel
+        public TransactionContext newTransactionContext(boolean verify) {
+            TransactionContext transactionContext =
+                    new TransactionContext(channel, user, cryptoSuite);
+            transactionContext.verify(verify);
+            return transactionContext;
+        }
+
+        public HFClient getHfClient() {
+            return hfClient;
+        }
+
+        public Channel getChannel() {
+            return channel;
+        }
+    }
+
+    public static ProposalContext get(FabricAccount account, String channelName) throws Exception {
+        User user = account.getUser();
+        if (!enable) {
+            return new ProposalContext(user, channelName);
+        }
+
+        ContextKey key = new ContextKey(user, channelName);
+        try {
+            return contextCache.get(key, () -> new ProposalContext(user, channelName));
+        } catch (ExecutionException e) {
+            throw new Exception("Build proposal context exception", e.getCause());
+        }
+    }
+
+    public static void setEnable(boolean enable) {
+        ProposalContextCache.enable = enable;
+        if (!enable) {
+            contextCache.invalidateAll();
+        }
+    }
+
+    public static boolean isEnable() {
+        return enable;
+    }
+
+    public static long size() {
+        return contextCache.size();
+    }
+
+    public static void clear() {
+        contextCache.invalidateAll();
+    }
+
+    // The same account name may be rebuilt with another cert, which gives another User instance,
+    // so the user is compared by identity instead of by name, mspID and cert
+    private static class ContextKey {
+        private final User user;
+        private final String channelName;
+
+        ContextKey(User user, String channelName) {
+            this.user = user;
+            this.channelName = channelName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ContextKey)) {
+                return false;
+            }
+            ContextKey that = (ContextKey) o;
+            return user == that.user && Objects.equals(channelName, that.channelName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(user) + Objects.hashCode(channelName);
+        }
+
+        @Override
+        public String toString() {
+            return user.getName() + "|" + user.getMspId() + "|" + channelName;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+import com.google.protobuf.UnsafeByteOperations;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Bytes passed inside the stub as ByteString views instead of byte[] copies, byte[] is only
+// materialized at the WeCross Request / Response boundary.
+// A byte[] handed to wrap() or parse() must not be modified afterwards, views share its memory
+public class ProtoBytes {
+    public static ByteString wrap(byte[] bytes) {
+        return UnsafeByteOperations.unsafeWrap(bytes);
+    }
+
+    // Bytes fields of the message are slices of bytes
+    public static <T> T parse(Parser<T> parser, byte[] bytes)
+            throws InvalidProtocolBufferException {
+        return parse(parser, wrap(bytes));
+    }
+
+    public static <T> T parse(Parser<T> parser, ByteString bytes)
+            throws InvalidProtocolBufferException {
+        return parser.parseFrom(aliasedInput(bytes));
+    }
+
+    public static CodedInputStream aliasedInput(byte[] bytes) {
+        return aliasedInput(wrap(bytes));
+    }
+
+    public static CodedInputStream aliasedInput(ByteString bytes) {
+        CodedInputStream input = bytes.newCodedInput();
+        input.enableAliasing(true);
+        return input;
+    }
+
+    // Read only views of every piece of bytes, a concatenated ByteString is not flattened
+    public static List<ByteBuffer> readOnlyViews(ByteString bytes) {
+        return bytes.asReadOnlyByteBufferList();
+    }
+}
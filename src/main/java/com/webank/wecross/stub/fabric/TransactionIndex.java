@@ -0,0 +1,127 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.peer.FabricTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// txID -> position in block, built from the blocks seen by the connection
+public class TransactionIndex {
+    private static Logger logger = LoggerFactory.getLogger(TransactionIndex.class);
+
+    public static class Location {
+        private long blockNumber;
+        private int index;
+        private int validationCode;
+
+        public Location(long blockNumber, int index, int validationCode) {
+            this.blockNumber = blockNumber;
+            this.index = index;
+            this.validationCode = validationCode;
+        }
+
+        public long getBlockNumber() {
+            return blockNumber;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getValidationCode() {
+            return validationCode;
+        }
+
+        public boolean isValid() {
+            return validationCode == FabricTransaction.TxValidationCode.VALID_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return "Location{"
+                    + "blockNumber="
+                    + blockNumber
+                    + ", index="
+                    + index
+                    + ", validationCode="
+                    + validationCode
+                    + '}';
+        }
+    }
+
+    private Cache<String, Location> locations;
+
+    public TransactionIndex(long maxSize) {
+        this.locations = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    public Location get(String txID) {
+        return locations.getIfPresent(txID);
+    }
+
+    public void indexBlock(byte[] blockBytes) {
+        try {
+            indexBlock(BlockTransactions.parse(blockBytes));
+        } catch (Exception e) {
+            logger.warn("Index block exception: ", e);
+        }
+    }
+
+    public void indexBlock(Common.Block block) {
+        indexBlock(new BlockTransactions(block));
+    }
+
+    public void indexBlock(BlockTransactions transactions) {
+        long blockNumber = transactions.getBlockNumber();
+        try {
+            for (int index = 0; index < transactions.size(); index++) {
+                String txID = transactions.getTxID(index);
+                // config blocks have no txID
+                if (txID == null || txID.isEmpty()) {
+                    continue;
+                }
+
+                // a txID sent again is invalidated as DUPLICATE_TXID in a later block, the first
+                // location is kept unless only the later one is valid
+                locations
+                        .asMap()
+                        .merge(
+                                txID,
+                                new Location(
+                                        blockNumber, index, transactions.getValidationCode(index)),
+                                (stored, fresh) ->
+                                        !stored.isValid() && fresh.isValid() ? fresh : stored);
+            }
+        } catch (Exception e) {
+            logger.warn("Index block {} exception: ", blockNumber, e);
+        }
+    }
+
+    // Returns the envelope bytes of txID in block, or null if it is not at the location
+    public static byte[] getEnvelopeBytes(byte[] blockBytes, Location location, String txID)
+            throws Exception {
+        Common.Block block = ProtoBytes.parse(Common.Block.parser(), blockBytes);
+        if (location.getIndex() >= block.getData().getDataCount()) {
+            return null;
+        }
+
+        // only the envelope at the location is decoded
+        ByteString envelopeBytes = block.getData().getData(location.getIndex());
+        Common.Envelope envelope = ProtoBytes.parse(Common.Envelope.parser(), envelopeBytes);
+        Common.Payload payload = ProtoBytes.parse(Common.Payload.parser(), envelope.getPayload());
+        Common.ChannelHeader channelHeader =
+                ProtoBytes.parse(
+                        Common.ChannelHeader.parser(), payload.getHeader().getChannelHeader());
+        if (!txID.equals(channelHeader.getTxId())) {
+            return null;
+        }
+        return envelopeBytes.toByteArray();
+    }
+
+    public long size() {
+        return locations.size();
+    }
+}
@@ -1,12 +1,18 @@
 package com.webank.wecross.stub.fabric;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.webank.wecross.stub.TransactionRequest;
+import com.webank.wecross.utils.BinaryFrame;
 import java.util.Arrays;
+import java.util.Map;
 
 public class TransactionParams {
     private static ObjectMapper objectMapper = new ObjectMapper();
+    private static final int FRAME_VERSION = 1;
+    private static final TypeReference<Map<String, Object>> OPTIONS_TYPE =
+            new TypeReference<Map<String, Object>>() {};
 
     private TransactionRequest originTransactionRequest;
     private byte[] data;
@@ -22,13 +28,53 @@ public class TransactionParams {
         this.byProxy = byProxy;
     }
 
+    // Binary frame, see BinaryFrame. The proposal is written as it is instead of in base64
     @JsonIgnore
     public byte[] toBytes() throws Exception {
-        return objectMapper.writeValueAsBytes(this);
+        BinaryFrame.Writer writer =
+                new BinaryFrame.Writer(FRAME_VERSION, data == null ? 0 : data.length);
+
+        writer.writeBoolean(originTransactionRequest != null);
+        if (originTransactionRequest != null) {
+            writer.writeString(originTransactionRequest.getMethod());
+            writer.writeStringArray(originTransactionRequest.getArgs());
+
+            // options are rarely set, their values are of any type
+            Map<String, Object> options = originTransactionRequest.getOptions();
+            writer.writeBytes(
+                    options == null || options.isEmpty()
+                            ? null
+                            : objectMapper.writeValueAsBytes(options));
+        }
+
+        return writer.writeBytes(data).writeStringArray(orgNames).writeBoolean(byProxy).toBytes();
     }
 
+    // Accepts the binary frame and the JSON of older stubs
     public static TransactionParams parseFrom(byte[] bytes) throws Exception {
-        return objectMapper.readValue(bytes, TransactionParams.class);
+        if (!BinaryFrame.isFramed(bytes)) {
+            return objectMapper.readValue(bytes, TransactionParams.class);
+        }
+
+        BinaryFrame.Reader reader = new BinaryFrame.Reader(bytes, FRAME_VERSION);
+        TransactionParams transactionParams = new TransactionParams();
+
+        if (reader.readBoolean()) {
+            TransactionRequest transactionRequest = new TransactionRequest();
+            transactionRequest.setMethod(reader.readString());
+            transactionRequest.setArgs(reader.readStringArray());
+
+            byte[] options = reader.readBytes();
+            if (options != null) {
+                transactionRequest.setOptions(objectMapper.readValue(options, OPTIONS_TYPE));
+            }
+            transactionParams.setOriginTransactionRequest(transactionRequest);
+        }
+
+        transactionParams.setData(reader.readBytes());
+        transactionParams.setOrgNames(reader.readStringArray());
+        transactionParams.setByProxy(reader.readBoolean());
+        return transactionParams;
     }
 
     public TransactionRequest getOriginTransactionRequest() {
@@ -0,0 +1,51 @@
+package com.webank.wecross.stub.fabric.performance;
+
+import com.webank.wecross.stub.Block;
+import com.webank.wecross.stub.Transaction;
+import com.webank.wecross.stub.fabric.FabricDriver;
+
+// Decode a synthetic block into WeCross block and transactions, no peer is needed
+public class BlockDecodeSuite implements PerformanceSuite {
+    private static final int ENDORSERS = 3;
+
+    private int txCount;
+    private boolean readDetail; // read every transaction, or only the hashes
+    private FabricDriver driver = new FabricDriver();
+    private byte[] blockBytes;
+
+    public BlockDecodeSuite(int txCount, boolean readDetail) throws Exception {
+        this.txCount = txCount;
+        this.readDetail = readDetail;
+        this.blockBytes = new SyntheticBlock(ENDORSERS).build(1, txCount);
+
+        Block block = driver.decodeBlock(blockBytes, false, null);
+        if (block.getTransactionsWithDetail().size() != txCount) {
+            throw new Exception(
+                    "Synthetic block decode failed, txs: "
+                            + block.getTransactionsWithDetail().size());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Block Decode Suite (txs: " + txCount + ", read detail: " + readDetail + ")";
+    }
+
+    @Override
+    public void call(PerformanceSuiteCallback callback) {
+        try {
+            Block block = driver.decodeBlock(blockBytes, false, null);
+            if (readDetail) {
+                for (Transaction transaction : block.getTransactionsWithDetail()) {
+                    if (transaction.getTransactionRequest().getMethod() == null) {
+                        callback.onFailed("Decode transaction failed");
+                        return;
+                    }
+                }
+            }
+            callback.onSuccess("Success, txs: " + block.getTransactionsWithDetail().size());
+        } catch (Exception e) {
+            callback.onFailed("Decode block exception: " + e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.webank.wecross.stub.fabric.performance;
+
+import com.webank.wecross.stub.fabric.BlockVerifier;
+import com.webank.wecross.stub.fabric.FabricBlock;
+
+// Verify a synthetic block signed by local keys, no peer is needed
+public class BlockVerifySuite implements PerformanceSuite {
+    private static final int ENDORSERS = 3;
+
+    private int txCount;
+    private boolean parallel;
+    private BlockVerifier blockVerifier;
+    private byte[] blockBytes;
+
+    public BlockVerifySuite(int txCount, boolean parallel) throws Exception {
+        this.txCount = txCount;
+        this.parallel = parallel;
+
+        SyntheticBlock syntheticBlock = new SyntheticBlock(ENDORSERS);
+        this.blockVerifier = BlockVerifier.build(syntheticBlock.getBlockVerifierString(), parallel);
+        this.blockBytes = syntheticBlock.build(1, txCount);
+
+        if (!FabricBlock.encode(blockBytes).verifyWith(blockVerifier)) {
+            throw new Exception("Synthetic block verify failed");
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Block Verify Suite (txs: "
+                + txCount
+                + ", endorsers: "
+                + ENDORSERS
+                + ", parallel: "
+                + (parallel ? "enabled" : "disabled")
+                + ")";
+    }
+
+    @Override
+    public void call(PerformanceSuiteCallback callback) {
+        try {
+            if (FabricBlock.encode(blockBytes).verifyWith(blockVerifier)) {
+                callback.onSuccess("Success");
+            } else {
+                callback.onFailed("Verify block failed");
+            }
+        } catch (Exception e) {
+            callback.onFailed("Verify block exception: " + e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.webank.wecross.stub.fabric.performance;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webank.wecross.stub.TransactionRequest;
+import com.webank.wecross.stub.fabric.TransactionParams;
+import java.security.SecureRandom;
+
+// Encode and decode TransactionParams of a proposal sized payload, no peer is needed
+// binary: the binary frame, or the JSON which older stubs use
+public class ParamsCodecSuite implements PerformanceSuite {
+    private static final int PROPOSAL_SIZE = 4096; // a signed proposal with its creator cert
+
+    private static ObjectMapper objectMapper = new ObjectMapper();
+
+    private boolean binary;
+    private TransactionParams transactionParams;
+    private int encodedSize;
+
+    public ParamsCodecSuite(boolean binary) throws Exception {
+        this.binary = binary;
+
+        byte[] proposal = new byte[PROPOSAL_SIZE];
+        new SecureRandom().nextBytes(proposal);
+        TransactionRequest request =
+                new TransactionRequest("set", new String[] {"key", "value-of-the-key"});
+        this.transactionParams = new TransactionParams(request, proposal, false);
+        this.transactionParams.setOrgNames(new String[] {"Org1", "Org2"});
+
+        this.encodedSize = encode().length;
+        if (decode(encode()).getData().length != PROPOSAL_SIZE) {
+            throw new Exception("TransactionParams codec failed");
+        }
+    }
+
+    private byte[] encode() throws Exception {
+        return binary
+                ? transactionParams.toBytes()
+                : objectMapper.writeValueAsBytes(transactionParams);
+    }
+
+    private TransactionParams decode(byte[] bytes) throws Exception {
+        // parseFrom takes JSON which does not start with the frame magic
+        return TransactionParams.parseFrom(bytes);
+    }
+
+    @Override
+    public String getName() {
+        return "TransactionParams Codec Suite (format: "
+                + (binary ? "binary" : "json")
+                + ", proposal: "
+                + PROPOSAL_SIZE
+                + " bytes, on the wire: "
+                + encodedSize
+                + " bytes)";
+    }
+
+    @Override
+    public void call(PerformanceSuiteCallback callback) {
+        try {
+            TransactionParams decoded = decode(encode());
+            if (decoded.getData().length != PROPOSAL_SIZE) {
+                callback.onFailed("Decode TransactionParams failed");
+                return;
+            }
+            callback.onSuccess("Success");
+        } catch (Exception e) {
+            callback.onFailed("TransactionParams codec exception: " + e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.webank.wecross.stub.fabric.performance;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
@@ -15,6 +16,7 @@ public class PerformanceCollector {
 
     public PerformanceCollector(Integer total) {
         this.total = total;
+        this.costs = new long[total];
     }
 
     private Integer total = 0;
@@ -27,6 +29,7 @@ public class PerformanceCollector {
     private AtomicLong less2000 = new AtomicLong(0);
     private AtomicLong timeout2000 = new AtomicLong(0);
     private AtomicLong totalCost = new AtomicLong(0);
+    private long[] costs; // every cost, for percentiles
 
     private AtomicInteger received = new AtomicInteger(0);
 
@@ -46,6 +49,9 @@ public class PerformanceCollector {
             }
 
             int count = received.incrementAndGet();
+            if (count <= costs.length) {
+                costs[count - 1] = cost;
+            }
 
             if (count % (total / 10) == 0) {
                 System.out.println(
@@ -105,6 +111,11 @@ public class PerformanceCollector {
                                     ((double) ret_error.get() / (double) received.get()) * 100)
                             + "%");
 
+            long[] sortedCosts = Arrays.copyOf(costs, Math.min(received.get(), costs.length));
+            Arrays.sort(sortedCosts);
+            System.out.println("p50 time cost: " + percentile(sortedCosts, 50) + "ms");
+            System.out.println("p99 time cost: " + percentile(sortedCosts, 99) + "ms");
+
             System.out.println("Time area:");
             System.out.println(
                     "0    < time <  50ms   : "
@@ -155,6 +166,14 @@ public class PerformanceCollector {
         }
     }
 
+    private long percentile(long[] sortedCosts, int p) {
+        if (sortedCosts.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sortedCosts.length) - 1;
+        return sortedCosts[Math.max(0, index)];
+    }
+
     public Integer getTotal() {
         return total;
     }
@@ -20,6 +20,54 @@ public class PerformanceTest {
                 " \t java -cp conf/:lib/*:plugin/* "
                         + PerformanceTest.class.getName()
                         + " [chainName]  sendTransaction [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " [chainName]  buildProposal [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " [chainName]  buildProposalNoCache [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " [chainName]  stubCall [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " [chainName]  stubEndorse [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " [txCount]  verifyBlock [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " [txCount]  verifyBlockSerial [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " [txCount]  decodeBlock [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " [txCount]  decodeBlockDetail [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " [txCount]  parseTransaction [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " [txCount]  parseTransactionCopy [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " -  codecParams [count] [qps]");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " -  codecParamsJson [count] [qps]");
         System.out.println("Example:");
         System.out.println(
                 " \t java -cp conf/:lib/*:plugin/* "
@@ -29,6 +77,10 @@ public class PerformanceTest {
                 " \t java -cp conf/:lib/*:plugin/* "
                         + PerformanceTest.class.getName()
                         + " chains/fabric sendTransaction 10000 1000");
+        System.out.println(
+                " \t java -cp conf/:lib/*:plugin/* "
+                        + PerformanceTest.class.getName()
+                        + " 1000 verifyBlock 1000 1000");
 
         exit();
     }
@@ -55,9 +107,61 @@ public class PerformanceTest {
             case "call":
                 callTest(chainName, count, qps);
                 exit();
+                break;
             case "sendTransaction":
                 sendTransactionTest(chainName, count, qps);
                 exit();
+                break;
+            case "buildProposal":
+                buildProposalTest(chainName, count, qps, true);
+                exit();
+                break;
+            case "buildProposalNoCache":
+                buildProposalTest(chainName, count, qps, false);
+                exit();
+                break;
+            case "stubCall":
+                stubEndorsementTest(chainName, count, qps, true);
+                exit();
+                break;
+            case "stubEndorse":
+                stubEndorsementTest(chainName, count, qps, false);
+                exit();
+                break;
+            case "verifyBlock":
+                // no chain is needed, the first argument is the tx number of the block
+                verifyBlockTest(Integer.parseInt(args[0]), count, qps, true);
+                exit();
+                break;
+            case "verifyBlockSerial":
+                verifyBlockTest(Integer.parseInt(args[0]), count, qps, false);
+                exit();
+                break;
+            case "decodeBlock":
+                decodeBlockTest(Integer.parseInt(args[0]), count, qps, false);
+                exit();
+                break;
+            case "decodeBlockDetail":
+                decodeBlockTest(Integer.parseInt(args[0]), count, qps, true);
+                exit();
+                break;
+            case "parseTransaction":
+                parseTransactionTest(Integer.parseInt(args[0]), count, qps, true);
+                exit();
+                break;
+            case "parseTransactionCopy":
+                parseTransactionTest(Integer.parseInt(args[0]), count, qps, false);
+                exit();
+                break;
+            case "codecParams":
+                // no chain is needed, the first argument is ignored
+                codecParamsTest(count, qps, true);
+                exit();
+                break;
+            case "codecParamsJson":
+                codecParamsTest(count, qps, false);
+                exit();
+                break;
             default:
                 usage();
         }
@@ -85,6 +189,78 @@ public class PerformanceTest {
         }
     }
 
+    public static void buildProposalTest(
+            String chainName, BigInteger count, BigInteger qps, boolean useCache) {
+        try {
+            PerformanceSuite suite = new ProposalBuildSuite(chainName, useCache);
+            PerformanceManager performanceManager = new PerformanceManager(suite, count, qps);
+            performanceManager.run();
+        } catch (Exception e) {
+            System.out.println("Error: " + e + " please check logs/error.log");
+            exit(1);
+        }
+    }
+
+    public static void stubEndorsementTest(
+            String chainName, BigInteger count, BigInteger qps, boolean isCall) {
+        try {
+            PerformanceSuite suite = new StubEndorsementSuite(chainName, isCall);
+            PerformanceManager performanceManager = new PerformanceManager(suite, count, qps);
+            performanceManager.run();
+        } catch (Exception e) {
+            System.out.println("Error: " + e + " please check logs/error.log");
+            exit(1);
+        }
+    }
+
+    public static void verifyBlockTest(
+            int txCount, BigInteger count, BigInteger qps, boolean parallel) {
+        try {
+            PerformanceSuite suite = new BlockVerifySuite(txCount, parallel);
+            PerformanceManager performanceManager = new PerformanceManager(suite, count, qps);
+            performanceManager.run();
+        } catch (Exception e) {
+            System.out.println("Error: " + e + " please check logs/error.log");
+            exit(1);
+        }
+    }
+
+    public static void decodeBlockTest(
+            int txCount, BigInteger count, BigInteger qps, boolean readDetail) {
+        try {
+            PerformanceSuite suite = new BlockDecodeSuite(txCount, readDetail);
+            PerformanceManager performanceManager = new PerformanceManager(suite, count, qps);
+            performanceManager.run();
+        } catch (Exception e) {
+            System.out.println("Error: " + e + " please check logs/error.log");
+            exit(1);
+        }
+    }
+
+    public static void parseTransactionTest(
+            int txCount, BigInteger count, BigInteger qps, boolean aliasing) {
+        try {
+            TransactionParseSuite suite = new TransactionParseSuite(txCount, aliasing);
+            PerformanceManager performanceManager = new PerformanceManager(suite, count, qps);
+            performanceManager.run();
+            suite.dumpAllocation();
+        } catch (Exception e) {
+            System.out.println("Error: " + e + " please check logs/error.log");
+            exit(1);
+        }
+    }
+
+    public static void codecParamsTest(BigInteger count, BigInteger qps, boolean binary) {
+        try {
+            PerformanceSuite suite = new ParamsCodecSuite(binary);
+            PerformanceManager performanceManager = new PerformanceManager(suite, count, qps);
+            performanceManager.run();
+        } catch (Exception e) {
+            System.out.println("Error: " + e + " please check logs/error.log");
+            exit(1);
+        }
+    }
+
     private static void exit() {
         System.exit(0);
     }
@@ -0,0 +1,75 @@
+package com.webank.wecross.stub.fabric.performance;
+
+import com.webank.wecross.account.FabricAccount;
+import com.webank.wecross.account.FabricAccountFactory;
+import com.webank.wecross.stub.ResourceInfo;
+import com.webank.wecross.stub.TransactionContext;
+import com.webank.wecross.stub.TransactionRequest;
+import com.webank.wecross.stub.fabric.EndorserRequestFactory;
+import com.webank.wecross.stub.fabric.FabricStubConfigParser;
+import com.webank.wecross.stub.fabric.ProposalContextCache;
+import com.webank.wecross.stub.fabric.ResourceInfoProperty;
+import java.io.File;
+import java.security.SecureRandom;
+
+// Build and sign proposals locally, no peer is needed
+public class ProposalBuildSuite implements PerformanceSuite {
+    static final int BOUND = Integer.MAX_VALUE - 1;
+    SecureRandom rand = new SecureRandom();
+
+    private TransactionContext transactionContext;
+    private boolean useCache;
+
+    public ProposalBuildSuite(String chainPath, boolean useCache) throws Exception {
+        FabricStubConfigParser configFile = new FabricStubConfigParser(chainPath);
+        String orgUserName = configFile.getFabricServices().getOrgUserName();
+        FabricAccount account =
+                FabricAccountFactory.build(
+                        orgUserName, "classpath:accounts" + File.separator + orgUserName);
+        if (account == null) {
+            throw new Exception("Account " + orgUserName + " not found");
+        }
+
+        ResourceInfo resourceInfo = new ResourceInfo();
+        resourceInfo.setName("sacc");
+        resourceInfo.setProperties(
+                ResourceInfoProperty.build()
+                        .channelName(configFile.getFabricServices().getChannelName())
+                        .chainCodeName("chaincode/sacc")
+                        .version("1.0")
+                        .proposalWaitTime(FabricStubConfigParser.DEFAULT_PROPOSAL_WAIT_TIME)
+                        .orgNames(new String[] {})
+                        .toMap());
+
+        this.transactionContext = new TransactionContext(account, null, resourceInfo, null);
+        this.useCache = useCache;
+
+        ProposalContextCache.setEnable(useCache);
+        buildOnce();
+    }
+
+    @Override
+    public String getName() {
+        return "Proposal Build Suite (proposal context cache: "
+                + (useCache ? "enabled" : "disabled")
+                + ")";
+    }
+
+    @Override
+    public void call(PerformanceSuiteCallback callback) {
+        try {
+            byte[] data = buildOnce();
+            callback.onSuccess("Success, size: " + data.length);
+        } catch (Exception e) {
+            callback.onFailed("Build proposal failed: " + e);
+        }
+    }
+
+    private byte[] buildOnce() throws Exception {
+        String key = String.valueOf(rand.nextInt(BOUND));
+        String value = String.valueOf(rand.nextInt(BOUND));
+
+        TransactionRequest request = new TransactionRequest("set", new String[] {key, value});
+        return EndorserRequestFactory.buildProposalRequestBytes(transactionContext, request);
+    }
+}
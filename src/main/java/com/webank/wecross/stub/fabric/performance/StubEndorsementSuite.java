@@ -0,0 +1,98 @@
+package com.webank.wecross.stub.fabric.performance;
+
+import com.webank.wecross.account.FabricAccount;
+import com.webank.wecross.account.FabricAccountFactory;
+import com.webank.wecross.common.FabricType;
+import com.webank.wecross.stub.Request;
+import com.webank.wecross.stub.TransactionContext;
+import com.webank.wecross.stub.TransactionRequest;
+import com.webank.wecross.stub.fabric.EndorserRequestFactory;
+import com.webank.wecross.stub.fabric.FabricConnection;
+import com.webank.wecross.stub.fabric.FabricStubConfigParser;
+import com.webank.wecross.stub.fabric.FabricStubFactory;
+import com.webank.wecross.stub.fabric.TransactionParams;
+import java.io.File;
+import java.security.SecureRandom;
+
+// Endorse through FabricConnection.asyncSend, the latency includes the endorsement completion
+// policy configured in [advanced.endorsement]
+public class StubEndorsementSuite implements PerformanceSuite {
+    static final int BOUND = Integer.MAX_VALUE - 1;
+    SecureRandom rand = new SecureRandom();
+
+    private FabricConnection fabricConnection;
+    private TransactionContext transactionContext;
+    private boolean isCall;
+
+    public StubEndorsementSuite(String chainPath, boolean isCall) throws Exception {
+        FabricStubFactory fabricStubFactory = new FabricStubFactory();
+        this.fabricConnection = (FabricConnection) fabricStubFactory.newConnection(chainPath);
+
+        if (!fabricConnection.getChaincodeMap().containsKey("chaincode/sacc")) {
+            throw new Exception("Resource sacc has not been deployed!");
+        }
+
+        FabricStubConfigParser configFile = new FabricStubConfigParser(chainPath);
+        String orgUserName = configFile.getFabricServices().getOrgUserName();
+        FabricAccount account =
+                FabricAccountFactory.build(
+                        orgUserName, "classpath:accounts" + File.separator + orgUserName);
+        if (account == null) {
+            throw new Exception("Account " + orgUserName + " not found");
+        }
+
+        this.transactionContext =
+                new TransactionContext(
+                        account,
+                        null,
+                        fabricConnection.getChaincodeMap().get("chaincode/sacc").getResourceInfo(),
+                        null);
+        this.isCall = isCall;
+    }
+
+    @Override
+    public String getName() {
+        return "Stub Endorsement " + (isCall ? "Call" : "SendTransaction") + " Suite";
+    }
+
+    @Override
+    public void call(PerformanceSuiteCallback callback) {
+        try {
+            TransactionRequest transactionRequest;
+            int type;
+            if (isCall) {
+                transactionRequest = new TransactionRequest("query", new String[] {"a"});
+                type = FabricType.ConnectionMessage.FABRIC_CALL;
+            } else {
+                String key = String.valueOf(rand.nextInt(BOUND));
+                String value = String.valueOf(rand.nextInt(BOUND));
+                transactionRequest = new TransactionRequest("set", new String[] {key, value});
+                type = FabricType.ConnectionMessage.FABRIC_SENDTRANSACTION_ENDORSER;
+            }
+
+            byte[] data =
+                    EndorserRequestFactory.buildProposalRequestBytes(
+                            transactionContext, transactionRequest);
+            TransactionParams transactionParams =
+                    new TransactionParams(transactionRequest, data, false);
+
+            Request request = new Request();
+            request.setData(transactionParams.toBytes());
+            request.setType(type);
+            request.setResourceInfo(transactionContext.getResourceInfo());
+
+            fabricConnection.asyncSend(
+                    request,
+                    response -> {
+                        if (response.getErrorCode()
+                                == FabricType.TransactionResponseStatus.SUCCESS) {
+                            callback.onSuccess("Success");
+                        } else {
+                            callback.onFailed("Failed: " + response.getErrorMessage());
+                        }
+                    });
+        } catch (Exception e) {
+            callback.onFailed("sacc endorse failed: " + e);
+        }
+    }
+}
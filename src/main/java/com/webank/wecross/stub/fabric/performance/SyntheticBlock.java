@@ -0,0 +1,270 @@
+package com.webank.wecross.stub.fabric.performance;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequenceGenerator;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.msp.Identities;
+import org.hyperledger.fabric.protos.peer.Chaincode;
+import org.hyperledger.fabric.protos.peer.FabricProposal;
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
+import org.hyperledger.fabric.protos.peer.FabricTransaction;
+
+// Blocks of chaincode invocations shaped like the ones a peer returns, signed by local keys
+class SyntheticBlock {
+    private static final String SIGN_ALGORITHM = "SHA256withECDSA";
+
+    private static class Member {
+        private PrivateKey privateKey;
+        private ByteString identity; // serialized identity
+
+        Member(String mspId, KeyPair caKeyPair, X509Certificate caCert) throws Exception {
+            KeyPair keyPair = generateKeyPair();
+            X509Certificate cert = issue(mspId, keyPair, caKeyPair.getPrivate(), caCert);
+            this.privateKey = keyPair.getPrivate();
+            this.identity =
+                    Identities.SerializedIdentity.newBuilder()
+                            .setMspid(mspId)
+                            .setIdBytes(ByteString.copyFromUtf8(toPem(cert)))
+                            .build()
+                            .toByteString();
+        }
+
+        ByteString sign(ByteString data) throws Exception {
+            Signature signer = Signature.getInstance(SIGN_ALGORITHM);
+            signer.initSign(privateKey);
+            signer.update(data.toByteArray());
+            return ByteString.copyFrom(signer.sign());
+        }
+    }
+
+    private Member orderer;
+    private Member client;
+    private Member[] endorsers;
+    private String blockVerifierString;
+
+    SyntheticBlock(int endorserNumber) throws Exception {
+        KeyPair ordererCAKeyPair = generateKeyPair();
+        X509Certificate ordererCA = issue("OrdererCA", ordererCAKeyPair, null, null);
+        KeyPair orgCAKeyPair = generateKeyPair();
+        X509Certificate orgCA = issue("Org1CA", orgCAKeyPair, null, null);
+
+        this.orderer = new Member("OrdererMSP", ordererCAKeyPair, ordererCA);
+        this.client = new Member("Org1MSP", orgCAKeyPair, orgCA);
+        this.endorsers = new Member[endorserNumber];
+        for (int i = 0; i < endorserNumber; i++) {
+            endorsers[i] = new Member("Org1MSP", orgCAKeyPair, orgCA);
+        }
+
+        this.blockVerifierString =
+                "{\"chainType\":\"Fabric1.4\","
+                        + "\"ordererCA\":{\"OrdererMSP\":\""
+                        + toPem(ordererCA).replace("\n", "\\n")
+                        + "\"},"
+                        + "\"endorserCA\":{\"Org1MSP\":\""
+                        + toPem(orgCA).replace("\n", "\\n")
+                        + "\"}}";
+    }
+
+    String getBlockVerifierString() {
+        return blockVerifierString;
+    }
+
+    // Block of txCount "set" invocations on chaincode sacc, all valid
+    byte[] build(long blockNumber, int txCount) throws Exception {
+        Timestamp timestamp =
+                Timestamp.newBuilder().setSeconds(System.currentTimeMillis() / 1000).build();
+        ByteString signatureHeader =
+                Common.SignatureHeader.newBuilder()
+                        .setCreator(client.identity)
+                        .setNonce(ByteString.copyFromUtf8(UUID.randomUUID().toString()))
+                        .build()
+                        .toByteString();
+
+        Common.BlockData.Builder data = Common.BlockData.newBuilder();
+        for (int i = 0; i < txCount; i++) {
+            String key = "key-" + i;
+            String value = "value-" + UUID.randomUUID();
+
+            Chaincode.ChaincodeSpec chaincodeSpec =
+                    Chaincode.ChaincodeSpec.newBuilder()
+                            .setChaincodeId(Chaincode.ChaincodeID.newBuilder().setName("sacc"))
+                            .setInput(
+                                    Chaincode.ChaincodeInput.newBuilder()
+                                            .addArgs(ByteString.copyFromUtf8("set"))
+                                            .addArgs(ByteString.copyFromUtf8(key))
+                                            .addArgs(ByteString.copyFromUtf8(value)))
+                            .build();
+            ByteString proposalPayload =
+                    FabricProposal.ChaincodeProposalPayload.newBuilder()
+                            .setInput(
+                                    Chaincode.ChaincodeInvocationSpec.newBuilder()
+                                            .setChaincodeSpec(chaincodeSpec)
+                                            .build()
+                                            .toByteString())
+                            .build()
+                            .toByteString();
+
+            ByteString responsePayload =
+                    FabricProposalResponse.ProposalResponsePayload.newBuilder()
+                            .setProposalHash(ByteString.copyFromUtf8(key))
+                            .setExtension(
+                                    FabricProposal.ChaincodeAction.newBuilder()
+                                            .setResponse(
+                                                    FabricProposalResponse.Response.newBuilder()
+                                                            .setStatus(200)
+                                                            .setPayload(
+                                                                    ByteString.copyFromUtf8(value)))
+                                            .build()
+                                            .toByteString())
+                            .build()
+                            .toByteString();
+
+            FabricTransaction.ChaincodeEndorsedAction.Builder endorsedAction =
+                    FabricTransaction.ChaincodeEndorsedAction.newBuilder()
+                            .setProposalResponsePayload(responsePayload);
+            for (Member endorser : endorsers) {
+                endorsedAction.addEndorsements(
+                        FabricProposalResponse.Endorsement.newBuilder()
+                                .setEndorser(endorser.identity)
+                                .setSignature(
+                                        endorser.sign(responsePayload.concat(endorser.identity))));
+            }
+
+            FabricTransaction.Transaction transaction =
+                    FabricTransaction.Transaction.newBuilder()
+                            .addActions(
+                                    FabricTransaction.TransactionAction.newBuilder()
+                                            .setHeader(signatureHeader)
+                                            .setPayload(
+                                                    FabricTransaction.ChaincodeActionPayload
+                                                            .newBuilder()
+                                                            .setChaincodeProposalPayload(
+                                                                    proposalPayload)
+                                                            .setAction(endorsedAction)
+                                                            .build()
+                                                            .toByteString()))
+                            .build();
+            Common.ChannelHeader channelHeader =
+                    Common.ChannelHeader.newBuilder()
+                            .setType(Common.HeaderType.ENDORSER_TRANSACTION_VALUE)
+                            .setChannelId("mychannel")
+                            .setTxId(UUID.randomUUID().toString().replace("-", ""))
+                            .setTimestamp(timestamp)
+                            .build();
+            Common.Payload payload =
+                    Common.Payload.newBuilder()
+                            .setHeader(
+                                    Common.Header.newBuilder()
+                                            .setChannelHeader(channelHeader.toByteString())
+                                            .setSignatureHeader(signatureHeader))
+                            .setData(transaction.toByteString())
+                            .build();
+            ByteString payloadBytes = payload.toByteString();
+            data.addData(
+                    Common.Envelope.newBuilder()
+                            .setPayload(payloadBytes)
+                            .setSignature(client.sign(payloadBytes))
+                            .build()
+                            .toByteString());
+        }
+
+        Common.BlockHeader header =
+                Common.BlockHeader.newBuilder()
+                        .setNumber(blockNumber)
+                        .setPreviousHash(ByteString.copyFromUtf8("previous"))
+                        .setDataHash(ByteString.copyFromUtf8("data"))
+                        .build();
+
+        // orderer signs value | signature header | ASN.1 block header
+        ByteString ordererSignatureHeader =
+                Common.SignatureHeader.newBuilder()
+                        .setCreator(orderer.identity)
+                        .build()
+                        .toByteString();
+        ByteString plainText =
+                ordererSignatureHeader.concat(ByteString.copyFrom(encodeHeader(header)));
+        Common.Metadata signatures =
+                Common.Metadata.newBuilder()
+                        .addSignatures(
+                                Common.MetadataSignature.newBuilder()
+                                        .setSignatureHeader(ordererSignatureHeader)
+                                        .setSignature(orderer.sign(plainText)))
+                        .build();
+
+        Common.BlockMetadata.Builder metadata = Common.BlockMetadata.newBuilder();
+        metadata.addMetadata(signatures.toByteString()); // SIGNATURES
+        metadata.addMetadata(ByteString.EMPTY); // LAST_CONFIG
+        metadata.addMetadata(ByteString.copyFrom(new byte[txCount])); // all txs are VALID
+
+        return Common.Block.newBuilder()
+                .setHeader(header)
+                .setData(data)
+                .setMetadata(metadata)
+                .build()
+                .toByteArray();
+    }
+
+    private static byte[] encodeHeader(Common.BlockHeader header) throws Exception {
+        ByteArrayOutputStream s = new ByteArrayOutputStream();
+        DERSequenceGenerator seq = new DERSequenceGenerator(s);
+        seq.addObject(new ASN1Integer(header.getNumber()));
+        seq.addObject(new DEROctetString(header.getPreviousHash().toByteArray()));
+        seq.addObject(new DEROctetString(header.getDataHash().toByteArray()));
+        seq.close();
+        return s.toByteArray();
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    // Self signed if issuerKey is null
+    private static X509Certificate issue(
+            String name, KeyPair keyPair, PrivateKey issuerKey, X509Certificate issuerCert)
+            throws Exception {
+        X500Name subject = new X500Name("CN=" + name);
+        X500Name issuer =
+                issuerCert == null
+                        ? subject
+                        : new X500Name(issuerCert.getSubjectX500Principal().getName());
+        long now = System.currentTimeMillis();
+        JcaX509v3CertificateBuilder builder =
+                new JcaX509v3CertificateBuilder(
+                        issuer,
+                        BigInteger.valueOf(now),
+                        new Date(now - 3600_000L),
+                        new Date(now + 24 * 3600_000L),
+                        subject,
+                        keyPair.getPublic());
+        PrivateKey signKey = issuerKey == null ? keyPair.getPrivate() : issuerKey;
+        return new JcaX509CertificateConverter()
+                .getCertificate(
+                        builder.build(new JcaContentSignerBuilder(SIGN_ALGORITHM).build(signKey)));
+    }
+
+    private static String toPem(X509Certificate cert) throws Exception {
+        return "-----BEGIN CERTIFICATE-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(cert.getEncoded())
+                + "\n-----END CERTIFICATE-----\n";
+    }
+}
@@ -0,0 +1,152 @@
+package com.webank.wecross.stub.fabric.performance;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.webank.wecross.stub.fabric.ProtoBytes;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.peer.Chaincode;
+import org.hyperledger.fabric.protos.peer.FabricProposal;
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
+import org.hyperledger.fabric.protos.peer.FabricTransaction;
+
+// Parse every envelope of a synthetic block down to the chaincode input and response, and count
+// the bytes allocated per transaction. aliasing: slices by ProtoBytes, or a byte[] copy per level
+public class TransactionParseSuite implements PerformanceSuite {
+    private static final int ENDORSERS = 3;
+
+    private int txCount;
+    private boolean aliasing;
+    private List<byte[]> envelopes = new ArrayList<>();
+
+    private com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private AtomicLong allocatedBytes = new AtomicLong(0);
+    private AtomicLong parsedTxs = new AtomicLong(0);
+
+    public TransactionParseSuite(int txCount, boolean aliasing) throws Exception {
+        this.txCount = txCount;
+        this.aliasing = aliasing;
+
+        byte[] blockBytes = new SyntheticBlock(ENDORSERS).build(1, txCount);
+        Common.Block block = Common.Block.parseFrom(blockBytes);
+        for (ByteString envelope : block.getData().getDataList()) {
+            envelopes.add(envelope.toByteArray());
+        }
+
+        if (!threadMXBean.isThreadAllocatedMemorySupported()) {
+            throw new Exception("Thread allocated memory is not supported by this JVM");
+        }
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Override
+    public String getName() {
+        return "Transaction Parse Suite (txs: " + txCount + ", aliasing: " + aliasing + ")";
+    }
+
+    @Override
+    public void call(PerformanceSuiteCallback callback) {
+        try {
+            long threadId = Thread.currentThread().getId();
+            long before = threadMXBean.getThreadAllocatedBytes(threadId);
+
+            int outputs = 0;
+            for (byte[] envelope : envelopes) {
+                outputs += aliasing ? parseAliasing(envelope) : parseCopying(envelope);
+            }
+
+            allocatedBytes.addAndGet(threadMXBean.getThreadAllocatedBytes(threadId) - before);
+            parsedTxs.addAndGet(envelopes.size());
+
+            if (outputs != envelopes.size()) {
+                callback.onFailed("Parse transaction failed");
+                return;
+            }
+            callback.onSuccess("Success");
+        } catch (Exception e) {
+            callback.onFailed("Parse transaction exception: " + e);
+        }
+    }
+
+    public void dumpAllocation() {
+        long txs = parsedTxs.get();
+        System.out.println(
+                "Allocated: "
+                        + allocatedBytes.get()
+                        + " bytes, per transaction: "
+                        + (txs == 0 ? 0 : allocatedBytes.get() / txs)
+                        + " bytes");
+    }
+
+    // The way the stub parsed before, every nested message is parsed from a copied byte[]
+    private static int parseCopying(byte[] envelopeBytes) throws InvalidProtocolBufferException {
+        Common.Envelope envelope = Common.Envelope.parseFrom(envelopeBytes);
+        Common.Payload payload = Common.Payload.parseFrom(envelope.getPayload().toByteArray());
+        FabricTransaction.Transaction transaction =
+                FabricTransaction.Transaction.parseFrom(payload.getData().toByteArray());
+
+        int outputs = 0;
+        for (FabricTransaction.TransactionAction action : transaction.getActionsList()) {
+            FabricTransaction.ChaincodeActionPayload actionPayload =
+                    FabricTransaction.ChaincodeActionPayload.parseFrom(
+                            action.getPayload().toByteArray());
+            FabricProposal.ChaincodeProposalPayload proposalPayload =
+                    FabricProposal.ChaincodeProposalPayload.parseFrom(
+                            actionPayload.getChaincodeProposalPayload().toByteArray());
+            Chaincode.ChaincodeInvocationSpec invocationSpec =
+                    Chaincode.ChaincodeInvocationSpec.parseFrom(
+                            proposalPayload.getInput().toByteArray());
+            FabricProposalResponse.ProposalResponsePayload responsePayload =
+                    FabricProposalResponse.ProposalResponsePayload.parseFrom(
+                            actionPayload.getAction().getProposalResponsePayload().toByteArray());
+            FabricProposal.ChaincodeAction chaincodeAction =
+                    FabricProposal.ChaincodeAction.parseFrom(
+                            responsePayload.getExtension().toByteArray());
+
+            if (invocationSpec.getChaincodeSpec().getInput().getArgsCount() > 0
+                    && !chaincodeAction.getResponse().getPayload().isEmpty()) {
+                outputs++;
+            }
+        }
+        return outputs;
+    }
+
+    private static int parseAliasing(byte[] envelopeBytes) throws InvalidProtocolBufferException {
+        Common.Envelope envelope = ProtoBytes.parse(Common.Envelope.parser(), envelopeBytes);
+        Common.Payload payload = ProtoBytes.parse(Common.Payload.parser(), envelope.getPayload());
+        FabricTransaction.Transaction transaction =
+                ProtoBytes.parse(FabricTransaction.Transaction.parser(), payload.getData());
+
+        int outputs = 0;
+        for (FabricTransaction.TransactionAction action : transaction.getActionsList()) {
+            FabricTransaction.ChaincodeActionPayload actionPayload =
+                    ProtoBytes.parse(
+                            FabricTransaction.ChaincodeActionPayload.parser(), action.getPayload());
+            FabricProposal.ChaincodeProposalPayload proposalPayload =
+                    ProtoBytes.parse(
+                            FabricProposal.ChaincodeProposalPayload.parser(),
+                            actionPayload.getChaincodeProposalPayload());
+            Chaincode.ChaincodeInvocationSpec invocationSpec =
+                    ProtoBytes.parse(
+                            Chaincode.ChaincodeInvocationSpec.parser(), proposalPayload.getInput());
+            FabricProposalResponse.ProposalResponsePayload responsePayload =
+                    ProtoBytes.parse(
+                            FabricProposalResponse.ProposalResponsePayload.parser(),
+                            actionPayload.getAction().getProposalResponsePayload());
+            FabricProposal.ChaincodeAction chaincodeAction =
+                    ProtoBytes.parse(
+                            FabricProposal.ChaincodeAction.parser(),
+                            responsePayload.getExtension());
+
+            if (invocationSpec.getChaincodeSpec().getInput().getArgsCount() > 0
+                    && !chaincodeAction.getResponse().getPayload().isEmpty()) {
+                outputs++;
+            }
+        }
+        return outputs;
+    }
+}
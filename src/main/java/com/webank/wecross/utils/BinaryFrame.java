@@ -0,0 +1,171 @@
+package com.webank.wecross.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Versioned binary frame of the messages passed between driver and connection:
+// MAGIC | version | fields in the order the message writes them
+// Lengths are varints stored as length + 1, 0 means null.
+// JSON written by older stubs starts with '{' or a blank, never with MAGIC
+public class BinaryFrame {
+    public static final byte MAGIC = (byte) 0xFB;
+
+    public static boolean isFramed(byte[] bytes) {
+        return bytes != null && bytes.length >= 2 && bytes[0] == MAGIC;
+    }
+
+    public static class Writer {
+        private ByteArrayOutputStream buffer;
+        private CodedOutputStream output;
+
+        public Writer(int version, int sizeHint) throws IOException {
+            this.buffer = new ByteArrayOutputStream(sizeHint + 16);
+            this.output = CodedOutputStream.newInstance(buffer);
+            output.writeRawByte(MAGIC);
+            output.writeRawByte((byte) version);
+        }
+
+        public Writer writeBoolean(boolean value) throws IOException {
+            output.writeBoolNoTag(value);
+            return this;
+        }
+
+        public Writer writeLong(long value) throws IOException {
+            output.writeInt64NoTag(value);
+            return this;
+        }
+
+        public Writer writeBytes(byte[] value) throws IOException {
+            if (value == null) {
+                output.writeUInt32NoTag(0);
+            } else {
+                output.writeUInt32NoTag(value.length + 1);
+                output.writeRawBytes(value);
+            }
+            return this;
+        }
+
+        public Writer writeString(String value) throws IOException {
+            return writeBytes(value == null ? null : value.getBytes(UTF_8));
+        }
+
+        public Writer writeStringArray(String[] values) throws IOException {
+            if (values == null) {
+                output.writeUInt32NoTag(0);
+                return this;
+            }
+
+            output.writeUInt32NoTag(values.length + 1);
+            for (String value : values) {
+                writeString(value);
+            }
+            return this;
+        }
+
+        public Writer writeBytesMap(Map<String, byte[]> values) throws IOException {
+            if (values == null) {
+                output.writeUInt32NoTag(0);
+                return this;
+            }
+
+            output.writeUInt32NoTag(values.size() + 1);
+            for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+                writeString(entry.getKey());
+                writeBytes(entry.getValue());
+            }
+            return this;
+        }
+
+        public byte[] toBytes() throws IOException {
+            output.flush();
+            return buffer.toByteArray();
+        }
+    }
+
+    public static class Reader {
+        private CodedInputStream input;
+        private int size;
+        private int version;
+
+        public Reader(byte[] bytes, int maxVersion) throws IOException {
+            if (!isFramed(bytes)) {
+                throw new IOException("Not a binary frame");
+            }
+
+            this.input = CodedInputStream.newInstance(bytes);
+            this.size = bytes.length;
+            input.readRawByte(); // MAGIC
+            this.version = input.readRawByte() & 0xFF;
+            if (version == 0 || version > maxVersion) {
+                throw new IOException("Unsupported frame version: " + version);
+            }
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public boolean readBoolean() throws IOException {
+            return input.readBool();
+        }
+
+        public long readLong() throws IOException {
+            return input.readInt64();
+        }
+
+        public byte[] readBytes() throws IOException {
+            int length = input.readUInt32();
+            if (length == 0) {
+                return null;
+            }
+            return input.readRawBytes(length - 1);
+        }
+
+        public String readString() throws IOException {
+            byte[] bytes = readBytes();
+            return bytes == null ? null : new String(bytes, UTF_8);
+        }
+
+        public String[] readStringArray() throws IOException {
+            int length = readCount();
+            if (length < 0) {
+                return null;
+            }
+
+            String[] values = new String[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        public Map<String, byte[]> readBytesMap() throws IOException {
+            int count = readCount();
+            if (count < 0) {
+                return null;
+            }
+
+            Map<String, byte[]> values = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = readString();
+                values.put(key, readBytes());
+            }
+            return values;
+        }
+
+        // -1 for null, every element takes one byte at least
+        private int readCount() throws IOException {
+            int count = input.readUInt32() - 1;
+            if (count < -1 || count > size - input.getTotalBytesRead()) {
+                throw new IOException("Illegal element count: " + count);
+            }
+            return count;
+        }
+    }
+}
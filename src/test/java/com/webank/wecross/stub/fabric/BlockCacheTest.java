@@ -0,0 +1,21 @@
+package com.webank.wecross.stub.fabric;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlockCacheTest {
+    @Test
+    public void prefetchStatsTest() throws Exception {
+        BlockCache blockCache = new BlockCache(1024 * 1024, 4);
+        blockCache.put(2, new byte[] {2});
+
+        blockCache.prefetch(1, 10, blockNumber -> new byte[] {(byte) blockNumber}, Runnable::run);
+        Assert.assertEquals(4, blockCache.size()); // 2 to 5
+        Assert.assertEquals(0, blockCache.getStats().requestCount()); // read-ahead is not counted
+
+        Assert.assertNotNull(blockCache.get(3));
+        Assert.assertNull(blockCache.get(6));
+        Assert.assertEquals(1, blockCache.getStats().hitCount());
+        Assert.assertEquals(1, blockCache.getStats().missCount());
+    }
+}
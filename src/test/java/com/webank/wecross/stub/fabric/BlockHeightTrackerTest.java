@@ -0,0 +1,59 @@
+package com.webank.wecross.stub.fabric;
+
+import java.util.concurrent.CompletableFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlockHeightTrackerTest {
+    @Test
+    public void monotonicTest() throws Exception {
+        BlockHeightTracker tracker = new BlockHeightTracker();
+        tracker.update(10);
+        tracker.update(5); // a late event of an older block
+        Assert.assertEquals(10, tracker.getBlockNumber());
+    }
+
+    @Test
+    public void waitForTest() throws Exception {
+        BlockHeightTracker tracker = new BlockHeightTracker();
+        tracker.update(10);
+
+        Assert.assertEquals(Long.valueOf(10), tracker.waitFor(8).getNow(-1L));
+
+        CompletableFuture<Long> future12 = tracker.waitFor(12);
+        CompletableFuture<Long> future15 = tracker.waitFor(15);
+        Assert.assertFalse(future12.isDone());
+        Assert.assertEquals(2, tracker.getWaiterCount());
+
+        tracker.update(13);
+        Assert.assertEquals(Long.valueOf(13), future12.getNow(-1L));
+        Assert.assertFalse(future15.isDone());
+
+        tracker.cancel(15, future15);
+        Assert.assertEquals(0, tracker.getWaiterCount());
+        tracker.update(20);
+        Assert.assertFalse(future15.isDone());
+    }
+
+    @Test
+    public void cancelTest() throws Exception {
+        BlockHeightTracker tracker = new BlockHeightTracker();
+        tracker.update(10);
+
+        CompletableFuture<Long> first = tracker.waitFor(12);
+        CompletableFuture<Long> second = tracker.waitFor(12);
+        tracker.cancel(12, first);
+        Assert.assertEquals(1, tracker.getWaitingHeightCount());
+
+        // timed out waits for far future numbers leave nothing behind
+        tracker.cancel(12, second);
+        for (long i = 1000; i < 1100; i++) {
+            tracker.cancel(i, tracker.waitFor(i));
+        }
+        Assert.assertEquals(0, tracker.getWaitingHeightCount());
+
+        CompletableFuture<Long> future = tracker.waitFor(12);
+        tracker.update(12);
+        Assert.assertEquals(Long.valueOf(12), future.getNow(-1L));
+    }
+}
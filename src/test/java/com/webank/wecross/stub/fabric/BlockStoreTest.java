@@ -0,0 +1,77 @@
+package com.webank.wecross.stub.fabric;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlockStoreTest {
+    @Test
+    public void reopenTest() throws Exception {
+        String dir = Files.createTempDirectory("blockstore").toString();
+
+        BlockStore blockStore = new BlockStore(dir);
+        blockStore.put(1, "block1".getBytes());
+        blockStore.put(2, "block2".getBytes());
+        blockStore.close();
+
+        blockStore = new BlockStore(dir);
+        Assert.assertEquals(2, blockStore.size());
+        Assert.assertArrayEquals("block1".getBytes(), blockStore.get(1));
+        Assert.assertArrayEquals("block2".getBytes(), blockStore.get(2));
+        Assert.assertNull(blockStore.get(3));
+        blockStore.close();
+    }
+
+    @Test
+    public void tornTailTest() throws Exception {
+        String dir = Files.createTempDirectory("blockstore").toString();
+
+        BlockStore blockStore = new BlockStore(dir);
+        blockStore.put(1, "block1".getBytes());
+        blockStore.put(2, "block2".getBytes());
+        blockStore.close();
+
+        // cut the last record in half
+        File dataFile = new File(dir, "blocks.dat");
+        try (RandomAccessFile file = new RandomAccessFile(dataFile, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        blockStore = new BlockStore(dir);
+        Assert.assertEquals(1, blockStore.size());
+        Assert.assertArrayEquals("block1".getBytes(), blockStore.get(1));
+        Assert.assertNull(blockStore.get(2));
+
+        // append after recovery
+        blockStore.put(2, "block2".getBytes());
+        blockStore.close();
+
+        blockStore = new BlockStore(dir);
+        Assert.assertArrayEquals("block2".getBytes(), blockStore.get(2));
+        blockStore.close();
+    }
+
+    @Test
+    public void chunkTest() throws Exception {
+        String dir = Files.createTempDirectory("blockstore").toString();
+
+        // 46 bytes per record, records straddle the 64 bytes chunks
+        BlockStore blockStore = new BlockStore(dir, 64);
+        for (int i = 0; i < 20; i++) {
+            blockStore.put(i, String.format("block%025d", i).getBytes());
+        }
+        Assert.assertEquals(20 * 46 / 64, blockStore.getMappedChunks());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertArrayEquals(String.format("block%025d", i).getBytes(), blockStore.get(i));
+        }
+        blockStore.close();
+        Assert.assertNull(blockStore.get(1)); // closed
+
+        blockStore = new BlockStore(dir, 64);
+        Assert.assertEquals(20 * 46 / 64, blockStore.getMappedChunks());
+        Assert.assertArrayEquals(String.format("block%025d", 19).getBytes(), blockStore.get(19));
+        blockStore.close();
+    }
+}
@@ -0,0 +1,37 @@
+package com.webank.wecross.stub.fabric;
+
+import static com.webank.wecross.stub.fabric.TestBlocks.buildBlock;
+import static com.webank.wecross.stub.fabric.TestBlocks.buildEnvelope;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.common.Common;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlockTransactionsTest {
+    @Test
+    public void decodeTest() throws Exception {
+        Common.Block block =
+                buildBlock(
+                        3,
+                        new byte[] {0, 11, (byte) 255},
+                        buildEnvelope("").toByteString(), // config
+                        buildEnvelope("tx1").toByteString(),
+                        ByteString.copyFromUtf8("not an envelope"),
+                        buildEnvelope("tx3").toByteString());
+
+        BlockTransactions transactions = BlockTransactions.parse(block.toByteArray());
+        Assert.assertEquals(3, transactions.getBlockNumber());
+        Assert.assertEquals(4, transactions.size());
+
+        Assert.assertEquals("", transactions.getTxID(0));
+        Assert.assertEquals("tx1", transactions.getTxID(1));
+        Assert.assertNull(transactions.getTxID(2));
+        Assert.assertEquals("tx3", transactions.getTxID(3));
+
+        Assert.assertTrue(transactions.isValid(0));
+        Assert.assertEquals(11, transactions.getValidationCode(1));
+        Assert.assertEquals(255, transactions.getValidationCode(2));
+        Assert.assertEquals(254, transactions.getValidationCode(3)); // not in the filter
+    }
+}
@@ -0,0 +1,103 @@
+package com.webank.wecross.stub.fabric;
+
+import com.webank.wecross.common.FabricType;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Properties;
+import org.hyperledger.fabric.protos.common.MspPrincipal;
+import org.hyperledger.fabric.protos.common.Policies;
+import org.hyperledger.fabric.sdk.Peer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChaincodePolicyTest {
+    private static MspPrincipal.MSPPrincipal member(String mspId) {
+        return MspPrincipal.MSPPrincipal.newBuilder()
+                .setPrincipalClassification(MspPrincipal.MSPPrincipal.Classification.ROLE)
+                .setPrincipal(
+                        MspPrincipal.MSPRole.newBuilder()
+                                .setMspIdentifier(mspId)
+                                .setRole(MspPrincipal.MSPRole.MSPRoleType.MEMBER)
+                                .build()
+                                .toByteString())
+                .build();
+    }
+
+    private static Policies.SignaturePolicy signedBy(int index) {
+        return Policies.SignaturePolicy.newBuilder().setSignedBy(index).build();
+    }
+
+    private static Policies.SignaturePolicy outOf(int n, Policies.SignaturePolicy... rules) {
+        return Policies.SignaturePolicy.newBuilder()
+                .setNOutOf(
+                        Policies.SignaturePolicy.NOutOf.newBuilder()
+                                .setN(n)
+                                .addAllRules(Arrays.asList(rules)))
+                .build();
+    }
+
+    private static ChaincodePolicy build(Policies.SignaturePolicy rule) throws Exception {
+        Policies.SignaturePolicyEnvelope envelope =
+                Policies.SignaturePolicyEnvelope.newBuilder()
+                        .setRule(rule)
+                        .addIdentities(member("Org1MSP"))
+                        .addIdentities(member("Org2MSP"))
+                        .build();
+        return ChaincodePolicy.parseFrom(envelope.toByteArray());
+    }
+
+    @Test
+    public void andPolicyTest() throws Exception {
+        ChaincodePolicy policy = build(outOf(2, signedBy(0), signedBy(1)));
+        Assert.assertTrue(policy.isSupported());
+        Assert.assertTrue(policy.isSatisfiedBy(Arrays.asList("Org1MSP", "Org2MSP")));
+        Assert.assertFalse(policy.isSatisfiedBy(Arrays.asList("Org1MSP", "Org1MSP")));
+        Assert.assertFalse(policy.isSatisfiedBy(Arrays.asList("Org2MSP")));
+    }
+
+    @Test
+    public void orPolicyTest() throws Exception {
+        ChaincodePolicy policy = build(outOf(1, signedBy(0), signedBy(1)));
+        Assert.assertTrue(policy.isSatisfiedBy(Arrays.asList("Org2MSP")));
+        Assert.assertFalse(policy.isSatisfiedBy(Arrays.asList("Org3MSP")));
+    }
+
+    @Test
+    public void samePrincipalTwiceTest() throws Exception {
+        // each endorser can only be counted once
+        ChaincodePolicy policy = build(outOf(2, signedBy(0), signedBy(0)));
+        Assert.assertFalse(policy.isSatisfiedBy(Arrays.asList("Org1MSP")));
+        Assert.assertTrue(policy.isSatisfiedBy(Arrays.asList("Org1MSP", "Org1MSP")));
+    }
+
+    // Peer(name, url, properties) is package private, HFClient.newPeer needs a user context
+    static Peer peer(String name, String mspId) throws Exception {
+        Properties properties = new Properties();
+        properties.put(FabricType.ORG_MSP_ID_DEF, mspId);
+        Constructor<Peer> constructor =
+                Peer.class.getDeclaredConstructor(String.class, String.class, Properties.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(name, "grpc://127.0.0.1:7051", properties);
+    }
+
+    @Test
+    public void selectAvailableTest() throws Exception {
+        Peer org1Peer0 = peer("org1peer0", "Org1MSP");
+        Peer org1Peer1 = peer("org1peer1", "Org1MSP");
+        Peer org2Peer0 = peer("org2peer0", "Org2MSP");
+
+        EndorserSelector selector =
+                new EndorserSelector(
+                        build(outOf(2, signedBy(0), signedBy(1))),
+                        Arrays.asList(org1Peer0, org1Peer1, org2Peer0));
+        Assert.assertEquals(2, selector.getCandidateSets().size());
+
+        // sets with a tripped peer are skipped
+        for (int i = 0; i < 4; i++) {
+            Collection<Peer> selected = selector.select(peer -> peer != org1Peer0);
+            Assert.assertEquals(Arrays.asList(org1Peer1, org2Peer0), selected);
+        }
+        Assert.assertNull(selector.select(peer -> peer != org2Peer0));
+    }
+}
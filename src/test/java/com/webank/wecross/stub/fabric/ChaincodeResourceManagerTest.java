@@ -0,0 +1,122 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.protobuf.ByteString;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.peer.Chaincode;
+import org.hyperledger.fabric.protos.peer.FabricProposal;
+import org.hyperledger.fabric.protos.peer.FabricTransaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChaincodeResourceManagerTest {
+    private static ByteString buildEnvelope(String chaincode, String... args) {
+        Chaincode.ChaincodeInput.Builder input = Chaincode.ChaincodeInput.newBuilder();
+        for (String arg : args) {
+            input.addArgs(ByteString.copyFromUtf8(arg));
+        }
+        return buildEnvelope(chaincode, input);
+    }
+
+    private static ByteString buildDeployEnvelope(String function, String name, String version) {
+        Chaincode.ChaincodeDeploymentSpec deploymentSpec =
+                Chaincode.ChaincodeDeploymentSpec.newBuilder()
+                        .setChaincodeSpec(
+                                Chaincode.ChaincodeSpec.newBuilder()
+                                        .setChaincodeId(
+                                                Chaincode.ChaincodeID.newBuilder()
+                                                        .setName(name)
+                                                        .setVersion(version)))
+                        .build();
+        return buildEnvelope(
+                "lscc",
+                Chaincode.ChaincodeInput.newBuilder()
+                        .addArgs(ByteString.copyFromUtf8(function))
+                        .addArgs(ByteString.copyFromUtf8("mychannel"))
+                        .addArgs(deploymentSpec.toByteString()));
+    }
+
+    private static ByteString buildEnvelope(
+            String chaincode, Chaincode.ChaincodeInput.Builder input) {
+        Chaincode.ChaincodeSpec chaincodeSpec =
+                Chaincode.ChaincodeSpec.newBuilder()
+                        .setChaincodeId(Chaincode.ChaincodeID.newBuilder().setName(chaincode))
+                        .setInput(input)
+                        .build();
+        FabricProposal.ChaincodeProposalPayload proposalPayload =
+                FabricProposal.ChaincodeProposalPayload.newBuilder()
+                        .setInput(
+                                Chaincode.ChaincodeInvocationSpec.newBuilder()
+                                        .setChaincodeSpec(chaincodeSpec)
+                                        .build()
+                                        .toByteString())
+                        .build();
+        FabricTransaction.Transaction transaction =
+                FabricTransaction.Transaction.newBuilder()
+                        .addActions(
+                                FabricTransaction.TransactionAction.newBuilder()
+                                        .setPayload(
+                                                FabricTransaction.ChaincodeActionPayload
+                                                        .newBuilder()
+                                                        .setChaincodeProposalPayload(
+                                                                proposalPayload.toByteString())
+                                                        .build()
+                                                        .toByteString()))
+                        .build();
+        Common.ChannelHeader channelHeader =
+                Common.ChannelHeader.newBuilder()
+                        .setType(Common.HeaderType.ENDORSER_TRANSACTION_VALUE)
+                        .build();
+        Common.Payload payload =
+                Common.Payload.newBuilder()
+                        .setHeader(
+                                Common.Header.newBuilder()
+                                        .setChannelHeader(channelHeader.toByteString()))
+                        .setData(transaction.toByteString())
+                        .build();
+        return Common.Envelope.newBuilder()
+                .setPayload(payload.toByteString())
+                .build()
+                .toByteString();
+    }
+
+    @Test
+    public void deployedChaincodesTest() throws Exception {
+        Common.Block block =
+                TestBlocks.buildBlock(
+                        1,
+                        new byte[] {0, 0, 0, 11},
+                        buildEnvelope("sacc", "set", "a", "10"),
+                        buildDeployEnvelope("deploy", "sacc", "1.0"),
+                        buildDeployEnvelope("upgrade", "proxy", "2.0"),
+                        buildDeployEnvelope("deploy", "invalid", "1.0"));
+
+        Map<String, String> deployed = ChaincodeResourceManager.getDeployedChaincodes(block);
+        Assert.assertEquals(2, deployed.size());
+        Assert.assertEquals("1.0", deployed.get("sacc"));
+        Assert.assertEquals("2.0", deployed.get("proxy"));
+    }
+
+    @Test
+    public void noDeploymentTest() throws Exception {
+        Common.Block block =
+                TestBlocks.buildBlock(
+                        1,
+                        new byte[] {0, 0},
+                        buildEnvelope("sacc", "set", "a", "10"),
+                        buildEnvelope("lscc", "getccdata", "mychannel", "sacc"));
+
+        Assert.assertTrue(ChaincodeResourceManager.getDeployedChaincodes(block).isEmpty());
+    }
+
+    @Test
+    public void probeTimeoutTest() throws Exception {
+        Exception timeout =
+                new Exception("proposal failed", new ExecutionException(new TimeoutException()));
+        Assert.assertTrue(ChaincodeResourceManager.isTimeout(timeout));
+        Assert.assertFalse(
+                ChaincodeResourceManager.isTimeout(new Exception("request timed out, no cause")));
+    }
+}
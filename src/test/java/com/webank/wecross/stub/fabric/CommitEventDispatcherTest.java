@@ -0,0 +1,100 @@
+package com.webank.wecross.stub.fabric;
+
+import static com.webank.wecross.stub.fabric.TestBlocks.buildBlock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import org.hyperledger.fabric.protos.common.Common;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CommitEventDispatcherTest {
+    private static CommitTimeoutPolicy newPolicy() {
+        return new CommitTimeoutPolicy(true, 15000, 1000, 60000);
+    }
+
+    @Test
+    public void matchTest() throws Exception {
+        CommitEventDispatcher dispatcher = new CommitEventDispatcher(Runnable::run, newPolicy());
+        CompletableFuture<CommitProof> future1 = dispatcher.register("tx1");
+        CompletableFuture<CommitProof> future2 = dispatcher.register("tx2");
+        Assert.assertSame(future1, dispatcher.register("tx1")); // sent again
+        Assert.assertEquals(2, dispatcher.getPendingCount());
+
+        // a config envelope without txID comes first, the index is the envelope position
+        Common.Block block = buildBlock(7, new byte[] {0, 0, (byte) 255}, "", "tx1", "tx2");
+        dispatcher.onBlock(block);
+
+        CommitProof proof1 = future1.getNow(null);
+        Assert.assertEquals("tx1", proof1.getTxID());
+        Assert.assertEquals(7, proof1.getBlockNumber());
+        Assert.assertEquals(1, proof1.getTxIndex());
+        Assert.assertTrue(proof1.isValid());
+        Assert.assertEquals(FabricBlock.calculateBlockHashString(block), proof1.getBlockHash());
+
+        CommitProof proof2 = future2.getNow(null);
+        Assert.assertEquals(2, proof2.getTxIndex());
+        Assert.assertEquals(255, proof2.getValidationCode()); // INVALID_OTHER_REASON
+        Assert.assertFalse(proof2.isValid());
+        Assert.assertEquals(0, dispatcher.getPendingCount());
+
+        // the same block from another event peer
+        dispatcher.onBlock(block);
+        Assert.assertSame(proof1, future1.getNow(null));
+    }
+
+    @Test
+    public void expireTest() throws Exception {
+        CommitTimeoutPolicy policy = newPolicy();
+        CommitEventDispatcher dispatcher = new CommitEventDispatcher(Runnable::run, policy);
+        CompletableFuture<CommitProof> future = dispatcher.register("tx0");
+
+        dispatcher.expire("tx0");
+        Assert.assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertEquals(0, dispatcher.getPendingCount());
+        Assert.assertEquals(1, policy.getTimeouts());
+
+        // committed after the timeout, counted as a late commit only
+        dispatcher.onBlock(buildBlock(8, new byte[] {0}, "tx0"));
+        Assert.assertEquals(1, policy.getLateCommits());
+        Assert.assertEquals(0, policy.getCommits());
+
+        dispatcher.onBlock(buildBlock(9, new byte[] {0}, "tx0"));
+        Assert.assertEquals(1, policy.getLateCommits()); // watched once
+
+        dispatcher.expire("tx0"); // not pending any more
+        Assert.assertEquals(1, policy.getTimeouts());
+    }
+
+    @Test
+    public void unregisterTest() throws Exception {
+        CommitEventDispatcher dispatcher = new CommitEventDispatcher(Runnable::run, newPolicy());
+        CompletableFuture<CommitProof> future = dispatcher.register("tx0");
+        dispatcher.unregister("tx0");
+
+        dispatcher.onBlock(buildBlock(1, new byte[] {0}, "tx0"));
+        Assert.assertFalse(future.isDone());
+    }
+
+    @Test
+    public void rejectedExecutorTest() throws Exception {
+        CommitEventDispatcher dispatcher =
+                new CommitEventDispatcher(
+                        command -> {
+                            throw new RejectedExecutionException("full");
+                        },
+                        newPolicy());
+        CompletableFuture<CommitProof> future = dispatcher.register("tx0");
+
+        dispatcher.onBlock(buildBlock(1, new byte[] {0}, "tx0"));
+        Assert.assertEquals(1, future.getNow(null).getBlockNumber());
+    }
+}
@@ -0,0 +1,55 @@
+package com.webank.wecross.stub.fabric;
+
+import static com.webank.wecross.utils.FabricUtils.longToBytes;
+
+import org.hyperledger.fabric.protos.common.Common;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CommitProofTest {
+    @Test
+    public void codecTest() throws Exception {
+        CommitProof proof = new CommitProof("tx0", 1024, 3, 0, "aabbcc");
+        byte[] bytes = proof.toBytes();
+
+        Assert.assertTrue(CommitProof.isCommitProof(bytes));
+        CommitProof parsed = CommitProof.parseFrom(bytes);
+        Assert.assertEquals("tx0", parsed.getTxID());
+        Assert.assertEquals(1024, parsed.getBlockNumber());
+        Assert.assertEquals(3, parsed.getTxIndex());
+        Assert.assertEquals(0, parsed.getValidationCode());
+        Assert.assertEquals("aabbcc", parsed.getBlockHash());
+    }
+
+    @Test
+    public void matchesTest() throws Exception {
+        Assert.assertTrue(new CommitProof("tx0", 1, 0, 0, "aabbcc").matches("tx0"));
+        Assert.assertFalse(new CommitProof("tx0", 1, 0, 0, "aabbcc").matches("tx1"));
+        Assert.assertFalse(new CommitProof("tx0", 1, 0, 11, "aabbcc").matches("tx0"));
+        Assert.assertFalse(new CommitProof("tx0", 1, 0, 0, null).matches("tx0"));
+    }
+
+    @Test
+    public void verifyTest() throws Exception {
+        Common.Block block = TestBlocks.buildBlock(5, new byte[] {0, 11}, "tx0", "tx1");
+        FabricBlock fabricBlock = new FabricBlock(block.toByteArray());
+        String blockHash = fabricBlock.getHash();
+
+        Assert.assertTrue(new CommitProof("tx0", 5, 0, 0, blockHash).verify(fabricBlock));
+        Assert.assertTrue(new CommitProof("tx1", 5, 1, 11, blockHash).verify(fabricBlock));
+
+        Assert.assertFalse(new CommitProof("tx0", 5, 0, 0, "aabbcc").verify(fabricBlock));
+        Assert.assertFalse(new CommitProof("tx0", 6, 0, 0, blockHash).verify(fabricBlock));
+        Assert.assertFalse(new CommitProof("tx0", 5, 1, 0, blockHash).verify(fabricBlock));
+        Assert.assertFalse(new CommitProof("tx1", 5, 1, 0, blockHash).verify(fabricBlock));
+        Assert.assertFalse(new CommitProof("tx1", 5, 2, 11, blockHash).verify(fabricBlock));
+        Assert.assertFalse(new CommitProof("tx0", 5, 0, 0, blockHash).verify(null));
+    }
+
+    @Test
+    public void legacyBlockNumberTest() throws Exception {
+        // older connections respond with the block number only
+        Assert.assertFalse(CommitProof.isCommitProof(longToBytes(1024)));
+        Assert.assertFalse(CommitProof.isCommitProof(longToBytes(Long.MAX_VALUE)));
+    }
+}
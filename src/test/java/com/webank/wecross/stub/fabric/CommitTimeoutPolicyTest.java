@@ -0,0 +1,46 @@
+package com.webank.wecross.stub.fabric;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CommitTimeoutPolicyTest {
+    @Test
+    public void fixedTest() throws Exception {
+        CommitTimeoutPolicy policy = new CommitTimeoutPolicy(false, 15000, 5000, 60000);
+        policy.onCommit(100);
+        Assert.assertEquals(15000, policy.getTimeout());
+    }
+
+    @Test
+    public void adaptiveTest() throws Exception {
+        CommitTimeoutPolicy policy = new CommitTimeoutPolicy(true, 15000, 1000, 60000);
+        Assert.assertEquals(15000, policy.getTimeout()); // not measured yet
+
+        for (int i = 0; i < 100; i++) {
+            policy.onCommit(2000);
+        }
+        long steady = policy.getTimeout();
+        Assert.assertTrue(steady >= 2000 && steady < 3000);
+
+        policy.onTimeout();
+        Assert.assertTrue(policy.getTimeout() > steady); // backs off
+
+        for (int i = 0; i < 100; i++) {
+            policy.onLateCommit(20000);
+        }
+        Assert.assertTrue(policy.getTimeout() > 19000);
+        Assert.assertEquals(100, policy.getCommits());
+        Assert.assertEquals(1, policy.getTimeouts());
+        Assert.assertEquals(100, policy.getLateCommits());
+    }
+
+    @Test
+    public void boundTest() throws Exception {
+        CommitTimeoutPolicy policy = new CommitTimeoutPolicy(true, 15000, 5000, 60000);
+        policy.onCommit(10);
+        Assert.assertEquals(5000, policy.getTimeout());
+
+        policy.onCommit(1000000);
+        Assert.assertEquals(60000, policy.getTimeout());
+    }
+}
@@ -0,0 +1,186 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.protobuf.ByteString;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.hyperledger.fabric.protos.peer.FabricProposal;
+import org.hyperledger.fabric.protos.peer.FabricProposalResponse;
+import org.hyperledger.fabric.sdk.Channel;
+import org.hyperledger.fabric.sdk.Enrollment;
+import org.hyperledger.fabric.sdk.HFClient;
+import org.hyperledger.fabric.sdk.ProposalResponse;
+import org.hyperledger.fabric.sdk.User;
+import org.hyperledger.fabric.sdk.security.CryptoSuite;
+import org.hyperledger.fabric.sdk.transaction.TransactionContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EndorsementCollectorTest {
+    private CryptoSuite cryptoSuite;
+    private TransactionContext transactionContext;
+    private FabricInnerFunction fabricInnerFunction;
+
+    private AtomicInteger callbackCount = new AtomicInteger(0);
+    private AtomicReference<Collection<ProposalResponse>> result = new AtomicReference<>();
+
+    @Before
+    public void setUp() throws Exception {
+        PrivateKey key = KeyPairGenerator.getInstance("EC").generateKeyPair().getPrivate();
+        User user =
+                new User() {
+                    @Override
+                    public String getName() {
+                        return "user";
+                    }
+
+                    @Override
+                    public Set<String> getRoles() {
+                        return Collections.emptySet();
+                    }
+
+                    @Override
+                    public String getAccount() {
+                        return null;
+                    }
+
+                    @Override
+                    public String getAffiliation() {
+                        return null;
+                    }
+
+                    @Override
+                    public Enrollment getEnrollment() {
+                        return new Enrollment() {
+                            @Override
+                            public PrivateKey getKey() {
+                                return key;
+                            }
+
+                            @Override
+                            public String getCert() {
+                                return "cert";
+                            }
+                        };
+                    }
+
+                    @Override
+                    public String getMspId() {
+                        return "Org1MSP";
+                    }
+                };
+
+        cryptoSuite = CryptoSuite.Factory.getCryptoSuite();
+        HFClient hfClient = HFClient.createNewInstance();
+        hfClient.setCryptoSuite(cryptoSuite);
+        hfClient.setUserContext(user);
+        Channel channel = hfClient.newChannel("mychannel");
+        transactionContext = new TransactionContext(channel, user, cryptoSuite);
+        transactionContext.verify(false);
+        fabricInnerFunction = new FabricInnerFunction(channel);
+    }
+
+    // A success response, its rwset is represented by the proposal response payload
+    private ProposalResponse success(String result, String rwset) throws Exception {
+        FabricProposalResponse.ProposalResponse fabricResponse =
+                FabricProposalResponse.ProposalResponse.newBuilder()
+                        .setResponse(
+                                FabricProposalResponse.Response.newBuilder()
+                                        .setStatus(200)
+                                        .setPayload(ByteString.copyFromUtf8(result)))
+                        .setPayload(ByteString.copyFromUtf8(rwset))
+                        .build();
+        return fabricInnerFunction.buildProposalResponse(
+                transactionContext,
+                cryptoSuite,
+                null,
+                FabricProposal.SignedProposal.getDefaultInstance(),
+                fabricResponse,
+                null);
+    }
+
+    private EndorsementCollector newCollector(int total, EndorsementCompletionPolicy policy) {
+        return new EndorsementCollector(
+                total,
+                proposalResponses -> {
+                    callbackCount.incrementAndGet();
+                    result.set(proposalResponses);
+                },
+                policy);
+    }
+
+    @Test
+    public void waitAllTest() throws Exception {
+        EndorsementCollector collector = newCollector(3, EndorsementCompletionPolicy.all());
+
+        collector.onPeerResponse(success("ok", "rwset"));
+        collector.onPeerResponse(null); // a failed peer
+        Assert.assertFalse(collector.isDone());
+
+        collector.onPeerResponse(success("ok", "rwset"));
+        Assert.assertTrue(collector.isDone());
+        Assert.assertEquals(1, callbackCount.get());
+        Assert.assertEquals(2, result.get().size());
+    }
+
+    @Test
+    public void earlyCompletionTest() throws Exception {
+        EndorsementCollector collector = newCollector(3, EndorsementCompletionPolicy.outOf(2));
+        CompletableFuture<Void> straggler = new CompletableFuture<>();
+        collector.addPendingFuture(straggler);
+
+        collector.onPeerResponse(success("ok", "rwset"));
+        Assert.assertFalse(collector.isDone());
+
+        collector.onPeerResponse(success("ok", "rwset"));
+        Assert.assertTrue(collector.isDone());
+        Assert.assertEquals(2, result.get().size());
+        Assert.assertTrue(straggler.isCancelled());
+
+        // the straggler reports after completion, nothing is called back again
+        collector.onPeerResponse(null);
+        Assert.assertEquals(1, callbackCount.get());
+
+        CompletableFuture<Void> late = new CompletableFuture<>();
+        collector.addPendingFuture(late);
+        Assert.assertTrue(late.isCancelled());
+    }
+
+    @Test
+    public void inconsistentRwsetTest() throws Exception {
+        EndorsementCollector collector = newCollector(3, EndorsementCompletionPolicy.outOf(2));
+
+        // the same chaincode result but different rwsets are not consistent endorsements
+        collector.onPeerResponse(success("ok", "rwset0"));
+        collector.onPeerResponse(success("ok", "rwset1"));
+        Assert.assertFalse(collector.isDone());
+
+        collector.onPeerResponse(success("ok", "rwset1"));
+        Assert.assertTrue(collector.isDone());
+        Assert.assertEquals(3, result.get().size());
+    }
+
+    @Test
+    public void timeoutTest() throws Exception {
+        EndorsementCollector collector = newCollector(3, EndorsementCompletionPolicy.outOf(2));
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        collector.addPendingFuture(pending);
+
+        collector.onPeerResponse(success("ok", "rwset"));
+        collector.onTimeout();
+        Assert.assertTrue(collector.isDone());
+        Assert.assertTrue(pending.isCancelled());
+        Assert.assertEquals(1, result.get().size());
+
+        collector.onTimeout(); // called back once only
+        collector.onPeerResponse(null);
+        collector.onPeerResponse(null);
+        Assert.assertEquals(1, callbackCount.get());
+    }
+}
@@ -0,0 +1,261 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.netty.util.HashedWheelTimer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hyperledger.fabric.protos.common.Common;
+import org.hyperledger.fabric.protos.orderer.Ab;
+import org.hyperledger.fabric.protos.orderer.AtomicBroadcastGrpc;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrdererBroadcastStreamTest {
+    // An orderer which hands every received envelope to the test, the test decides on the answer
+    private static class FakeOrderer extends AtomicBroadcastGrpc.AtomicBroadcastImplBase {
+        private BlockingQueue<Common.Envelope> received = new LinkedBlockingQueue<>();
+        private volatile StreamObserver<Ab.BroadcastResponse> responseStream;
+        private AtomicInteger streams = new AtomicInteger(0);
+
+        @Override
+        public StreamObserver<Common.Envelope> broadcast(
+                StreamObserver<Ab.BroadcastResponse> responseObserver) {
+            responseStream = responseObserver;
+            streams.incrementAndGet();
+            return new StreamObserver<Common.Envelope>() {
+                @Override
+                public void onNext(Common.Envelope envelope) {
+                    received.add(envelope);
+                }
+
+                @Override
+                public void onError(Throwable t) {}
+
+                @Override
+                public void onCompleted() {}
+            };
+        }
+
+        Common.Envelope take() throws Exception {
+            Common.Envelope envelope = received.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(envelope);
+            return envelope;
+        }
+
+        void ack(Common.Status status) {
+            responseStream.onNext(Ab.BroadcastResponse.newBuilder().setStatus(status).build());
+        }
+    }
+
+    private FakeOrderer orderer = new FakeOrderer();
+    private Server server;
+    private ManagedChannel channel;
+    private HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+
+    @Before
+    public void setUp() throws Exception {
+        String serverName = InProcessServerBuilder.generateName();
+        server =
+                InProcessServerBuilder.forName(serverName)
+                        .directExecutor()
+                        .addService(orderer)
+                        .build()
+                        .start();
+        channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        channel.shutdownNow();
+        server.shutdownNow();
+        timer.stop();
+    }
+
+    private static Common.Envelope envelope(String data) {
+        return Common.Envelope.newBuilder().setPayload(ByteString.copyFromUtf8(data)).build();
+    }
+
+    private OrdererBroadcastStream newStream(int window) {
+        return newStream(window, 100, 5000);
+    }
+
+    private OrdererBroadcastStream newStream(int window, int maxQueued, long ackTimeout) {
+        return new OrdererBroadcastStream(
+                "orderer0",
+                () -> channel,
+                Runnable::run,
+                timer,
+                window,
+                maxQueued,
+                () -> ackTimeout);
+    }
+
+    @Test
+    public void ackOrderTest() throws Exception {
+        OrdererBroadcastStream stream = newStream(10);
+        CompletableFuture<Ab.BroadcastResponse> future0 = stream.send(envelope("tx0"));
+        CompletableFuture<Ab.BroadcastResponse> future1 = stream.send(envelope("tx1"));
+
+        Assert.assertEquals("tx0", orderer.take().getPayload().toStringUtf8());
+        Assert.assertEquals("tx1", orderer.take().getPayload().toStringUtf8());
+        Assert.assertEquals(2, stream.getUnacknowledged());
+
+        // acknowledged in order, each response completes the oldest envelope
+        orderer.ack(Common.Status.SUCCESS);
+        Assert.assertEquals(Common.Status.SUCCESS, future0.get(5, TimeUnit.SECONDS).getStatus());
+        Assert.assertFalse(future1.isDone());
+
+        orderer.ack(Common.Status.BAD_REQUEST);
+        Assert.assertEquals(
+                Common.Status.BAD_REQUEST, future1.get(5, TimeUnit.SECONDS).getStatus());
+        Assert.assertEquals(0, stream.getUnacknowledged());
+        Assert.assertEquals(1, orderer.streams.get()); // the stream is reused
+    }
+
+    @Test
+    public void windowTest() throws Exception {
+        OrdererBroadcastStream stream = newStream(2);
+        List<CompletableFuture<Ab.BroadcastResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(stream.send(envelope("tx" + i)));
+        }
+
+        orderer.take();
+        orderer.take();
+        Assert.assertNull(orderer.received.poll(200, TimeUnit.MILLISECONDS)); // the window is full
+        Assert.assertEquals(2, stream.getUnacknowledged());
+
+        orderer.ack(Common.Status.SUCCESS);
+        Assert.assertEquals("tx2", orderer.take().getPayload().toStringUtf8());
+        orderer.ack(Common.Status.SUCCESS);
+        orderer.ack(Common.Status.SUCCESS);
+        for (CompletableFuture<Ab.BroadcastResponse> future : futures) {
+            Assert.assertEquals(Common.Status.SUCCESS, future.get(5, TimeUnit.SECONDS).getStatus());
+        }
+    }
+
+    @Test
+    public void streamFailureTest() throws Exception {
+        OrdererBroadcastStream stream = newStream(10);
+        CompletableFuture<Ab.BroadcastResponse> inflight = stream.send(envelope("tx0"));
+        orderer.take();
+
+        // unacknowledged envelopes fail, the caller fails over to another orderer
+        orderer.responseStream.onError(Status.UNAVAILABLE.asRuntimeException());
+        Assert.assertTrue(awaitFailed(inflight));
+        Assert.assertEquals(0, stream.getUnacknowledged());
+
+        // no stream is reopened during the backoff, envelopes fail at once instead of waiting
+        Assert.assertTrue(stream.send(envelope("tx1")).isCompletedExceptionally());
+        Assert.assertEquals(1, orderer.streams.get());
+
+        Thread.sleep(300);
+        CompletableFuture<Ab.BroadcastResponse> future = stream.send(envelope("tx2"));
+        Assert.assertEquals("tx2", orderer.take().getPayload().toStringUtf8());
+        orderer.ack(Common.Status.SUCCESS);
+        Assert.assertEquals(Common.Status.SUCCESS, future.get(5, TimeUnit.SECONDS).getStatus());
+        Assert.assertEquals(2, orderer.streams.get());
+    }
+
+    @Test
+    public void connectFailureTest() throws Exception {
+        AtomicInteger connects = new AtomicInteger(0);
+        OrdererBroadcastStream stream =
+                new OrdererBroadcastStream(
+                        "orderer0",
+                        () -> {
+                            connects.incrementAndGet();
+                            throw new Exception("unreachable");
+                        },
+                        Runnable::run,
+                        timer,
+                        10,
+                        100,
+                        () -> 5000);
+
+        Assert.assertTrue(stream.send(envelope("tx0")).isCompletedExceptionally());
+        Assert.assertTrue(stream.send(envelope("tx1")).isCompletedExceptionally());
+        Assert.assertEquals(1, connects.get()); // not retried before the backoff has passed
+    }
+
+    @Test
+    public void queueFullTest() throws Exception {
+        OrdererBroadcastStream stream = newStream(1, 2, 5000);
+        CompletableFuture<Ab.BroadcastResponse> written = stream.send(envelope("tx0"));
+        orderer.take();
+        List<CompletableFuture<Ab.BroadcastResponse>> queued = new ArrayList<>();
+        queued.add(stream.send(envelope("tx1")));
+        queued.add(stream.send(envelope("tx2")));
+
+        // the window is full and so is the queue behind it
+        CompletableFuture<Ab.BroadcastResponse> rejected = stream.send(envelope("tx3"));
+        try {
+            rejected.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        orderer.ack(Common.Status.SUCCESS);
+        Assert.assertEquals(Common.Status.SUCCESS, written.get(5, TimeUnit.SECONDS).getStatus());
+        orderer.take();
+        orderer.ack(Common.Status.SUCCESS);
+        orderer.take();
+        orderer.ack(Common.Status.SUCCESS);
+        for (CompletableFuture<Ab.BroadcastResponse> future : queued) {
+            Assert.assertEquals(Common.Status.SUCCESS, future.get(5, TimeUnit.SECONDS).getStatus());
+        }
+    }
+
+    @Test
+    public void ackTimeoutTest() throws Exception {
+        OrdererBroadcastStream stream = newStream(1, 100, 200);
+        CompletableFuture<Ab.BroadcastResponse> written = stream.send(envelope("tx0"));
+        CompletableFuture<Ab.BroadcastResponse> queued = stream.send(envelope("tx1"));
+        orderer.take();
+
+        // the orderer keeps the stream open without acknowledging
+        try {
+            written.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        // failed by the deadline, or at once by the reset stream, either way it fails over
+        Assert.assertTrue(awaitFailed(queued));
+        Assert.assertEquals(0, stream.getUnacknowledged());
+
+        // reset, a new stream is opened once the backoff has passed
+        Thread.sleep(300);
+        CompletableFuture<Ab.BroadcastResponse> future = stream.send(envelope("tx2"));
+        Assert.assertEquals("tx2", orderer.take().getPayload().toStringUtf8());
+        orderer.ack(Common.Status.SUCCESS);
+        Assert.assertEquals(Common.Status.SUCCESS, future.get(5, TimeUnit.SECONDS).getStatus());
+        Assert.assertEquals(2, orderer.streams.get());
+    }
+
+    private static boolean awaitFailed(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.webank.wecross.stub.fabric;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PeerHealthTest {
+    @Test
+    public void tripTest() throws Exception {
+        PeerHealth.PeerState state = new PeerHealth.PeerState("peer0");
+
+        Assert.assertFalse(state.onResponse(10, false, 3));
+        Assert.assertFalse(state.onResponse(10, false, 3));
+        Assert.assertFalse(state.onResponse(10, true, 3)); // success resets the count
+        Assert.assertEquals(0, state.getConsecutiveFailures());
+        Assert.assertEquals(PeerHealth.State.CLOSED, state.getState());
+
+        Assert.assertFalse(state.onResponse(10, false, 3));
+        Assert.assertFalse(state.onResponse(10, false, 3));
+        Assert.assertTrue(state.onResponse(10, false, 3));
+        Assert.assertEquals(PeerHealth.State.OPEN, state.getState());
+        Assert.assertFalse(state.onResponse(10, false, 3)); // trips only once
+        Assert.assertEquals(1, state.getTrips());
+        Assert.assertTrue(state.getSuccessRate() < 1);
+    }
+
+    @Test
+    public void probeTest() throws Exception {
+        PeerHealth.PeerState state = new PeerHealth.PeerState("peer0");
+        Assert.assertFalse(state.startProbe()); // a healthy peer is not probed
+
+        state.onResponse(10, false, 1);
+        Assert.assertTrue(state.startProbe());
+        Assert.assertEquals(PeerHealth.State.HALF_OPEN, state.getState());
+        Assert.assertFalse(state.startProbe()); // one probe at a time
+
+        state.finishProbe(false);
+        Assert.assertEquals(PeerHealth.State.OPEN, state.getState());
+
+        Assert.assertTrue(state.startProbe());
+        state.finishProbe(true);
+        Assert.assertEquals(PeerHealth.State.CLOSED, state.getState());
+        Assert.assertEquals(0, state.getConsecutiveFailures());
+    }
+}
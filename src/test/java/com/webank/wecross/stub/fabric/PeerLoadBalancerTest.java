@@ -0,0 +1,57 @@
+package com.webank.wecross.stub.fabric;
+
+import static com.webank.wecross.stub.fabric.ChaincodePolicyTest.peer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.hyperledger.fabric.sdk.Peer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PeerLoadBalancerTest {
+    @Test
+    public void fastFailureTest() throws Exception {
+        Peer failing = peer("peer0", "Org1MSP");
+        Peer healthy = peer("peer1", "Org1MSP");
+        Map<String, Peer> peersMap = new LinkedHashMap<>();
+        peersMap.put("peer0", failing);
+        peersMap.put("peer1", healthy);
+        List<Peer> peers = Arrays.asList(failing, healthy);
+
+        PeerLoadBalancer balancer = new PeerLoadBalancer(peersMap, 20);
+        for (int i = 0; i < 5; i++) {
+            // connection refused at once, and a slower peer which answers
+            balancer.onSend(failing);
+            balancer.onResponse(failing, 1, false);
+            balancer.onSend(healthy);
+            balancer.onResponse(healthy, 200, true);
+        }
+
+        Assert.assertSame(healthy, balancer.choose(peers, null));
+        Assert.assertEquals(5, balancer.getPeerStats().get("peer0").getFailures());
+        // failures do not shorten the hedge delay of the peer
+        Assert.assertEquals(20, balancer.getHedgeDelay(failing, 90, 20));
+        Assert.assertEquals(200, balancer.getHedgeDelay(healthy, 90, 20));
+    }
+
+    @Test
+    public void latencyTest() throws Exception {
+        Peer fast = peer("peer0", "Org1MSP");
+        Peer slow = peer("peer1", "Org1MSP");
+        Map<String, Peer> peersMap = new LinkedHashMap<>();
+        peersMap.put("peer0", fast);
+        peersMap.put("peer1", slow);
+        List<Peer> peers = Arrays.asList(slow, fast);
+
+        PeerLoadBalancer balancer = new PeerLoadBalancer(peersMap, 20);
+        balancer.onSend(fast);
+        balancer.onResponse(fast, 10, true);
+        balancer.onSend(slow);
+        balancer.onResponse(slow, 100, true);
+
+        Assert.assertSame(fast, balancer.choose(peers, null));
+        Assert.assertSame(slow, balancer.choose(peers, fast));
+    }
+}
@@ -0,0 +1,47 @@
+package com.webank.wecross.stub.fabric;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.common.Common;
+
+// Blocks built in memory for the tests of the block consumers
+class TestBlocks {
+    static Common.Envelope buildEnvelope(String txID) {
+        Common.ChannelHeader channelHeader =
+                Common.ChannelHeader.newBuilder().setTxId(txID).build();
+        Common.Payload payload =
+                Common.Payload.newBuilder()
+                        .setHeader(
+                                Common.Header.newBuilder()
+                                        .setChannelHeader(channelHeader.toByteString()))
+                        .build();
+        return Common.Envelope.newBuilder().setPayload(payload.toByteString()).build();
+    }
+
+    static Common.Block buildBlock(long number, byte[] txFilter, String... txIDs) {
+        ByteString[] envelopes = new ByteString[txIDs.length];
+        for (int i = 0; i < txIDs.length; i++) {
+            envelopes[i] = buildEnvelope(txIDs[i]).toByteString();
+        }
+        return buildBlock(number, txFilter, envelopes);
+    }
+
+    static Common.Block buildBlock(long number, byte[] txFilter, ByteString... envelopes) {
+        Common.BlockData.Builder data = Common.BlockData.newBuilder();
+        for (ByteString envelope : envelopes) {
+            data.addData(envelope);
+        }
+
+        Common.BlockMetadata.Builder metadata = Common.BlockMetadata.newBuilder();
+        for (int i = 0; i <= Common.BlockMetadataIndex.TRANSACTIONS_FILTER_VALUE; i++) {
+            metadata.addMetadata(ByteString.EMPTY);
+        }
+        metadata.setMetadata(
+                Common.BlockMetadataIndex.TRANSACTIONS_FILTER_VALUE, ByteString.copyFrom(txFilter));
+
+        return Common.Block.newBuilder()
+                .setHeader(Common.BlockHeader.newBuilder().setNumber(number))
+                .setData(data)
+                .setMetadata(metadata)
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.webank.wecross.stub.fabric;
+
+import static com.webank.wecross.stub.fabric.TestBlocks.buildBlock;
+import static com.webank.wecross.stub.fabric.TestBlocks.buildEnvelope;
+
+import org.hyperledger.fabric.protos.common.Common;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TransactionIndexTest {
+    @Test
+    public void indexTest() throws Exception {
+        TransactionIndex transactionIndex = new TransactionIndex(100);
+        Common.Block block = buildBlock(7, new byte[] {0, 11}, "tx0", "tx1");
+        transactionIndex.indexBlock(block.toByteArray());
+
+        TransactionIndex.Location location = transactionIndex.get("tx1");
+        Assert.assertEquals(7, location.getBlockNumber());
+        Assert.assertEquals(1, location.getIndex());
+        Assert.assertEquals(11, location.getValidationCode());
+        Assert.assertEquals(0, transactionIndex.get("tx0").getValidationCode());
+        Assert.assertNull(transactionIndex.get("tx2"));
+
+        byte[] envelopeBytes =
+                TransactionIndex.getEnvelopeBytes(block.toByteArray(), location, "tx1");
+        Assert.assertArrayEquals(buildEnvelope("tx1").toByteArray(), envelopeBytes);
+        Assert.assertNull(TransactionIndex.getEnvelopeBytes(block.toByteArray(), location, "tx0"));
+    }
+
+    @Test
+    public void duplicateTxIDTest() throws Exception {
+        TransactionIndex transactionIndex = new TransactionIndex(100);
+        transactionIndex.indexBlock(buildBlock(7, new byte[] {0}, "tx0"));
+
+        // sent again and rejected as DUPLICATE_TXID, the valid location is kept
+        transactionIndex.indexBlock(buildBlock(9, new byte[] {0, 9}, "tx1", "tx0"));
+        Assert.assertEquals(7, transactionIndex.get("tx0").getBlockNumber());
+        Assert.assertEquals(0, transactionIndex.get("tx0").getValidationCode());
+
+        // an invalid transaction is replaced by a later valid one only
+        transactionIndex.indexBlock(buildBlock(10, new byte[] {11}, "tx2"));
+        transactionIndex.indexBlock(buildBlock(11, new byte[] {9}, "tx2"));
+        Assert.assertEquals(10, transactionIndex.get("tx2").getBlockNumber());
+        transactionIndex.indexBlock(buildBlock(12, new byte[] {0}, "tx2"));
+        Assert.assertEquals(12, transactionIndex.get("tx2").getBlockNumber());
+        Assert.assertTrue(transactionIndex.get("tx2").isValid());
+    }
+
+    @Test
+    public void unsignedValidationCodeTest() throws Exception {
+        TransactionIndex transactionIndex = new TransactionIndex(100);
+        transactionIndex.indexBlock(
+                buildBlock(7, new byte[] {(byte) 254, (byte) 255}, "tx0", "tx1"));
+
+        // NOT_VALIDATED and INVALID_OTHER_REASON, negative as signed bytes
+        Assert.assertEquals(254, transactionIndex.get("tx0").getValidationCode());
+        Assert.assertEquals(255, transactionIndex.get("tx1").getValidationCode());
+    }
+}
@@ -0,0 +1,95 @@
+package com.webank.wecross.stub.fabric;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webank.wecross.stub.TransactionRequest;
+import com.webank.wecross.stub.fabric.FabricCustomCommand.InstantiateChaincodeRequest;
+import com.webank.wecross.utils.BinaryFrame;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TransactionParamsTest {
+    private static TransactionParams buildParams() {
+        TransactionRequest request = new TransactionRequest("set", new String[] {"a", "", "中文"});
+        request.getOptions().put("key", "value");
+
+        TransactionParams params = new TransactionParams(request, new byte[] {0, 1, -1, 127}, true);
+        params.setOrgNames(new String[] {"Org1", "Org2"});
+        return params;
+    }
+
+    private static void assertSame(TransactionParams expected, TransactionParams actual) {
+        Assert.assertEquals(
+                expected.getOriginTransactionRequest().getMethod(),
+                actual.getOriginTransactionRequest().getMethod());
+        Assert.assertArrayEquals(
+                expected.getOriginTransactionRequest().getArgs(),
+                actual.getOriginTransactionRequest().getArgs());
+        Assert.assertEquals(
+                expected.getOriginTransactionRequest().getOptions(),
+                actual.getOriginTransactionRequest().getOptions());
+        Assert.assertArrayEquals(expected.getData(), actual.getData());
+        Assert.assertArrayEquals(expected.getOrgNames(), actual.getOrgNames());
+        Assert.assertEquals(expected.isByProxy(), actual.isByProxy());
+    }
+
+    @Test
+    public void binaryTest() throws Exception {
+        TransactionParams params = buildParams();
+        byte[] bytes = params.toBytes();
+
+        Assert.assertTrue(BinaryFrame.isFramed(bytes));
+        assertSame(params, TransactionParams.parseFrom(bytes));
+    }
+
+    @Test
+    public void nullFieldsTest() throws Exception {
+        TransactionParams params = TransactionParams.parseFrom(new TransactionParams().toBytes());
+
+        Assert.assertNull(params.getOriginTransactionRequest());
+        Assert.assertNull(params.getData());
+        Assert.assertNull(params.getOrgNames());
+        Assert.assertFalse(params.isByProxy());
+    }
+
+    @Test
+    public void jsonCompatibleTest() throws Exception {
+        TransactionParams params = buildParams();
+        byte[] json = new ObjectMapper().writeValueAsBytes(params);
+
+        assertSame(params, TransactionParams.parseFrom(json));
+    }
+
+    @Test
+    public void unsupportedVersionTest() throws Exception {
+        byte[] bytes = buildParams().toBytes();
+        bytes[1] = 2;
+
+        try {
+            TransactionParams.parseFrom(bytes);
+            Assert.fail("Frame of a newer version should not be parsed");
+        } catch (Exception e) {
+            Assert.assertTrue(e.getMessage().contains("version"));
+        }
+    }
+
+    @Test
+    public void instantiateRequestTest() throws Exception {
+        InstantiateChaincodeRequest request =
+                InstantiateChaincodeRequest.build()
+                        .setName("sacc")
+                        .setChannelName("mychannel")
+                        .setArgs(new String[] {"a", "10"})
+                        .setOrgNames(new String[] {"Org1"});
+
+        InstantiateChaincodeRequest parsed =
+                InstantiateChaincodeRequest.parseFrom(request.toBytes());
+
+        Assert.assertEquals(request.getName(), parsed.getName());
+        Assert.assertEquals(request.getVersion(), parsed.getVersion());
+        Assert.assertEquals(request.getEndorsementPolicy(), parsed.getEndorsementPolicy());
+        Assert.assertArrayEquals(request.getArgs(), parsed.getArgs());
+        Assert.assertArrayEquals(request.getOrgNames(), parsed.getOrgNames());
+        Assert.assertArrayEquals(
+                request.getTransientMap().get("method"), parsed.getTransientMap().get("method"));
+    }
+}